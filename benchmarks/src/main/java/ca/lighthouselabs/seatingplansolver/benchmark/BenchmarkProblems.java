@@ -0,0 +1,88 @@
+package ca.lighthouselabs.seatingplansolver.benchmark;
+
+import ca.lighthouselabs.seatingplansolver.Seat;
+import ca.lighthouselabs.seatingplansolver.SeatingPlanProblemGenerator;
+import ca.lighthouselabs.seatingplansolver.SeatingPlanSolution;
+import ca.lighthouselabs.seatingplansolver.SeatingPlanSolutionFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Provides the problems that the benchmarks run against. The bundled 250 guest problem.yml is used
+ * as is, and larger problems are generated by SeatingPlanProblemGenerator from a fixed seed so that
+ * every run of a benchmark measures exactly the same problem.
+ *
+ * @author David VanDusen
+ */
+public class BenchmarkProblems {
+
+    /**
+     * The guest count of the bundled problem.yml, which is loaded instead of being generated.
+     */
+    public static final int BUNDLED_GUEST_COUNT = 250;
+
+    private static final long SEED = 37L;
+
+    private BenchmarkProblems() {
+        // static class
+    }
+
+    /**
+     * Returns a solution for the given number of guests with no seats assigned.
+     *
+     * @param guestCount the number of guests
+     * @return the unsolved solution
+     */
+    public static SeatingPlanSolution createSolution(int guestCount) {
+        try {
+            return SeatingPlanSolutionFactory.createFromYaml(new ByteArrayInputStream(createYaml(guestCount)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a solution for the given number of guests in which every guest has been assigned a
+     * random seat, like a solution in the middle of a local search.
+     *
+     * @param guestCount the number of guests
+     * @return the solution with every guest seated
+     */
+    public static SeatingPlanSolution createSeatedSolution(int guestCount) {
+        SeatingPlanSolution solution = createSolution(guestCount);
+        List<Seat> seats = new ArrayList<>(solution.getSeats());
+        Collections.shuffle(seats, new Random(SEED));
+        Iterator<Seat> seatIterator = seats.iterator();
+        solution.getGuests().forEach(guest -> seatIterator.next().setGuest(guest));
+        return solution;
+    }
+
+    /**
+     * Returns the YAML for the given number of guests, in the format read by
+     * SeatingPlanSolutionFactory.
+     *
+     * @param guestCount the number of guests
+     * @return the YAML document
+     */
+    public static byte[] createYaml(int guestCount) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (guestCount == BUNDLED_GUEST_COUNT) {
+            try (InputStream inputStream = BenchmarkProblems.class.getClassLoader().getResourceAsStream("problem.yml")) {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, length);
+                }
+            }
+        } else {
+            SeatingPlanProblemGenerator generator = new SeatingPlanProblemGenerator();
+            generator.setSeed(SEED);
+            generator.setGuestCount(guestCount);
+            generator.generate(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        }
+        return outputStream.toByteArray();
+    }
+
+}
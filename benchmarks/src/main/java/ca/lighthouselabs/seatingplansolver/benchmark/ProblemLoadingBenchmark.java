@@ -0,0 +1,41 @@
+package ca.lighthouselabs.seatingplansolver.benchmark;
+
+import ca.lighthouselabs.seatingplansolver.SeatingPlanSolution;
+import ca.lighthouselabs.seatingplansolver.SeatingPlanSolutionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to create a solution from YAML, including parsing, building the
+ * guests and seats, and indexing them. The YAML is held in memory so that disk access is not
+ * measured.
+ *
+ * @author David VanDusen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProblemLoadingBenchmark {
+
+    @Param({"250", "1000", "5000", "20000"})
+    public int guestCount;
+
+    private byte[] yaml;
+
+    @Setup
+    public void setUp() throws IOException {
+        yaml = BenchmarkProblems.createYaml(guestCount);
+    }
+
+    @Benchmark
+    public SeatingPlanSolution createFromYaml() {
+        return SeatingPlanSolutionFactory.createFromYaml(new ByteArrayInputStream(yaml));
+    }
+
+}
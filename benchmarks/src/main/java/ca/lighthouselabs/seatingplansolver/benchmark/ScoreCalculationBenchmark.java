@@ -0,0 +1,70 @@
+package ca.lighthouselabs.seatingplansolver.benchmark;
+
+import ca.lighthouselabs.seatingplansolver.*;
+import org.openjdk.jmh.annotations.*;
+import org.optaplanner.core.api.score.Score;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.getSeatsByIndex;
+
+/**
+ * Measures how quickly each score calculator can score a solution. The easy calculator is measured
+ * in full score calculations per second, and the incremental calculator in swap moves per second,
+ * which is the rate at which it lets the solver evaluate moves.
+ *
+ * @author David VanDusen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreCalculationBenchmark {
+
+    @Param({"250", "1000", "5000", "20000"})
+    public int guestCount;
+
+    private SeatingPlanSolution solution;
+
+    private Seat[] seats;
+
+    private SeatingPlanScoreCalculator easyScoreCalculator;
+
+    private SeatingPlanIncrementalScoreCalculator incrementalScoreCalculator;
+
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        solution = BenchmarkProblems.createSeatedSolution(guestCount);
+        seats = getSeatsByIndex(solution.getSeats());
+        easyScoreCalculator = new SeatingPlanScoreCalculator();
+        incrementalScoreCalculator = new SeatingPlanIncrementalScoreCalculator();
+        incrementalScoreCalculator.resetWorkingSolution(solution);
+        random = new Random(0);
+    }
+
+    @Benchmark
+    public Score easyCalculateScore() {
+        return easyScoreCalculator.calculateScore(solution);
+    }
+
+    // Swaps the guests of two random seats the same way the solver would and scores the result.
+    @Benchmark
+    public Score incrementalSwapMove() {
+        Seat seat1 = seats[random.nextInt(seats.length)];
+        Seat seat2 = seats[random.nextInt(seats.length)];
+        Guest guest1 = seat1.getGuest();
+        incrementalScoreCalculator.beforeVariableChanged(seat1, "guest");
+        seat1.setGuest(seat2.getGuest());
+        incrementalScoreCalculator.afterVariableChanged(seat1, "guest");
+        incrementalScoreCalculator.beforeVariableChanged(seat2, "guest");
+        seat2.setGuest(guest1);
+        incrementalScoreCalculator.afterVariableChanged(seat2, "guest");
+        return incrementalScoreCalculator.calculateScore();
+    }
+
+}
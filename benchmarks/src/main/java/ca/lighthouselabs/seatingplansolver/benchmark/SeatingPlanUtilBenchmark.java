@@ -0,0 +1,67 @@
+package ca.lighthouselabs.seatingplansolver.benchmark;
+
+import ca.lighthouselabs.seatingplansolver.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.*;
+
+/**
+ * Measures the SeatingPlanUtil lookups of neighbouring guests and guests at the same table, for
+ * one seat at a time, comparing the methods that return collections to the visitor methods.
+ *
+ * @author David VanDusen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatingPlanUtilBenchmark {
+
+    @Param({"250", "1000", "5000", "20000"})
+    public int guestCount;
+
+    private SeatTopology topology;
+
+    private Seat[] seats;
+
+    // Each invocation looks up the next seat so that every seat is visited in turn
+    private int nextSeat;
+
+    @Setup
+    public void setUp() {
+        SeatingPlanSolution solution = BenchmarkProblems.createSeatedSolution(guestCount);
+        topology = solution.getSeatTopology();
+        seats = getSeatsByIndex(solution.getSeats());
+    }
+
+    private int nextSeat() {
+        if (++nextSeat == seats.length) nextSeat = 0;
+        return nextSeat;
+    }
+
+    @Benchmark
+    public Collection<Guest> getNeighbouringGuestsCollection() {
+        return getNeighbouringGuests(seats[nextSeat()]);
+    }
+
+    @Benchmark
+    public int visitNeighbouringGuestsVisitor() {
+        return visitNeighbouringGuests(topology, seats, nextSeat(), Guest::getIndex);
+    }
+
+    @Benchmark
+    public Collection<Guest> getGuestsAtTableCollection() {
+        return getGuestsAtTable(seats[nextSeat()]);
+    }
+
+    @Benchmark
+    public int visitGuestsAtTableVisitor() {
+        return visitGuestsAtTable(topology, seats, nextSeat(), Guest::getIndex);
+    }
+
+}
@@ -0,0 +1,72 @@
+package ca.lighthouselabs.seatingplansolver.benchmark;
+
+import ca.lighthouselabs.seatingplansolver.SeatingPlanSolution;
+import org.openjdk.jmh.annotations.*;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the solver configured by solver.xml for a fixed amount of time, so that the best score it
+ * reaches and the rate at which it calculates scores can be compared between changes. Both are
+ * printed after each solve, because JMH itself only measures the time spent.
+ *
+ * @author David VanDusen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SolveBenchmark {
+
+    @Param({"250", "1000", "5000", "20000"})
+    public int guestCount;
+
+    @Param({"30"})
+    public long secondsSpentLimit;
+
+    @Param({"solver.xml"})
+    public String solverConfig;
+
+    private SolverFactory solverFactory;
+
+    private SeatingPlanSolution problem;
+
+    private Solver solver;
+
+    @Setup(Level.Trial)
+    public void setUpSolverFactory() {
+        solverFactory = SolverFactory.createFromXmlResource(solverConfig);
+        // Replace the configured termination with the fixed duration of the benchmark
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setSecondsSpentLimit(secondsSpentLimit);
+        solverFactory.getSolverConfig().setTerminationConfig(terminationConfig);
+    }
+
+    // Each solve starts from a new unsolved problem
+    @Setup(Level.Invocation)
+    public void setUpSolve() {
+        problem = BenchmarkProblems.createSolution(guestCount);
+        solver = solverFactory.buildSolver();
+    }
+
+    @Benchmark
+    public SeatingPlanSolution solve() {
+        solver.solve(problem);
+        return (SeatingPlanSolution) solver.getBestSolution();
+    }
+
+    @TearDown(Level.Invocation)
+    public void printSolveStatistics() {
+        long calculateCount = ((DefaultSolver) solver).getSolverScope().getCalculateCount();
+        long millisSpent = Math.max(1L, solver.getTimeMillisSpent());
+        System.out.println("best score (" + solver.getBestSolution().getScore()
+                + "), score calculations per second (" + calculateCount * 1000L / millisSpent + ")");
+    }
+
+}
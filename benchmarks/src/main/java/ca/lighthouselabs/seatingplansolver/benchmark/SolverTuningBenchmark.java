@@ -0,0 +1,86 @@
+package ca.lighthouselabs.seatingplansolver.benchmark;
+
+import ca.lighthouselabs.seatingplansolver.SeatingPlanSolution;
+import com.thoughtworks.xstream.XStream;
+import org.optaplanner.benchmark.api.PlannerBenchmark;
+import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs OptaPlanner's benchmarker with variations of solver.xml, which compare construction
+ * heuristics, local search acceptors and forager sizes on problems of several sizes. The
+ * benchmarker writes a report with each variation's best score, charts of its best score and score
+ * calculation speed over time, and the same statistics as CSV files.
+ *
+ * @author David VanDusen
+ */
+// Unlike the JMH benchmarks, which measure how long code takes, this measures how good a solution
+// each configuration finds in the same amount of time, which is what decides how the solver should
+// be configured. The variations are in solverTuningBenchmarkConfig.xml.ftl, a Freemarker template
+// so that the moves of solver.xml are written out once and each variation only lists what it
+// changes.
+//
+// The benchmarker reads its problems from files, so the generated problems that the other
+// benchmarks use are written to the problem files that the configuration lists, in the XStream
+// format that the benchmarker reads.
+public class SolverTuningBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SolverTuningBenchmark.class);
+
+    private static final String BENCHMARK_CONFIG = "solverTuningBenchmarkConfig.xml.ftl";
+
+    // The guest count of a problem file is the number at the end of its name
+    private static final Pattern PROBLEM_FILE_NAME = Pattern.compile(".*-(\\d+)\\.xml");
+
+    private SolverTuningBenchmark() {
+        // static class
+    }
+
+    /**
+     * Runs the benchmark and writes its report to the configured benchmark directory.
+     *
+     * @param args 0 - a benchmark configuration template resource (optional, default
+     *             "solverTuningBenchmarkConfig.xml.ftl")
+     */
+    public static void main(String[] args) throws IOException {
+        String benchmarkConfig = args.length > 0 ? args[0] : BENCHMARK_CONFIG;
+        LOG.info("Building benchmark from template (" + benchmarkConfig + ").");
+        PlannerBenchmarkFactory benchmarkFactory = PlannerBenchmarkFactory.createFromFreemarkerXmlResource(benchmarkConfig);
+        for (File problemFile : benchmarkFactory.getPlannerBenchmarkConfig().getInheritedSolverBenchmarkConfig()
+                .getProblemBenchmarksConfig().getInputSolutionFileList()) {
+            if (!problemFile.exists()) writeProblemFile(problemFile);
+        }
+        PlannerBenchmark benchmark = benchmarkFactory.buildPlannerBenchmark();
+        benchmark.benchmark();
+    }
+
+    // Writes the generated problem with the guest count in the file's name.
+    private static void writeProblemFile(File problemFile) throws IOException {
+        Matcher matcher = PROBLEM_FILE_NAME.matcher(problemFile.getName());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("problem file (" + problemFile + ") doesn't exist and has no guest count in its name");
+        }
+        int guestCount = Integer.parseInt(matcher.group(1));
+        LOG.info("Writing a problem with (" + guestCount + ") guests to (" + problemFile + ").");
+        SeatingPlanSolution problem = BenchmarkProblems.createSolution(guestCount);
+        // The same XStream settings as the benchmarker uses to read the file back
+        XStream xStream = new XStream();
+        xStream.setMode(XStream.ID_REFERENCES);
+        xStream.processAnnotations(SeatingPlanSolution.class);
+        if (problemFile.getParentFile() != null) Files.createDirectories(problemFile.getParentFile().toPath());
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(problemFile.toPath()), StandardCharsets.UTF_8)) {
+            xStream.toXML(problem, writer);
+        }
+    }
+
+}
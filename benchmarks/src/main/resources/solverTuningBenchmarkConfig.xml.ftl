@@ -0,0 +1,165 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<#-- Variations of solver.xml for OptaPlanner's benchmarker to compare, each changing one thing:
+     the construction heuristic, the local search acceptor or the number of accepted moves per
+     step. Every variation solves every problem for the same time, one solve after the other. -->
+<#macro tableOrderingPhase>
+    <customPhase>
+      <customPhaseCommandClass>ca.lighthouselabs.seatingplansolver.SeatingPlanTableOrderingPhase</customPhaseCommandClass>
+    </customPhase>
+</#macro>
+<#macro initializerPhases>
+    <customPhase>
+      <customPhaseCommandClass>ca.lighthouselabs.seatingplansolver.SeatingPlanInitializer</customPhaseCommandClass>
+    </customPhase>
+    <@tableOrderingPhase/>
+</#macro>
+<#-- The moves of solver.xml only rearrange guests who are already seated. A construction heuristic
+     can leave guests unseated or seat them twice, which only a change move can fix, so the
+     variations that compare construction heuristics add change moves to the local search. -->
+<#macro localSearch acceptedCountLimit changeMoves=false>
+    <localSearch>
+      <unionMoveSelector>
+        <moveIteratorFactory>
+          <fixedProbabilityWeight>4.0</fixedProbabilityWeight>
+          <moveIteratorFactoryClass>ca.lighthouselabs.seatingplansolver.GuestSwapMoveIteratorFactory</moveIteratorFactoryClass>
+        </moveIteratorFactory>
+        <moveIteratorFactory>
+          <fixedProbabilityWeight>1.0</fixedProbabilityWeight>
+          <moveIteratorFactoryClass>ca.lighthouselabs.seatingplansolver.AdjacentPairSwapMoveIteratorFactory</moveIteratorFactoryClass>
+        </moveIteratorFactory>
+        <moveIteratorFactory>
+          <fixedProbabilityWeight>1.0</fixedProbabilityWeight>
+          <moveIteratorFactoryClass>ca.lighthouselabs.seatingplansolver.TableRotationMoveIteratorFactory</moveIteratorFactoryClass>
+        </moveIteratorFactory>
+        <moveIteratorFactory>
+          <fixedProbabilityWeight>0.2</fixedProbabilityWeight>
+          <moveIteratorFactoryClass>ca.lighthouselabs.seatingplansolver.SameTableGroupMoveIteratorFactory</moveIteratorFactoryClass>
+        </moveIteratorFactory>
+        <moveIteratorFactory>
+          <fixedProbabilityWeight>4.0</fixedProbabilityWeight>
+          <moveIteratorFactoryClass>ca.lighthouselabs.seatingplansolver.NearbyGuestMoveIteratorFactory</moveIteratorFactoryClass>
+        </moveIteratorFactory>
+        <#if changeMoves>
+        <changeMoveSelector>
+          <fixedProbabilityWeight>4.0</fixedProbabilityWeight>
+        </changeMoveSelector>
+        </#if>
+      </unionMoveSelector>
+      <acceptor>
+        <#nested>
+      </acceptor>
+      <forager>
+        <acceptedCountLimit>${acceptedCountLimit?c}</acceptedCountLimit>
+      </forager>
+    </localSearch>
+</#macro>
+<plannerBenchmark>
+  <benchmarkDirectory>local/tuning</benchmarkDirectory>
+  <!-- Lets the JIT compiler do its work before anything is measured -->
+  <warmUpSecondsSpentLimit>30</warmUpSecondsSpentLimit>
+
+  <inheritedSolverBenchmark>
+    <!-- SolverTuningBenchmark generates each of these files from the guest count in its name the
+         first time it is run -->
+    <problemBenchmarks>
+      <xStreamAnnotatedClass>ca.lighthouselabs.seatingplansolver.SeatingPlanSolution</xStreamAnnotatedClass>
+      <#list [250, 1000, 5000] as guestCount>
+      <inputSolutionFile>local/tuning/problems/seating-plan-${guestCount?c}.xml</inputSolutionFile>
+      </#list>
+      <problemStatisticType>BEST_SCORE</problemStatisticType>
+      <problemStatisticType>CALCULATE_COUNT_PER_SECOND</problemStatisticType>
+    </problemBenchmarks>
+    <solver>
+      <solutionClass>ca.lighthouselabs.seatingplansolver.SeatingPlanSolution</solutionClass>
+      <entityClass>ca.lighthouselabs.seatingplansolver.Seat</entityClass>
+      <scoreDirectorFactory>
+        <scoreDefinitionType>HARD_SOFT</scoreDefinitionType>
+        <incrementalScoreCalculatorClass>ca.lighthouselabs.seatingplansolver.SeatingPlanIncrementalScoreCalculator</incrementalScoreCalculatorClass>
+      </scoreDirectorFactory>
+      <termination>
+        <secondsSpentLimit>60</secondsSpentLimit>
+      </termination>
+    </solver>
+  </inheritedSolverBenchmark>
+
+  <solverBenchmark>
+    <name>baseline</name>
+    <solver>
+      <@initializerPhases/>
+      <@localSearch acceptedCountLimit=1000>
+        <entityTabuSize>7</entityTabuSize>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+
+  <#-- The construction heuristics are compared with SeatingPlanInitializer when the local search
+       has the same change moves as theirs -->
+  <solverBenchmark>
+    <name>initializer-change-moves</name>
+    <solver>
+      <@initializerPhases/>
+      <@localSearch acceptedCountLimit=1000 changeMoves=true>
+        <entityTabuSize>7</entityTabuSize>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+  <#list ["FIRST_FIT", "FIRST_FIT_DECREASING", "WEAKEST_FIT", "STRONGEST_FIT"] as constructionHeuristicType>
+  <solverBenchmark>
+    <name>${constructionHeuristicType?lower_case?replace("_", "-")}-change-moves</name>
+    <solver>
+      <constructionHeuristic>
+        <constructionHeuristicType>${constructionHeuristicType}</constructionHeuristicType>
+      </constructionHeuristic>
+      <@tableOrderingPhase/>
+      <@localSearch acceptedCountLimit=1000 changeMoves=true>
+        <entityTabuSize>7</entityTabuSize>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+  </#list>
+
+  <#list [3, 15] as entityTabuSize>
+  <solverBenchmark>
+    <name>tabu-${entityTabuSize?c}-accepted-1000</name>
+    <solver>
+      <@initializerPhases/>
+      <@localSearch acceptedCountLimit=1000>
+        <entityTabuSize>${entityTabuSize?c}</entityTabuSize>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+  </#list>
+  <#list [100, 4000] as acceptedCountLimit>
+  <solverBenchmark>
+    <name>tabu-7-accepted-${acceptedCountLimit?c}</name>
+    <solver>
+      <@initializerPhases/>
+      <@localSearch acceptedCountLimit=acceptedCountLimit>
+        <entityTabuSize>7</entityTabuSize>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+  </#list>
+  <#list [400, 2000] as lateAcceptanceSize>
+  <solverBenchmark>
+    <name>late-acceptance-${lateAcceptanceSize?c}-accepted-1</name>
+    <solver>
+      <@initializerPhases/>
+      <@localSearch acceptedCountLimit=1>
+        <lateAcceptanceSize>${lateAcceptanceSize?c}</lateAcceptanceSize>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+  </#list>
+  <#list ["0hard/2soft", "0hard/10soft"] as startingTemperature>
+  <solverBenchmark>
+    <name>simulated-annealing-${startingTemperature?replace("/", "-")}-accepted-1</name>
+    <solver>
+      <@initializerPhases/>
+      <@localSearch acceptedCountLimit=1>
+        <simulatedAnnealingStartingTemperature>${startingTemperature}</simulatedAnnealingStartingTemperature>
+      </@localSearch>
+    </solver>
+  </solverBenchmark>
+  </#list>
+</plannerBenchmark>
@@ -0,0 +1,42 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Creates moves that swap two pairs of guests sitting beside each other, keeping each pair
+ * together. A couple who want to sit beside each other can move to another table in one move,
+ * instead of first being split up by a move that the score would punish.
+ *
+ * @author David VanDusen
+ */
+public class AdjacentPairSwapMoveIteratorFactory extends SeatMoveIteratorFactory {
+
+    // How many times to look for two pairs that do not overlap before settling for a simple swap
+    private static final int MAX_ATTEMPTS = 10;
+
+    @Override
+    protected Supplier<Move> createMoveSupplier(SeatingPlanSolution solution, Seat[] seats, Random random) {
+        SeatTopology topology = solution.getSeatTopology();
+        return () -> {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                int seat = random.nextInt(seats.length);
+                int rightSeat = topology.getRightSeat(seat);
+                int otherSeat = random.nextInt(seats.length);
+                int otherRightSeat = topology.getRightSeat(otherSeat);
+                if (rightSeat == SeatTopology.NO_SEAT || otherRightSeat == SeatTopology.NO_SEAT) continue;
+                // The two pairs must be four different seats
+                if (seat == otherSeat || seat == otherRightSeat || rightSeat == otherSeat || rightSeat == otherRightSeat) continue;
+                return new SeatReassignmentMove(
+                        new Seat[]{seats[seat], seats[rightSeat], seats[otherSeat], seats[otherRightSeat]},
+                        new Guest[]{seats[otherSeat].getGuest(), seats[otherRightSeat].getGuest(),
+                                seats[seat].getGuest(), seats[rightSeat].getGuest()});
+            }
+            int seat = random.nextInt(seats.length);
+            return SeatReassignmentMove.createSwap(seats[seat], seats[(seat + 1 + random.nextInt(seats.length - 1)) % seats.length]);
+        };
+    }
+
+}
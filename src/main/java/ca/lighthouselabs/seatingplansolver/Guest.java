@@ -22,6 +22,10 @@ public class Guest {
 
     private Integer id;
 
+    // The position of this guest in the guest list, which is used to look up its preferences in a
+    // GuestPreferenceMatrix.
+    private int index;
+
     private String firstName;
 
     private String lastName;
@@ -44,6 +48,14 @@ public class Guest {
         this.id = id;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public String getFirstName() {
         return firstName;
     }
@@ -0,0 +1,70 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.variable.AnchorShadowVariable;
+import org.optaplanner.core.api.domain.variable.PlanningVariable;
+import org.optaplanner.core.api.domain.variable.PlanningVariableGraphType;
+
+/**
+ * Represents where a guest sits in the chained seating plan model: at a table, after another guest
+ * or first in line. Every guest has exactly one placement, so every guest is always seated exactly
+ * once.
+ *
+ * @author David VanDusen
+ */
+// Unlike the Seat entity, whose guest can be any guest including one who already has a seat, a
+// placement can only be moved to another position in the chains. There is no way to express a
+// guest being seated twice or not at all, so the score does not need to check for it.
+@PlanningEntity
+public class GuestPlacement implements GuestStandstill {
+
+    private Guest guest;
+
+    private GuestStandstill previousStandstill;
+
+    private TableAnchor table;
+
+    private GuestPlacement nextPlacement;
+
+    public Guest getGuest() {
+        return guest;
+    }
+
+    public void setGuest(Guest guest) {
+        this.guest = guest;
+    }
+
+    // The following @PlanningVariable annotation indicates that this property is the link to the
+    // previous standstill in a chain. Its values are either a table, which starts a chain, or
+    // another placement, and OptaPlanner makes sure that the chains never form a loop.
+    @PlanningVariable(valueRangeProviderRefs = {"tables", "placements"}, graphType = PlanningVariableGraphType.CHAINED)
+    public GuestStandstill getPreviousStandstill() {
+        return previousStandstill;
+    }
+
+    public void setPreviousStandstill(GuestStandstill previousStandstill) {
+        this.previousStandstill = previousStandstill;
+    }
+
+    // The following @AnchorShadowVariable annotation indicates that OptaPlanner keeps this property
+    // up to date as the table at the start of the chain that this placement is in.
+    @AnchorShadowVariable(sourceVariableName = "previousStandstill")
+    public TableAnchor getTable() {
+        return table;
+    }
+
+    public void setTable(TableAnchor table) {
+        this.table = table;
+    }
+
+    @Override
+    public GuestPlacement getNextPlacement() {
+        return nextPlacement;
+    }
+
+    @Override
+    public void setNextPlacement(GuestPlacement nextPlacement) {
+        this.nextPlacement = nextPlacement;
+    }
+
+}
@@ -0,0 +1,214 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Holds the seating preferences of every guest as weights between pairs of guest indexes. A
+ * positive weight means that a guest wants to be seated beside, or at the same table as, another
+ * guest, and a negative weight means that they do not. Once created, looking up a weight only reads
+ * from arrays, so it can be done for every seat on every move without creating any objects.
+ *
+ * @author David VanDusen
+ */
+// Most guests only have preferences about a few other guests, so storing a weight for every pair of
+// guests would mostly store zeroes and would not fit in memory for very large events. Instead, the
+// guests that each guest has preferences about are stored in sorted order in one shared array, and
+// offsets into that array mark where the related guests of each guest start and end. This is known
+// as a compressed sparse row layout.
+public class GuestPreferenceMatrix {
+
+    // relatedGuests[offsets[i]] to relatedGuests[offsets[i + 1] - 1] are the sorted indexes of the
+    // guests that the guest with index i has preferences about
+    private final int[] offsets;
+
+    private final int[] relatedGuests;
+
+    // The weights of each preference, at the same position as the related guest in relatedGuests
+    private final int[] besideWeights;
+
+    private final int[] sameTableWeights;
+
+    private GuestPreferenceMatrix(int[] offsets, int[] relatedGuests, int[] besideWeights, int[] sameTableWeights) {
+        this.offsets = offsets;
+        this.relatedGuests = relatedGuests;
+        this.besideWeights = besideWeights;
+        this.sameTableWeights = sameTableWeights;
+    }
+
+    /**
+     * Creates the preference matrix for the given guests. Each guest's index is set to its
+     * position in the list, and the matrix is indexed in the same way.
+     *
+     * @param guests all the guests at the event
+     * @return the preference matrix for the guests
+     */
+    public static GuestPreferenceMatrix create(List<Guest> guests) {
+        for (int i = 0; i < guests.size(); i++) {
+            guests.get(i).setIndex(i);
+        }
+        return create(guests, Guest::getIndex);
+    }
+
+    /**
+     * Creates the preference matrix for the given guests, indexed by their position in the list,
+     * without changing the guests' own indexes. This is for guests that are shared with another
+     * solution whose preference matrix uses their current indexes.
+     *
+     * @param guests all the guests at the event
+     * @return the preference matrix for the guests
+     */
+    public static GuestPreferenceMatrix createWithoutIndexing(List<Guest> guests) {
+        Map<Guest, Integer> positions = new IdentityHashMap<>(guests.size() * 2);
+        for (int i = 0; i < guests.size(); i++) {
+            positions.put(guests.get(i), i);
+        }
+        return create(guests, guest -> positions.getOrDefault(guest, -1));
+    }
+
+    // Builds the matrix for the guests in the list, where the guest at position i has index i and
+    // indexOf gives the index of any guest, or -1 for one that is not on the guest list.
+    private static GuestPreferenceMatrix create(List<Guest> guests, ToIntFunction<Guest> indexOf) {
+        int[] offsets = new int[guests.size() + 1];
+        int[][] relatedGuestsByGuest = new int[guests.size()][];
+        for (int i = 0; i < guests.size(); i++) {
+            relatedGuestsByGuest[i] = getRelatedGuests(guests.get(i), indexOf);
+            offsets[i + 1] = offsets[i] + relatedGuestsByGuest[i].length;
+        }
+        int[] relatedGuests = new int[offsets[guests.size()]];
+        int[] besideWeights = new int[relatedGuests.length];
+        int[] sameTableWeights = new int[relatedGuests.length];
+        for (int i = 0; i < guests.size(); i++) {
+            Guest guest = guests.get(i);
+            System.arraycopy(relatedGuestsByGuest[i], 0, relatedGuests, offsets[i], relatedGuestsByGuest[i].length);
+            for (int position = offsets[i]; position < offsets[i + 1]; position++) {
+                Guest relatedGuest = guests.get(relatedGuests[position]);
+                besideWeights[position] = getWeight(guest.getSeatBeside(), guest.getDoNotSeatBeside(), relatedGuest);
+                sameTableWeights[position] = getWeight(guest.getSeatAtSameTable(), guest.getDoNotSeatAtSameTable(), relatedGuest);
+            }
+        }
+        return new GuestPreferenceMatrix(offsets, relatedGuests, besideWeights, sameTableWeights);
+    }
+
+    /**
+     * Returns the weight of a guest's preference about being seated beside another guest.
+     *
+     * @param guestIndex the index of the guest whose preference it is
+     * @param otherGuestIndex the index of the guest the preference is about
+     * @return the weight of the preference, or 0 if there is no preference
+     */
+    public int getBesideWeight(int guestIndex, int otherGuestIndex) {
+        int position = findPosition(guestIndex, otherGuestIndex);
+        return position < 0 ? 0 : besideWeights[position];
+    }
+
+    /**
+     * Returns the weight of a guest's preference about being seated at the same table as another
+     * guest.
+     *
+     * @param guestIndex the index of the guest whose preference it is
+     * @param otherGuestIndex the index of the guest the preference is about
+     * @return the weight of the preference, or 0 if there is no preference
+     */
+    public int getSameTableWeight(int guestIndex, int otherGuestIndex) {
+        int position = findPosition(guestIndex, otherGuestIndex);
+        return position < 0 ? 0 : sameTableWeights[position];
+    }
+
+    /**
+     * Returns the number of guests indexed by this matrix.
+     *
+     * @return the number of guests
+     */
+    public int getGuestCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the first position of the guests that a guest has preferences about, to be used
+     * with the methods that take a position.
+     *
+     * @param guestIndex the index of the guest
+     * @return the position of the first guest that the guest has preferences about
+     */
+    public int getRelatedGuestStart(int guestIndex) {
+        return offsets[guestIndex];
+    }
+
+    /**
+     * Returns the position after the last of the guests that a guest has preferences about.
+     *
+     * @param guestIndex the index of the guest
+     * @return the position after the last guest that the guest has preferences about
+     */
+    public int getRelatedGuestEnd(int guestIndex) {
+        return offsets[guestIndex + 1];
+    }
+
+    /**
+     * Returns the guest at a position between the start and end of a guest's related guests.
+     *
+     * @param position the position of the related guest
+     * @return the index of the related guest
+     */
+    public int getRelatedGuestAtPosition(int position) {
+        return relatedGuests[position];
+    }
+
+    /**
+     * Returns the weight of the preference about being seated beside the related guest at a
+     * position.
+     *
+     * @param position the position of the related guest
+     * @return the weight of the preference
+     */
+    public int getBesideWeightAtPosition(int position) {
+        return besideWeights[position];
+    }
+
+    /**
+     * Returns the weight of the preference about being seated at the same table as the related
+     * guest at a position.
+     *
+     * @param position the position of the related guest
+     * @return the weight of the preference
+     */
+    public int getSameTableWeightAtPosition(int position) {
+        return sameTableWeights[position];
+    }
+
+    // Binary searches the sorted related guests of a guest, which returns a negative number when
+    // the other guest is not one of them.
+    private int findPosition(int guestIndex, int otherGuestIndex) {
+        return Arrays.binarySearch(relatedGuests, offsets[guestIndex], offsets[guestIndex + 1], otherGuestIndex);
+    }
+
+    // Collects the sorted and distinct indexes of all the guests in any of a guest's preferences.
+    private static int[] getRelatedGuests(Guest guest, ToIntFunction<Guest> indexOf) {
+        return Stream.of(guest.getSeatBeside(), guest.getDoNotSeatBeside(),
+                guest.getSeatAtSameTable(), guest.getDoNotSeatAtSameTable())
+                .flatMap(Set::stream)
+                // Preferences about guests that are not on the guest list are ignored
+                .filter(relatedGuest -> relatedGuest != null)
+                .mapToInt(indexOf)
+                .filter(relatedGuest -> relatedGuest >= 0)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    // A guest that is in both the wanted and unwanted preferences cancels out, the same way that
+    // SeatingPlanScoreCalculator adds and removes a point for them.
+    private static int getWeight(Set<Guest> wanted, Set<Guest> unwanted, Guest relatedGuest) {
+        int weight = 0;
+        if (wanted.contains(relatedGuest)) weight++;
+        if (unwanted.contains(relatedGuest)) weight--;
+        return weight;
+    }
+
+}
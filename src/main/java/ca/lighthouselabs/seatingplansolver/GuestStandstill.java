@@ -0,0 +1,27 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.variable.InverseRelationShadowVariable;
+
+/**
+ * Something that a guest can be placed after in the chained seating plan model: either a table, in
+ * which case the guest sits in the table's first seat, or another guest's placement, in which case
+ * the guest sits in the next seat after them.
+ *
+ * @author David VanDusen
+ */
+// In a chained model each planning entity points at the one before it, and the chain always starts
+// at an anchor, which here is a table. Both tables and placements implement this interface so that
+// either can be the previous link in a chain.
+@PlanningEntity
+public interface GuestStandstill {
+
+    // The following @InverseRelationShadowVariable annotation indicates that OptaPlanner keeps this
+    // property up to date as the placement that points back at this standstill, so that a chain
+    // can be followed forwards from its table.
+    @InverseRelationShadowVariable(sourceVariableName = "previousStandstill")
+    GuestPlacement getNextPlacement();
+
+    void setNextPlacement(GuestPlacement nextPlacement);
+
+}
@@ -0,0 +1,33 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.apache.commons.lang.builder.CompareToBuilder;
+
+import java.util.Comparator;
+
+/**
+ * Compares guests by how strong a choice they are for a seat, for construction heuristics that
+ * try the weakest or the strongest guests first. A guest with fewer seating preferences is
+ * stronger, because they fit in beside more of the other guests. Leaving a seat empty, which is
+ * the null guest, is the weakest choice of all.
+ *
+ * @author David VanDusen
+ */
+// OptaPlanner's weakest and strongest fit construction heuristics need to know how to sort the
+// planning values. The id only makes the order the same every time.
+public class GuestStrengthComparator implements Comparator<Guest> {
+
+    @Override
+    public int compare(Guest guest1, Guest guest2) {
+        if (guest1 == null || guest2 == null) return guest1 == guest2 ? 0 : guest1 == null ? -1 : 1;
+        return new CompareToBuilder()
+                .append(getPreferenceCount(guest2), getPreferenceCount(guest1))
+                .append(guest1.getId(), guest2.getId())
+                .toComparison();
+    }
+
+    private static int getPreferenceCount(Guest guest) {
+        return guest.getSeatAtSameTable().size() + guest.getSeatBeside().size()
+                + guest.getDoNotSeatAtSameTable().size() + guest.getDoNotSeatBeside().size();
+    }
+
+}
@@ -0,0 +1,27 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Creates moves that swap the guests in two random seats, which may be at different tables. A
+ * guest swapped with an empty seat moves to that seat.
+ *
+ * @author David VanDusen
+ */
+public class GuestSwapMoveIteratorFactory extends SeatMoveIteratorFactory {
+
+    @Override
+    protected Supplier<Move> createMoveSupplier(SeatingPlanSolution solution, Seat[] seats, Random random) {
+        return () -> {
+            int seat = random.nextInt(seats.length);
+            // Pick the other seat from all the seats except the first one
+            int otherSeat = random.nextInt(seats.length - 1);
+            if (otherSeat >= seat) otherSeat++;
+            return SeatReassignmentMove.createSwap(seats[seat], seats[otherSeat]);
+        };
+    }
+
+}
@@ -0,0 +1,294 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Reads guests from a YAML (or JSON) document containing a list of guests, each with an id,
+ * gender, first and last name, and lists of the ids of the guests in each of their preferences.
+ * The list can instead be the "guests" entry of a mapping that also has a "venue" entry, which
+ * lists the tables at the event, each with a kind, a number of seats, and optionally a count of
+ * how many tables like it there are. The document is read in a single pass, and guests are created
+ * as soon as they are read, without first building a generic representation of the whole document.
+ *
+ * @author David VanDusen
+ */
+// Instead of loading the whole document into Lists and Maps of generic objects, the YAML parser is
+// used to produce a stream of events, such as "a mapping started" or "a scalar value was read",
+// which are handled one at a time. This is known as event-based or streaming parsing. It uses much
+// less memory for large documents because only the guest currently being read is held in a
+// temporary form.
+//
+// A guest's preferences can refer to guests that appear later in the document. When that happens,
+// the referenced Guest object is created straight away with only its id, and the rest of its
+// properties are set once its own entry is read.
+class GuestYamlReader {
+
+    private final Map<Integer, Guest> guestsById = new HashMap<>();
+
+    // The guests in the order that their entries appear in the document
+    private final List<Guest> guests = new ArrayList<>();
+
+    // The ids of guests that have been referred to but whose entries haven't been read yet
+    private final Set<Integer> undefinedIds = new HashSet<>();
+
+    // The venue, if the document has one
+    private Venue venue;
+
+    private Iterator<Event> events;
+
+    // The properties of the guest entry that is currently being read
+    private Integer id;
+    private String firstName;
+    private String lastName;
+    private Guest.Gender gender;
+    private int[] seatAtSameTable;
+    private int[] seatBeside;
+    private int[] doNotSeatAtSameTable;
+    private int[] doNotSeatBeside;
+
+    private GuestYamlReader() {
+        // instances are only used by the static read method
+    }
+
+    /**
+     * Reads the guests, and the venue if there is one, from the given reader.
+     *
+     * @param reader the reader to read the YAML document from, which is not closed
+     * @return the finished reader, from which the guests and venue can be got
+     */
+    static GuestYamlReader read(Reader reader) {
+        GuestYamlReader guestYamlReader = new GuestYamlReader();
+        guestYamlReader.events = new Yaml().parse(reader).iterator();
+        guestYamlReader.readDocument();
+        return guestYamlReader;
+    }
+
+    /**
+     * Returns the guests that were read.
+     *
+     * @return the guests in the order they appear in the document
+     */
+    List<Guest> getGuests() {
+        return guests;
+    }
+
+    /**
+     * Returns the venue that was read.
+     *
+     * @return the venue, or null if the document only has a list of guests
+     */
+    Venue getVenue() {
+        return venue;
+    }
+
+    private void readDocument() {
+        // Skip the stream and document start events up to the list of guests or the root mapping
+        Event event = next();
+        while (event.is(Event.ID.StreamStart) || event.is(Event.ID.DocumentStart)) {
+            event = next();
+        }
+        if (event.is(Event.ID.MappingStart)) {
+            boolean hasGuests = false;
+            for (event = next(); !event.is(Event.ID.MappingEnd); event = next()) {
+                String key = scalar(event);
+                switch (key) {
+                    case "guests":
+                        readGuests(next());
+                        hasGuests = true;
+                        break;
+                    case "venue":
+                        expect(next(), Event.ID.MappingStart);
+                        readVenue();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown problem property (" + key + ")");
+                }
+            }
+            if (!hasGuests) throw new IllegalArgumentException("problem without a list of guests");
+        } else {
+            readGuests(event);
+        }
+        if (!undefinedIds.isEmpty()) {
+            throw new IllegalArgumentException("preferences refer to guest ids that are not in the guest list " + undefinedIds);
+        }
+    }
+
+    private void readGuests(Event event) {
+        expect(event, Event.ID.SequenceStart);
+        for (event = next(); !event.is(Event.ID.SequenceEnd); event = next()) {
+            expect(event, Event.ID.MappingStart);
+            readGuest();
+        }
+    }
+
+    // Reads the keys and values of the venue up to the end of its mapping.
+    private void readVenue() {
+        venue = new Venue();
+        for (Event event = next(); !event.is(Event.ID.MappingEnd); event = next()) {
+            String key = scalar(event);
+            if (!key.equals("tables")) throw new IllegalArgumentException("unknown venue property (" + key + ")");
+            expect(next(), Event.ID.SequenceStart);
+            for (event = next(); !event.is(Event.ID.SequenceEnd); event = next()) {
+                expect(event, Event.ID.MappingStart);
+                readTables();
+            }
+        }
+    }
+
+    // Reads the keys and values of a table entry up to the end of its mapping, then adds as many
+    // tables as its count to the venue.
+    private void readTables() {
+        TableLayout.Kind kind = TableLayout.Kind.ROUND;
+        int seatCount = Venue.DEFAULT_TABLE_SIZE;
+        int count = 1;
+        for (Event event = next(); !event.is(Event.ID.MappingEnd); event = next()) {
+            String key = scalar(event);
+            switch (key) {
+                case "kind":
+                    kind = TableLayout.Kind.valueOf(scalar(next()));
+                    break;
+                case "seats":
+                    seatCount = Integer.parseInt(scalar(next()));
+                    break;
+                case "count":
+                    count = Integer.parseInt(scalar(next()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown table property (" + key + ")");
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            venue.getTables().add(new TableLayout(kind, seatCount));
+        }
+    }
+
+    // Reads the keys and values of a guest entry up to the end of its mapping, then creates the guest.
+    private void readGuest() {
+        id = null;
+        firstName = null;
+        lastName = null;
+        gender = null;
+        seatAtSameTable = seatBeside = doNotSeatAtSameTable = doNotSeatBeside = new int[0];
+        for (Event event = next(); !event.is(Event.ID.MappingEnd); event = next()) {
+            String key = scalar(event);
+            switch (key) {
+                case "id":
+                    id = Integer.valueOf(scalar(next()));
+                    break;
+                case "firstName":
+                    firstName = scalar(next());
+                    break;
+                case "lastName":
+                    lastName = scalar(next());
+                    break;
+                case "gender":
+                    gender = Guest.Gender.valueOf(scalar(next()));
+                    break;
+                case "seatAtSameTable":
+                    seatAtSameTable = readIds();
+                    break;
+                case "seatBeside":
+                    seatBeside = readIds();
+                    break;
+                case "doNotSeatAtSameTable":
+                    doNotSeatAtSameTable = readIds();
+                    break;
+                case "doNotSeatBeside":
+                    doNotSeatBeside = readIds();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown guest property (" + key + ")");
+            }
+        }
+        if (id == null) throw new IllegalArgumentException("guest without an id");
+        if (gender == null) throw new IllegalArgumentException("guest (" + id + ") without a gender");
+        if (guestsById.containsKey(id) && !undefinedIds.contains(id)) {
+            throw new IllegalArgumentException("guest id (" + id + ") appears more than once");
+        }
+        Guest guest = getGuest(id);
+        undefinedIds.remove(id);
+        guest.setFirstName(firstName);
+        guest.setLastName(lastName);
+        guest.setGender(gender);
+        guest.setSeatAtSameTable(getGuests(seatAtSameTable));
+        guest.setSeatBeside(getGuests(seatBeside));
+        guest.setDoNotSeatAtSameTable(getGuests(doNotSeatAtSameTable));
+        guest.setDoNotSeatBeside(getGuests(doNotSeatBeside));
+        guests.add(guest);
+    }
+
+    // Reads a list of ids into an array of ints, growing the array as needed. A missing (null)
+    // value is treated the same as an empty list, but any other single value is an error rather
+    // than a preference that is silently dropped.
+    private int[] readIds() {
+        Event event = next();
+        if (event.is(Event.ID.Scalar)) {
+            if (isNull((ScalarEvent) event)) return new int[0];
+            throw new IllegalArgumentException("expected a list of guest ids but found (" + ((ScalarEvent) event).getValue() + ")");
+        }
+        expect(event, Event.ID.SequenceStart);
+        int[] ids = new int[4];
+        int size = 0;
+        for (event = next(); !event.is(Event.ID.SequenceEnd); event = next()) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = Integer.parseInt(scalar(event));
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    private Set<Guest> getGuests(int[] ids) {
+        // Size the set so that it never has to grow
+        Set<Guest> guestSet = new HashSet<>(ids.length * 4 / 3 + 1);
+        for (int guestId : ids) {
+            guestSet.add(getGuest(guestId));
+        }
+        return guestSet;
+    }
+
+    // Returns the guest with the given id, creating it if it hasn't been referred to before.
+    private Guest getGuest(Integer guestId) {
+        return guestsById.computeIfAbsent(guestId, newId -> {
+            Guest guest = new Guest();
+            guest.setId(newId);
+            undefinedIds.add(newId);
+            return guest;
+        });
+    }
+
+    private Event next() {
+        if (!events.hasNext()) throw new IllegalArgumentException("unexpected end of guest data");
+        return events.next();
+    }
+
+    private static String scalar(Event event) {
+        expect(event, Event.ID.Scalar);
+        return ((ScalarEvent) event).getValue();
+    }
+
+    // A null is written as an unquoted null or ~, or as nothing at all.
+    private static boolean isNull(ScalarEvent event) {
+        if (!event.getImplicit().canOmitTagInPlainScalar()) return false;
+        switch (event.getValue()) {
+            case "":
+            case "~":
+            case "null":
+            case "Null":
+            case "NULL":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void expect(Event event, Event.ID id) {
+        if (!event.is(id)) {
+            throw new IllegalArgumentException("expected " + id + " but found " + event + " in guest data");
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.Arrays;
+
+/**
+ * Holds, for every guest, the other guests that they would gain the most soft points from being
+ * seated near, nearest first. Guests who want to sit beside each other are nearer than guests who
+ * only want to sit at the same table, and preferences in both directions between two guests add up.
+ * Guests with no wanted preferences between them are not in each other's lists at all.
+ *
+ * @author David VanDusen
+ */
+// This plays the role of a distance meter for nearby selection: instead of measuring how far apart
+// two guests are, it ranks the guests that each guest should be brought closer to. The preferences
+// never change while solving, so the lists are worked out once and stored in the same compressed
+// sparse row layout as GuestPreferenceMatrix.
+public class NearbyGuestIndex {
+
+    // nearbyGuests[offsets[i]] to nearbyGuests[offsets[i + 1] - 1] are the nearby guests of the
+    // guest with index i, nearest first
+    private final int[] offsets;
+
+    private final int[] nearbyGuests;
+
+    // Whether the guest at the same position in nearbyGuests should be seated beside, rather than
+    // only at the same table as, the guest whose list it is in
+    private final boolean[] beside;
+
+    private NearbyGuestIndex(int[] offsets, int[] nearbyGuests, boolean[] beside) {
+        this.offsets = offsets;
+        this.nearbyGuests = nearbyGuests;
+        this.beside = beside;
+    }
+
+    /**
+     * Creates the nearby guest lists from the preferences in a preference matrix.
+     *
+     * @param preferences the preference matrix of the guests
+     * @return the nearby guest lists of every guest in the matrix
+     */
+    public static NearbyGuestIndex create(GuestPreferenceMatrix preferences) {
+        int guestCount = preferences.getGuestCount();
+        // Every preference is added to the lists of both guests, so count them in both directions
+        int[] counts = new int[guestCount + 1];
+        for (int guest = 0; guest < guestCount; guest++) {
+            counts[guest + 1] += preferences.getRelatedGuestEnd(guest) - preferences.getRelatedGuestStart(guest);
+            for (int position = preferences.getRelatedGuestStart(guest); position < preferences.getRelatedGuestEnd(guest); position++) {
+                counts[preferences.getRelatedGuestAtPosition(position) + 1]++;
+            }
+        }
+        for (int guest = 0; guest < guestCount; guest++) {
+            counts[guest + 1] += counts[guest];
+        }
+        // Each entry packs the other guest's index with the beside and same table weights, so that
+        // sorting a guest's entries brings the two directions of the same preference together
+        long[] entries = new long[counts[guestCount]];
+        int[] nextPositions = Arrays.copyOf(counts, guestCount);
+        for (int guest = 0; guest < guestCount; guest++) {
+            for (int position = preferences.getRelatedGuestStart(guest); position < preferences.getRelatedGuestEnd(guest); position++) {
+                int relatedGuest = preferences.getRelatedGuestAtPosition(position);
+                int besideWeight = preferences.getBesideWeightAtPosition(position);
+                int sameTableWeight = preferences.getSameTableWeightAtPosition(position);
+                entries[nextPositions[guest]++] = packEntry(relatedGuest, besideWeight, sameTableWeight);
+                entries[nextPositions[relatedGuest]++] = packEntry(guest, besideWeight, sameTableWeight);
+            }
+        }
+        int[] offsets = new int[guestCount + 1];
+        int[] nearbyGuests = new int[entries.length];
+        boolean[] beside = new boolean[entries.length];
+        long[] ranked = new long[entries.length];
+        for (int guest = 0; guest < guestCount; guest++) {
+            Arrays.sort(entries, counts[guest], counts[guest + 1]);
+            // Add up the weights of each other guest, and rank them by the most that could be
+            // gained by seating them near this guest
+            int rankedCount = 0;
+            int position = counts[guest];
+            while (position < counts[guest + 1]) {
+                int otherGuest = unpackGuest(entries[position]);
+                int besideWeight = 0;
+                int sameTableWeight = 0;
+                for (; position < counts[guest + 1] && unpackGuest(entries[position]) == otherGuest; position++) {
+                    besideWeight += unpackBesideWeight(entries[position]);
+                    sameTableWeight += unpackSameTableWeight(entries[position]);
+                }
+                if (otherGuest == guest) continue;
+                int gain = Math.max(besideWeight + sameTableWeight, sameTableWeight);
+                if (gain <= 0) continue;
+                // Higher gains sort first, then guests who want to sit beside this guest, then
+                // lower guest indexes. The gain is at most 4, so 8 - gain is always positive.
+                boolean wantsBeside = besideWeight > 0;
+                ranked[rankedCount++] = ((long) (8 - gain) << 33) | ((wantsBeside ? 0L : 1L) << 32) | otherGuest;
+            }
+            Arrays.sort(ranked, 0, rankedCount);
+            offsets[guest + 1] = offsets[guest] + rankedCount;
+            for (int i = 0; i < rankedCount; i++) {
+                nearbyGuests[offsets[guest] + i] = (int) ranked[i];
+                beside[offsets[guest] + i] = ((ranked[i] >>> 32) & 1L) == 0L;
+            }
+        }
+        return new NearbyGuestIndex(offsets, Arrays.copyOf(nearbyGuests, offsets[guestCount]),
+                Arrays.copyOf(beside, offsets[guestCount]));
+    }
+
+    /**
+     * Returns the number of nearby guests that a guest has.
+     *
+     * @param guestIndex the index of the guest
+     * @return the number of guests in the guest's nearby list
+     */
+    public int getNearbyGuestCount(int guestIndex) {
+        return offsets[guestIndex + 1] - offsets[guestIndex];
+    }
+
+    /**
+     * Returns a guest from another guest's nearby list.
+     *
+     * @param guestIndex the index of the guest whose list it is
+     * @param rank the position in the list, where 0 is the nearest guest
+     * @return the index of the nearby guest
+     */
+    public int getNearbyGuest(int guestIndex, int rank) {
+        return nearbyGuests[offsets[guestIndex] + rank];
+    }
+
+    /**
+     * Returns whether a guest from another guest's nearby list should be seated beside them,
+     * rather than only at the same table.
+     *
+     * @param guestIndex the index of the guest whose list it is
+     * @param rank the position in the list, where 0 is the nearest guest
+     * @return true if the guests gain the most from sitting beside each other
+     */
+    public boolean isBeside(int guestIndex, int rank) {
+        return beside[offsets[guestIndex] + rank];
+    }
+
+    // The weights of a single preference are between -1 and 1, so they fit in a few bits each
+    // after being offset to be positive.
+    private static long packEntry(int guest, int besideWeight, int sameTableWeight) {
+        return ((long) guest << 8) | ((besideWeight + 8) << 4) | (sameTableWeight + 8);
+    }
+
+    private static int unpackGuest(long entry) {
+        return (int) (entry >>> 8);
+    }
+
+    private static int unpackBesideWeight(long entry) {
+        return (int) ((entry >>> 4) & 0xF) - 8;
+    }
+
+    private static int unpackSameTableWeight(long entry) {
+        return (int) (entry & 0xF) - 8;
+    }
+
+}
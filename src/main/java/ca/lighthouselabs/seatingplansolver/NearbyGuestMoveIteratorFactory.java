@@ -0,0 +1,97 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.LinearDistributionNearbyRandom;
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyRandom;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Creates moves that bring a random guest closer to one of the guests in their NearbyGuestIndex
+ * list, by swapping them into the seat beside that guest or into another seat at that guest's
+ * table. The nearest guests in the list are picked most often.
+ *
+ * @author David VanDusen
+ */
+// Most of the seats that a random swap picks are at tables where the guest doesn't know anyone, so
+// on events where each guest only has preferences about a few others, nearly every random swap
+// makes the score worse. Picking the destination from the guest's nearby list means most of these
+// moves reunite guests who want to sit together.
+public class NearbyGuestMoveIteratorFactory extends SeatMoveIteratorFactory {
+
+    private static final int NO_SEAT = SeatTopology.NO_SEAT;
+
+    // How many times to look for a seated guest with nearby guests before settling for a simple swap
+    private static final int MAX_ATTEMPTS = 10;
+
+    // Picks the nearest guests most often, but every guest in the list some of the time
+    private static final NearbyRandom NEARBY_RANDOM = new LinearDistributionNearbyRandom(Integer.MAX_VALUE);
+
+    // The nearby guest lists are worked out the first time they are needed, and then reused for
+    // every step of every phase that solves a problem with the same preferences
+    private GuestPreferenceMatrix indexedPreferences;
+
+    private NearbyGuestIndex nearbyGuests;
+
+    @Override
+    protected Supplier<Move> createMoveSupplier(SeatingPlanSolution solution, Seat[] seats, Random random) {
+        SeatTopology topology = solution.getSeatTopology();
+        NearbyGuestIndex nearbyGuests = getNearbyGuests(solution.getGuestPreferenceMatrix());
+        // Find the seat of each guest once for the whole step
+        int[] seatsByGuest = new int[solution.getGuestPreferenceMatrix().getGuestCount()];
+        Arrays.fill(seatsByGuest, NO_SEAT);
+        for (Seat seat : seats) {
+            if (seat.getGuest() != null) seatsByGuest[seat.getGuest().getIndex()] = seat.getId();
+        }
+        return () -> {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                int seat = random.nextInt(seats.length);
+                Guest guest = seats[seat].getGuest();
+                if (guest == null || nearbyGuests.getNearbyGuestCount(guest.getIndex()) == 0) continue;
+                int rank = NEARBY_RANDOM.nextInt(random, nearbyGuests.getNearbyGuestCount(guest.getIndex()));
+                int nearbySeat = seatsByGuest[nearbyGuests.getNearbyGuest(guest.getIndex(), rank)];
+                if (nearbySeat == NO_SEAT) continue;
+                int targetSeat = nearbyGuests.isBeside(guest.getIndex(), rank)
+                        ? getSeatBeside(topology, nearbySeat, random)
+                        : getSeatAtTable(topology, nearbySeat, random);
+                // The guest may already be in the seat that they would be moved to
+                if (targetSeat == NO_SEAT || targetSeat == seat) continue;
+                return SeatReassignmentMove.createSwap(seats[seat], seats[targetSeat]);
+            }
+            // SeatMoveIteratorFactory only asks for moves when there are at least two seats, so
+            // there is always another seat to swap with
+            int seat = random.nextInt(seats.length);
+            return SeatReassignmentMove.createSwap(seats[seat], seats[(seat + 1 + random.nextInt(seats.length - 1)) % seats.length]);
+        };
+    }
+
+    private NearbyGuestIndex getNearbyGuests(GuestPreferenceMatrix preferences) {
+        if (preferences != indexedPreferences) {
+            nearbyGuests = NearbyGuestIndex.create(preferences);
+            indexedPreferences = preferences;
+        }
+        return nearbyGuests;
+    }
+
+    // Returns the seat on a random side of a seat, or the seat on the other side at the end of a
+    // table.
+    private static int getSeatBeside(SeatTopology topology, int seat, Random random) {
+        boolean left = random.nextBoolean();
+        int besideSeat = left ? topology.getLeftSeat(seat) : topology.getRightSeat(seat);
+        if (besideSeat == NO_SEAT) besideSeat = left ? topology.getRightSeat(seat) : topology.getLeftSeat(seat);
+        return besideSeat;
+    }
+
+    // Returns a random seat at the same table as a seat, other than the seat itself.
+    private static int getSeatAtTable(SeatTopology topology, int seat, Random random) {
+        int table = topology.getTable(seat);
+        int start = topology.getTableStart(table);
+        int size = topology.getTableEnd(table) - start;
+        if (size < 2) return NO_SEAT;
+        int otherSeat = topology.getSeatAtPosition(start + random.nextInt(size - 1));
+        return otherSeat == seat ? topology.getSeatAtPosition(start + size - 1) : otherSeat;
+    }
+
+}
@@ -0,0 +1,74 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Creates moves that take a random guest together with the guests they want to sit beside or at
+ * the same table as, and move the whole group into consecutive seats at another table. The guests
+ * in those seats swap places with the group, taking the seats the group left behind.
+ *
+ * @author David VanDusen
+ */
+// Moving the members of a family to another table one at a time means that every move on the way
+// separates them further, so the local search rarely gets there. Moving them all at once lets the
+// score judge the family at its new table.
+public class SameTableGroupMoveIteratorFactory extends SeatMoveIteratorFactory {
+
+    private static final int NO_SEAT = SeatTopology.NO_SEAT;
+
+    @Override
+    protected Supplier<Move> createMoveSupplier(SeatingPlanSolution solution, Seat[] seats, Random random) {
+        SeatTopology topology = solution.getSeatTopology();
+        GuestPreferenceMatrix preferences = solution.getGuestPreferenceMatrix();
+        // Find the seat of each guest once for the whole step
+        int[] seatsByGuest = new int[preferences.getGuestCount()];
+        Arrays.fill(seatsByGuest, NO_SEAT);
+        for (Seat seat : seats) {
+            if (seat.getGuest() != null) seatsByGuest[seat.getGuest().getIndex()] = seat.getId();
+        }
+        return () -> {
+            int seat = random.nextInt(seats.length);
+            if (seats[seat].getGuest() == null || topology.getTableCount() < 2) {
+                // There is no group to move, so the move will not be doable
+                return new SeatReassignmentMove(new Seat[0], new Guest[0]);
+            }
+            int table = topology.getTable(seat);
+            int targetTable = random.nextInt(topology.getTableCount() - 1);
+            if (targetTable >= table) targetTable++;
+            int tableStart = topology.getTableStart(targetTable);
+            int tableSize = topology.getTableEnd(targetTable) - tableStart;
+            // The seats of the group that are not already at the target table, starting with the
+            // chosen guest
+            int guestIndex = seats[seat].getGuest().getIndex();
+            int[] groupSeats = new int[Math.min(tableSize, 1 + preferences.getRelatedGuestEnd(guestIndex) - preferences.getRelatedGuestStart(guestIndex))];
+            int groupSize = 0;
+            groupSeats[groupSize++] = seat;
+            for (int position = preferences.getRelatedGuestStart(guestIndex);
+                 position < preferences.getRelatedGuestEnd(guestIndex) && groupSize < groupSeats.length; position++) {
+                if (preferences.getBesideWeightAtPosition(position) <= 0 && preferences.getSameTableWeightAtPosition(position) <= 0) continue;
+                int relatedGuestIndex = preferences.getRelatedGuestAtPosition(position);
+                if (relatedGuestIndex == guestIndex) continue;
+                int relatedSeat = seatsByGuest[relatedGuestIndex];
+                if (relatedSeat != NO_SEAT && topology.getTable(relatedSeat) != targetTable) groupSeats[groupSize++] = relatedSeat;
+            }
+            // Swap the group with consecutive seats at the target table, starting from a random one.
+            // The seats of a table are in order around the table, so these are usually neighbours.
+            Seat[] moveSeats = new Seat[2 * groupSize];
+            Guest[] guests = new Guest[2 * groupSize];
+            int offset = random.nextInt(tableSize);
+            for (int i = 0; i < groupSize; i++) {
+                int targetSeat = topology.getSeatAtPosition(tableStart + (offset + i) % tableSize);
+                moveSeats[2 * i] = seats[groupSeats[i]];
+                moveSeats[2 * i + 1] = seats[targetSeat];
+                guests[2 * i] = seats[targetSeat].getGuest();
+                guests[2 * i + 1] = seats[groupSeats[i]].getGuest();
+            }
+            return new SeatReassignmentMove(moveSeats, guests);
+        };
+    }
+
+}
@@ -14,8 +14,9 @@ import org.optaplanner.core.api.domain.variable.PlanningVariable;
 //
 // The following @PlanningEntity annotation indicates that this Bean is part of a planning problem
 // and that it has a property that can be updated from a set of known values that will change the
-// score for the solution that it is part of.
-@PlanningEntity
+// score for the solution that it is part of. The difficulty comparator tells OptaPlanner's
+// decreasing construction heuristics which seats to fill first.
+@PlanningEntity(difficultyComparatorClass = SeatDifficultyComparator.class)
 public class Seat {
 
     private Integer id;
@@ -73,8 +74,10 @@ public class Seat {
     // The following @PlanningVariable annotation indicates that this property may be set from the
     // "guests" value range defined in the SeatingPlanSolution class to change the score of the
     // solution that this planning entity is part of. By setting nullable to true this property
-    // is allowed to be left empty (as an unassigned seat.)
-    @PlanningVariable(valueRangeProviderRefs = {"guests"}, nullable = true)
+    // is allowed to be left empty (as an unassigned seat.) The strength comparator tells the
+    // weakest and strongest fit construction heuristics which guests to try first.
+    @PlanningVariable(valueRangeProviderRefs = {"guests"}, nullable = true,
+            strengthComparatorClass = GuestStrengthComparator.class)
     public Guest getGuest() {
         return guest;
     }
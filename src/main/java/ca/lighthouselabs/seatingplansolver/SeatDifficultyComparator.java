@@ -0,0 +1,31 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.apache.commons.lang.builder.CompareToBuilder;
+
+import java.util.Comparator;
+
+/**
+ * Compares seats by how difficult they are to fill well, for construction heuristics that fill the
+ * most difficult seats first. A seat with neighbours on both sides is more difficult than a seat at
+ * the end of a row, because the guest in it has to suit two neighbours.
+ *
+ * @author David VanDusen
+ */
+// OptaPlanner's decreasing construction heuristics, such as FIRST_FIT_DECREASING, need to know how
+// to sort the planning entities. The table and seat numbers only make the order the same every time.
+public class SeatDifficultyComparator implements Comparator<Seat> {
+
+    @Override
+    public int compare(Seat seat1, Seat seat2) {
+        return new CompareToBuilder()
+                .append(getNeighbourCount(seat1), getNeighbourCount(seat2))
+                .append(seat2.getTableNumber(), seat1.getTableNumber())
+                .append(seat2.getSeatNumber(), seat1.getSeatNumber())
+                .toComparison();
+    }
+
+    private static int getNeighbourCount(Seat seat) {
+        return (seat.getLeft() == null ? 0 : 1) + (seat.getRight() == null ? 0 : 1);
+    }
+
+}
@@ -0,0 +1,80 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Base class for the factories of SeatReassignmentMove objects, which create an endless stream of
+ * random moves for the local search to choose from.
+ *
+ * @author David VanDusen
+ */
+// The number of possible moves of each kind is far too large to list, so the moves are only ever
+// picked at random, one at a time, when the local search asks for the next one. A new iterator is
+// created for each step of the local search, so anything worked out from the current seat
+// assignments can be worked out once when the iterator is created.
+//
+// Every kind of move changes at least two seats, so a plan with fewer seats has no moves at all,
+// and the subclasses can rely on there being at least two seats.
+public abstract class SeatMoveIteratorFactory implements MoveIteratorFactory {
+
+    private static final int MIN_SEAT_COUNT = 2;
+
+    // The number of seats is used as the size of each kind of move, so that each kind is picked
+    // about as often as the others when they are combined in a union move selector.
+    @Override
+    public long getSize(ScoreDirector scoreDirector) {
+        int seatCount = ((SeatingPlanSolution) scoreDirector.getWorkingSolution()).getSeats().size();
+        return seatCount < MIN_SEAT_COUNT ? 0L : seatCount;
+    }
+
+    /**
+     * Not supported, because the moves are far too many to list in order. A move selector that
+     * uses one of these factories must keep the random selection order that the local search uses
+     * by default, which solver.xml does.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Iterator<Move> createOriginalMoveIterator(ScoreDirector scoreDirector) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " only supports random selection");
+    }
+
+    @Override
+    public Iterator<Move> createRandomMoveIterator(ScoreDirector scoreDirector, Random random) {
+        SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        if (seats.length < MIN_SEAT_COUNT) return Collections.emptyIterator();
+        Supplier<Move> moves = createMoveSupplier(solution, seats, random);
+        return new Iterator<Move>() {
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Move next() {
+                return moves.get();
+            }
+
+        };
+    }
+
+    /**
+     * Creates a supplier of random moves for the current step of the local search.
+     *
+     * @param solution the working solution
+     * @param seats the seats of the working solution by index, of which there are at least two
+     * @param random the random number generator of the solver
+     * @return a supplier that returns a new random move each time it is called
+     */
+    protected abstract Supplier<Move> createMoveSupplier(SeatingPlanSolution solution, Seat[] seats, Random random);
+
+}
@@ -0,0 +1,116 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A move that assigns new guests to several seats at once. The new guests are always the same
+ * guests that were in those seats before, in a different order, so a seating plan in which every
+ * guest has exactly one seat still has that after the move. Swapping two guests, swapping two
+ * pairs of neighbours, or rotating guests around a table are all moves of this kind.
+ *
+ * @author David VanDusen
+ */
+// OptaPlanner's generic change move sets a single seat to any guest, which almost always seats that
+// guest twice and is punished by the hard score, so most of the time spent evaluating those moves
+// is wasted. Only ever rearranging the guests that are already seated keeps every move feasible.
+public class SeatReassignmentMove extends AbstractMove {
+
+    private final Seat[] seats;
+
+    private final Guest[] guests;
+
+    /**
+     * Creates a move that assigns guests[i] to seats[i] for each i. The seats must be distinct,
+     * and the guests must be the guests currently in those seats in any order.
+     *
+     * @param seats the seats to change
+     * @param guests the new guest of each seat, which may be null for an empty seat
+     */
+    public SeatReassignmentMove(Seat[] seats, Guest[] guests) {
+        this.seats = seats;
+        this.guests = guests;
+    }
+
+    /**
+     * Creates a move that swaps the guests in two seats.
+     *
+     * @param seat one of the seats
+     * @param otherSeat the other seat
+     * @return the move
+     */
+    public static SeatReassignmentMove createSwap(Seat seat, Seat otherSeat) {
+        return new SeatReassignmentMove(new Seat[]{seat, otherSeat}, new Guest[]{otherSeat.getGuest(), seat.getGuest()});
+    }
+
+    // A move that does not change any seat is not worth evaluating.
+    @Override
+    public boolean isMoveDoable(ScoreDirector scoreDirector) {
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i].getGuest() != guests[i]) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Move createUndoMove(ScoreDirector scoreDirector) {
+        Guest[] oldGuests = new Guest[seats.length];
+        for (int i = 0; i < seats.length; i++) {
+            oldGuests[i] = seats[i].getGuest();
+        }
+        return new SeatReassignmentMove(seats, oldGuests);
+    }
+
+    // The score director must be told about each change so that the score can be updated
+    // incrementally.
+    @Override
+    public void doMove(ScoreDirector scoreDirector) {
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i].getGuest() != guests[i]) {
+                scoreDirector.beforeVariableChanged(seats[i], "guest");
+                seats[i].setGuest(guests[i]);
+                scoreDirector.afterVariableChanged(seats[i], "guest");
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningEntities() {
+        return Arrays.asList(seats);
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningValues() {
+        return Arrays.asList(guests);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SeatReassignmentMove)) return false;
+        SeatReassignmentMove other = (SeatReassignmentMove) o;
+        return Arrays.equals(seats, other.seats) && Arrays.equals(guests, other.guests);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(seats) + Arrays.hashCode(guests);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < seats.length; i++) {
+            if (i > 0) stringBuilder.append(", ");
+            Guest guest = guests[i];
+            stringBuilder.append("seat (").append(seats[i].getId()).append(") <- guest (")
+                    .append(guest == null ? "none" : guest.getId()).append(")");
+        }
+        return stringBuilder.toString();
+    }
+
+}
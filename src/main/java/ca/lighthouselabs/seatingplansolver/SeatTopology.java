@@ -0,0 +1,211 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Holds the arrangement of the seats at an event as arrays of seat indexes: which table each seat
+ * is at, which seats are directly to its left and right, and which seats are at each table. The
+ * arrangement never changes while solving, so it is calculated once and can then be read for every
+ * seat on every move without walking the links between Seat objects or creating any objects.
+ *
+ * @author David VanDusen
+ */
+// Arrays of primitive ints are laid out next to each other in memory, which makes reading them in a
+// loop much faster than following references from one object to the next. The seats of each table
+// are stored one table after the other in a single array, with offsets marking where each table
+// starts and ends, so that the seats at a table can be visited with a simple for loop.
+public class SeatTopology {
+
+    /**
+     * The index returned when there is no seat, such as to the left of a seat at the end of a
+     * table.
+     */
+    public static final int NO_SEAT = -1;
+
+    private final int[] tables;
+
+    private final int[] leftSeats;
+
+    private final int[] rightSeats;
+
+    // tableSeats[tableOffsets[t]] to tableSeats[tableOffsets[t + 1] - 1] are the seats at table t
+    private final int[] tableOffsets;
+
+    private final int[] tableSeats;
+
+    private SeatTopology(int[] tables, int[] leftSeats, int[] rightSeats, int[] tableOffsets, int[] tableSeats) {
+        this.tables = tables;
+        this.leftSeats = leftSeats;
+        this.rightSeats = rightSeats;
+        this.tableOffsets = tableOffsets;
+        this.tableSeats = tableSeats;
+    }
+
+    /**
+     * Creates the topology of the given seats. Each seat's id is set to its position in the list,
+     * which is the index that the topology uses for it. Seats with the same table number are at the
+     * same table, and each seat's neighbours are the seats it is linked to on its left and right.
+     *
+     * @param seats all the seats at the event
+     * @return the topology of the seats
+     */
+    public static SeatTopology create(List<Seat> seats) {
+        for (int i = 0; i < seats.size(); i++) {
+            seats.get(i).setId(i);
+        }
+        return create(seats, Seat::getId);
+    }
+
+    /**
+     * Creates the topology of the given seats, indexed by their position in the list, without
+     * changing the seats' own ids. This is for seats that belong to a solution that hasn't been
+     * indexed and mustn't be changed.
+     *
+     * @param seats all the seats at the event
+     * @return the topology of the seats
+     */
+    public static SeatTopology createWithoutIndexing(List<Seat> seats) {
+        Map<Seat, Integer> positions = new IdentityHashMap<>(seats.size() * 2);
+        for (int i = 0; i < seats.size(); i++) {
+            positions.put(seats.get(i), i);
+        }
+        return create(seats, positions::get);
+    }
+
+    // Builds the topology of the seats in the list, where the seat at position i has index i and
+    // indexOf gives the index of any seat.
+    private static SeatTopology create(List<Seat> seats, ToIntFunction<Seat> indexOf) {
+        int[] tables = new int[seats.size()];
+        int[] leftSeats = new int[seats.size()];
+        int[] rightSeats = new int[seats.size()];
+        // Give each distinct table number the next table index, in the order they are encountered
+        Map<Integer, Integer> tableIndexes = new HashMap<>();
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            tables[i] = tableIndexes.computeIfAbsent(seat.getTableNumber(), tableNumber -> tableIndexes.size());
+            leftSeats[i] = seat.getLeft() == null ? NO_SEAT : indexOf.applyAsInt(seat.getLeft());
+            rightSeats[i] = seat.getRight() == null ? NO_SEAT : indexOf.applyAsInt(seat.getRight());
+        }
+        // Count the seats at each table, then turn the counts into the offset where each table starts
+        int[] tableOffsets = new int[tableIndexes.size() + 1];
+        for (int table : tables) {
+            tableOffsets[table + 1]++;
+        }
+        for (int table = 0; table < tableIndexes.size(); table++) {
+            tableOffsets[table + 1] += tableOffsets[table];
+        }
+        int[] tableSeats = new int[seats.size()];
+        int[] nextPositions = tableOffsets.clone();
+        for (int i = 0; i < seats.size(); i++) {
+            tableSeats[nextPositions[tables[i]]++] = i;
+        }
+        return new SeatTopology(tables, leftSeats, rightSeats, tableOffsets, tableSeats);
+    }
+
+    public int getSeatCount() {
+        return tables.length;
+    }
+
+    public int getTableCount() {
+        return tableOffsets.length - 1;
+    }
+
+    /**
+     * Returns the index of the table that a seat is at.
+     *
+     * @param seat the index of the seat
+     * @return the index of the seat's table
+     */
+    public int getTable(int seat) {
+        return tables[seat];
+    }
+
+    /**
+     * Returns the seat directly to the left of a seat.
+     *
+     * @param seat the index of the seat
+     * @return the index of the seat to its left, or NO_SEAT
+     */
+    public int getLeftSeat(int seat) {
+        return leftSeats[seat];
+    }
+
+    /**
+     * Returns the seat directly to the right of a seat.
+     *
+     * @param seat the index of the seat
+     * @return the index of the seat to its right, or NO_SEAT
+     */
+    public int getRightSeat(int seat) {
+        return rightSeats[seat];
+    }
+
+    /**
+     * Returns the first position of a table's seats, to be used with getSeatAtPosition.
+     *
+     * @param table the index of the table
+     * @return the position of the table's first seat
+     */
+    public int getTableStart(int table) {
+        return tableOffsets[table];
+    }
+
+    /**
+     * Returns the position after the last of a table's seats, to be used with getSeatAtPosition.
+     *
+     * @param table the index of the table
+     * @return the position after the table's last seat
+     */
+    public int getTableEnd(int table) {
+        return tableOffsets[table + 1];
+    }
+
+    /**
+     * Returns the seats at a table in order from left to right, following the links between them.
+     * A table with ends starts from the seat at its left end, and a round table starts from its
+     * first seat.
+     *
+     * @param table the index of the table
+     * @return the indexes of the table's seats in order
+     */
+    public int[] getSeatsAroundTable(int table) {
+        int start = getTableStart(table);
+        int size = getTableEnd(table) - start;
+        int firstSeat = tableSeats[start];
+        for (int position = start; position < start + size; position++) {
+            if (leftSeats[tableSeats[position]] == NO_SEAT) firstSeat = tableSeats[position];
+        }
+        int[] seats = new int[size];
+        int count = 0;
+        for (int seat = firstSeat; seat != NO_SEAT && count < size; seat = rightSeats[seat]) {
+            seats[count++] = seat;
+        }
+        // Seats that can't be reached from the first seat, which only happens if the table is not
+        // linked as one row or ring, are added in position order
+        if (count < size) {
+            boolean[] added = new boolean[getSeatCount()];
+            for (int i = 0; i < count; i++) {
+                added[seats[i]] = true;
+            }
+            for (int position = start; position < start + size; position++) {
+                if (!added[tableSeats[position]]) seats[count++] = tableSeats[position];
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * Returns the seat at a position between the start and end of a table.
+     *
+     * @param position the position of the seat
+     * @return the index of the seat at that position
+     */
+    public int getSeatAtPosition(int position) {
+        return tableSeats[position];
+    }
+
+}
@@ -1,6 +1,6 @@
 package ca.lighthouselabs.seatingplansolver;
 
-import java.util.Set;
+import java.util.List;
 
 /**
  * Represents the assignment of event guests at seats. Contains references to all guests as well
@@ -10,25 +10,28 @@ import java.util.Set;
  * @author David VanDusen
  */
 // This is an example of a Bean class. It has a collection of properties with getters and setters.
+//
+// The guests and seats are kept in lists in the order of their indexes, so that iterating over them
+// always visits them in the same order and walks through memory in a straight line.
 public class SeatingPlan {
 
-    private Set<Guest> guests;
+    private List<Guest> guests;
 
-    private Set<Seat> seats;
+    private List<Seat> seats;
 
-    public Set<Guest> getGuests() {
+    public List<Guest> getGuests() {
         return guests;
     }
 
-    public void setGuests(Set<Guest> guests) {
+    public void setGuests(List<Guest> guests) {
         this.guests = guests;
     }
 
-    public Set<Seat> getSeats() {
+    public List<Seat> getSeats() {
         return seats;
     }
 
-    public void setSeats(Set<Seat> seats) {
+    public void setSeats(List<Seat> seats) {
         this.seats = seats;
     }
 
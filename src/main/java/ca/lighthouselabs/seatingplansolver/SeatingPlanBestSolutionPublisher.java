@@ -0,0 +1,110 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.solver.event.BestSolutionChangedEvent;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Listens for new best solutions while a Solver runs and publishes the changes to each of them as
+ * SeatingPlanSolutionDiff objects. At most one diff is published per interval, covering every
+ * improvement found since the last one, so that consumers receive a steady trickle of updates no
+ * matter how quickly the solver improves.
+ *
+ * @author David VanDusen
+ */
+// Early in a solve the solver can find a new best solution every few milliseconds. The solver's
+// thread only swaps a reference when that happens, because the solution in each event is already a
+// new clone that the solver never changes again. A separate thread wakes up once per interval and
+// compares the latest solution with the guest ids of the last one it published, so solutions that
+// are replaced before the interval ends are never looked at and nothing is copied apart from the
+// guest ids. Publishing on a separate thread also means a slow consumer never holds up the solver.
+public class SeatingPlanBestSolutionPublisher implements SolverEventListener<SeatingPlanSolution>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanBestSolutionPublisher.class);
+
+    private final List<Consumer<SeatingPlanSolutionDiff>> consumers;
+
+    private final ScheduledExecutorService scheduler;
+
+    // The newest solution that hasn't been published yet
+    private final AtomicReference<SeatingPlanSolution> pendingSolution = new AtomicReference<>();
+
+    // The guest ids by seat index of the last published solution, only used by publishPending
+    private int[] publishedGuestIds = new int[0];
+
+    /**
+     * Creates a publisher that starts publishing straight away.
+     *
+     * @param intervalMillis the least time between two diffs in milliseconds
+     * @param consumers the consumers that each diff is published to, in order
+     */
+    public SeatingPlanBestSolutionPublisher(long intervalMillis, List<Consumer<SeatingPlanSolutionDiff>> consumers) {
+        if (intervalMillis < 1) throw new IllegalArgumentException("interval (" + intervalMillis + ") must be at least 1 ms");
+        this.consumers = new ArrayList<>(consumers);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seating-plan-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::publishPending, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void bestSolutionChanged(BestSolutionChangedEvent<SeatingPlanSolution> event) {
+        if (!event.isNewBestSolutionInitialized()) return;
+        offer(event.getNewBestSolution());
+    }
+
+    /**
+     * Queues a solution to be published at the end of the current interval, replacing any solution
+     * that is already queued. The solution must not be changed afterwards.
+     *
+     * @param solution the new best solution
+     */
+    public void offer(SeatingPlanSolution solution) {
+        pendingSolution.set(solution);
+    }
+
+    /**
+     * Stops publishing, after publishing the solution that is queued if there is one. If the calling
+     * thread is interrupted while waiting for the last scheduled publish, its interrupt flag is set
+     * again and the queued solution is still published.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publishPending();
+    }
+
+    private synchronized void publishPending() {
+        SeatingPlanSolution solution = pendingSolution.getAndSet(null);
+        if (solution == null) return;
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        SeatingPlanSolutionDiff diff = SeatingPlanSolutionDiff.between(publishedGuestIds, seats, solution.getScore());
+        publishedGuestIds = SeatingPlanSolutionDiff.getGuestIds(seats);
+        for (Consumer<SeatingPlanSolutionDiff> consumer : consumers) {
+            // A consumer that fails, such as a socket that has been closed, shouldn't stop the
+            // others from receiving the diff, or end the scheduled publishing
+            try {
+                consumer.accept(diff);
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to publish best solution diff.", e);
+            }
+        }
+    }
+
+}
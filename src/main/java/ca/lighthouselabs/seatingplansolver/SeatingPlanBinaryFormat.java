@@ -0,0 +1,259 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Reads and writes SeatingPlanSolution objects in a compact binary format. The file holds the
+ * guests, their preferences as arrays of guest indexes, the seats and how they are linked, and
+ * optionally which guest is assigned to each seat. It is read through a memory-mapped file, so
+ * even the files of very large events can be loaded almost instantly.
+ *
+ * @author David VanDusen
+ */
+// The file is made up of a header followed by sections that are each an array of ints, except for
+// the last two sections, which are arrays of bytes. Reading an array of ints from a memory-mapped
+// file is a bulk copy of memory that the operating system has already loaded, which is much faster
+// than parsing text. All the int sections come first so that every int is aligned in the file.
+//
+//   int     magic number "SPLN" and format version
+//   int     guest count (g), seat count (s), flags (1 if there is an assignment)
+//   int[g]  guest ids
+//   4 x     preferences: int[g + 1] offsets into the following targets, then int[offsets[g]]
+//           targets, which are the indexes of the guests in each guest's preference
+//   int[s]  seat table numbers, seat numbers, left seat indexes, right seat indexes
+//   int[s]  assigned guest index of each seat, only if there is an assignment
+//   int[2g] byte lengths of each guest's first and last names, or -1 for a missing name
+//   byte[g] genders (the ordinal of Guest.Gender)
+//   byte[]  names, encoded as UTF-8
+public class SeatingPlanBinaryFormat {
+
+    private static final int MAGIC = 0x53504C4E;
+
+    private static final int VERSION = 2;
+
+    private static final int FLAG_ASSIGNMENT = 1;
+
+    // Indexes that are stored when there is no seat or no guest, and the length stored for a
+    // missing name
+    private static final int NONE = -1;
+
+    // The four preferences of a guest, in the order they are stored in the file
+    private static final List<Function<Guest, Set<Guest>>> PREFERENCE_GETTERS = Arrays.asList(
+            Guest::getSeatAtSameTable, Guest::getSeatBeside, Guest::getDoNotSeatAtSameTable, Guest::getDoNotSeatBeside);
+
+    private SeatingPlanBinaryFormat() {
+        // static class
+    }
+
+    /**
+     * Writes a solution to a binary file, including its seat assignments. Every guest must have a
+     * gender.
+     *
+     * @param solution the solution to write
+     * @param path the path of the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(SeatingPlanSolution solution, Path path) throws IOException {
+        // Write the guests and seats in the order of their indexes
+        List<Guest> guests = new ArrayList<>(solution.getGuests());
+        guests.sort(Comparator.comparingInt(Guest::getIndex));
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        boolean assigned = Arrays.stream(seats).anyMatch(seat -> seat.getGuest() != null);
+        for (Guest guest : guests) {
+            if (guest.getGender() == null) throw new IllegalArgumentException("guest (" + guest.getId() + ") has no gender");
+        }
+        byte[][] names = new byte[guests.size() * 2][];
+        int nameLength = 0;
+        for (int i = 0; i < guests.size(); i++) {
+            names[2 * i] = toBytes(guests.get(i).getFirstName());
+            names[2 * i + 1] = toBytes(guests.get(i).getLastName());
+            nameLength += getLength(names[2 * i]) + getLength(names[2 * i + 1]);
+        }
+        int preferenceLength = 0;
+        for (Function<Guest, Set<Guest>> getter : PREFERENCE_GETTERS) {
+            preferenceLength += guests.size() + 1 + guests.stream().mapToInt(guest -> getter.apply(guest).size()).sum();
+        }
+        int intCount = 5 + guests.size() + preferenceLength + seats.length * (assigned ? 5 : 4) + names.length;
+        ByteBuffer buffer = ByteBuffer.allocate(intCount * 4 + guests.size() + nameLength);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(guests.size()).putInt(seats.length).putInt(assigned ? FLAG_ASSIGNMENT : 0);
+        guests.forEach(guest -> buffer.putInt(guest.getId()));
+        for (Function<Guest, Set<Guest>> getter : PREFERENCE_GETTERS) {
+            int offset = 0;
+            buffer.putInt(offset);
+            for (Guest guest : guests) {
+                offset += getter.apply(guest).size();
+                buffer.putInt(offset);
+            }
+            for (Guest guest : guests) {
+                // Sorted so that the same solution is always written the same way
+                getter.apply(guest).stream().mapToInt(Guest::getIndex).sorted().forEach(buffer::putInt);
+            }
+        }
+        for (Seat seat : seats) buffer.putInt(seat.getTableNumber());
+        for (Seat seat : seats) buffer.putInt(seat.getSeatNumber());
+        for (Seat seat : seats) buffer.putInt(seat.getLeft() == null ? NONE : seat.getLeft().getId());
+        for (Seat seat : seats) buffer.putInt(seat.getRight() == null ? NONE : seat.getRight().getId());
+        if (assigned) {
+            for (Seat seat : seats) buffer.putInt(seat.getGuest() == null ? NONE : seat.getGuest().getIndex());
+        }
+        for (byte[] name : names) buffer.putInt(name == null ? NONE : name.length);
+        guests.forEach(guest -> buffer.put((byte) guest.getGender().ordinal()));
+        for (byte[] name : names) {
+            if (name != null) buffer.put(name);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a solution from a binary file. If the file has seat assignments, the guests are
+     * assigned to their seats.
+     *
+     * @param path the path of the file to read
+     * @return fully configured solution
+     * @throws IOException if the file can't be read or isn't in the binary format
+     */
+    public static SeatingPlanSolution read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) throw new IOException("not a seating plan file (" + path + ")");
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("unsupported seating plan file version (" + version + ")");
+        int guestCount = buffer.getInt();
+        int seatCount = buffer.getInt();
+        int flags = buffer.getInt();
+        IntBuffer ints = buffer.asIntBuffer();
+        int[] guestIds = readInts(ints, guestCount);
+        int[][] preferenceOffsets = new int[PREFERENCE_GETTERS.size()][];
+        int[][] preferenceTargets = new int[PREFERENCE_GETTERS.size()][];
+        for (int i = 0; i < PREFERENCE_GETTERS.size(); i++) {
+            preferenceOffsets[i] = readInts(ints, guestCount + 1);
+            preferenceTargets[i] = readInts(ints, preferenceOffsets[i][guestCount]);
+        }
+        int[] tableNumbers = readInts(ints, seatCount);
+        int[] seatNumbers = readInts(ints, seatCount);
+        int[] leftSeats = readInts(ints, seatCount);
+        int[] rightSeats = readInts(ints, seatCount);
+        int[] assignment = (flags & FLAG_ASSIGNMENT) != 0 ? readInts(ints, seatCount) : null;
+        int[] nameLengths = readInts(ints, 2 * guestCount);
+        // Continue reading bytes from where the ints ended
+        buffer.position(buffer.position() + ints.position() * 4);
+        byte[] genders = new byte[guestCount];
+        buffer.get(genders);
+        byte[] names = new byte[Arrays.stream(nameLengths).filter(length -> length != NONE).sum()];
+        buffer.get(names);
+
+        List<Guest> guests = new ArrayList<>(guestCount);
+        int nameOffset = 0;
+        for (int i = 0; i < guestCount; i++) {
+            Guest guest = new Guest();
+            guest.setId(guestIds[i]);
+            guest.setGender(Guest.Gender.values()[genders[i]]);
+            guest.setFirstName(toString(names, nameOffset, nameLengths[2 * i]));
+            nameOffset += getLength(nameLengths[2 * i]);
+            guest.setLastName(toString(names, nameOffset, nameLengths[2 * i + 1]));
+            nameOffset += getLength(nameLengths[2 * i + 1]);
+            guests.add(guest);
+        }
+        for (int i = 0; i < guestCount; i++) {
+            Guest guest = guests.get(i);
+            guest.setSeatAtSameTable(getGuests(guests, preferenceOffsets[0], preferenceTargets[0], i));
+            guest.setSeatBeside(getGuests(guests, preferenceOffsets[1], preferenceTargets[1], i));
+            guest.setDoNotSeatAtSameTable(getGuests(guests, preferenceOffsets[2], preferenceTargets[2], i));
+            guest.setDoNotSeatBeside(getGuests(guests, preferenceOffsets[3], preferenceTargets[3], i));
+        }
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            Seat seat = new Seat();
+            seat.setTableNumber(tableNumbers[i]);
+            seat.setSeatNumber(seatNumbers[i]);
+            seats.add(seat);
+        }
+        for (int i = 0; i < seatCount; i++) {
+            Seat seat = seats.get(i);
+            if (leftSeats[i] != NONE) seat.setLeft(seats.get(leftSeats[i]));
+            if (rightSeats[i] != NONE) seat.setRight(seats.get(rightSeats[i]));
+            if (assignment != null && assignment[i] != NONE) seat.setGuest(guests.get(assignment[i]));
+        }
+        return SeatingPlanSolutionFactory.createFromGuestsAndSeats(guests, seats);
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of the binary format.
+     *
+     * @param path the path of the file to check
+     * @return true if the file is in the binary format
+     * @throws IOException if the file can't be read
+     */
+    public static boolean isBinaryFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until the magic number has been read or the file ends
+            }
+            return !buffer.hasRemaining() && buffer.getInt(0) == MAGIC;
+        }
+    }
+
+    private static int[] readInts(IntBuffer ints, int count) {
+        int[] values = new int[count];
+        ints.get(values);
+        return values;
+    }
+
+    private static Set<Guest> getGuests(List<Guest> guests, int[] offsets, int[] targets, int index) {
+        Set<Guest> guestSet = new HashSet<>((offsets[index + 1] - offsets[index]) * 4 / 3 + 1);
+        for (int position = offsets[index]; position < offsets[index + 1]; position++) {
+            guestSet.add(guests.get(targets[position]));
+        }
+        return guestSet;
+    }
+
+    private static byte[] toBytes(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String toString(byte[] names, int offset, int length) {
+        return length == NONE ? null : new String(names, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static int getLength(byte[] name) {
+        return name == null ? 0 : name.length;
+    }
+
+    // The number of name bytes taken by a stored length, which is none for a missing name.
+    private static int getLength(int length) {
+        return length == NONE ? 0 : length;
+    }
+
+    /**
+     * Converts a problem YAML file into a binary file.
+     *
+     * @param args 0 - path to a problem YAML file, 1 - path of the binary file to write
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) throw new IllegalArgumentException("path to problem YAML file must be first arg");
+        if (args.length < 2) throw new IllegalArgumentException("path of binary file to write must be second arg");
+        write(SeatingPlanSolutionFactory.createFromYamlFile(Paths.get(args[0])), Paths.get(args[1]));
+    }
+
+}
@@ -0,0 +1,222 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.AbstractIncrementalScoreCalculator;
+
+/**
+ * Calculates the HardSoft score of a SeatingPlanChainedSolution incrementally. The soft score is
+ * the same as the one SeatingPlanScoreCalculator calculates for the seat assignments that the
+ * chains represent. Because every guest has exactly one placement, the only hard constraints left
+ * are guests that haven't been placed yet and guests placed beyond the last seat of a table.
+ *
+ * @author David VanDusen
+ */
+// Moving a placement changes the previousStandstill of the placements around it, and OptaPlanner
+// then updates the table and nextPlacement shadow variables of everything down the chains that were
+// cut and joined. Every one of those changes marks the table of the changed placement as dirty, and
+// the dirty tables are rescored the next time the score is asked for, so that a table touched by
+// several changes in one move is still only rescored once.
+public class SeatingPlanChainedIncrementalScoreCalculator extends AbstractIncrementalScoreCalculator<SeatingPlanChainedSolution> {
+
+    private SeatingPlanChainedSolution solution;
+
+    private GuestPreferenceMatrix preferences;
+
+    private SeatTopology topology;
+
+    // The seats of each table in the order that the guests in its chain sit in them
+    private int[][] seatsAroundTables;
+
+    // The guest in each seat, at the seat's index in the topology, as of the last time its table
+    // was scored
+    private Guest[] guestsBySeat;
+
+    // The hard and soft score of each table as of the last time it was scored
+    private int[] tableHardScores;
+
+    private int[] tableSoftScores;
+
+    private boolean[] dirtyTables;
+
+    private int[] dirtyTableList;
+
+    private int dirtyTableCount;
+
+    // The number of placements that aren't in any chain yet
+    private int unplacedCount;
+
+    private int hardScore;
+
+    private int softScore;
+
+    /**
+     * Calculates the score of the given solution from scratch and remembers the state needed to
+     * update it as placements change.
+     *
+     * @param solution the solution that will be changed by the solver
+     */
+    @Override
+    public void resetWorkingSolution(SeatingPlanChainedSolution solution) {
+        this.solution = solution;
+        preferences = solution.getGuestPreferenceMatrix();
+        topology = solution.getSeatTopology();
+        int tableCount = topology.getTableCount();
+        seatsAroundTables = new int[tableCount][];
+        for (int table = 0; table < tableCount; table++) {
+            seatsAroundTables[table] = topology.getSeatsAroundTable(table);
+        }
+        guestsBySeat = new Guest[topology.getSeatCount()];
+        tableHardScores = new int[tableCount];
+        tableSoftScores = new int[tableCount];
+        dirtyTables = new boolean[tableCount];
+        dirtyTableList = new int[tableCount];
+        dirtyTableCount = 0;
+        unplacedCount = 0;
+        for (GuestPlacement placement : solution.getPlacements()) {
+            if (placement.getPreviousStandstill() == null) unplacedCount++;
+        }
+        hardScore = 0;
+        softScore = 0;
+        for (int table = 0; table < tableCount; table++) {
+            markTableDirty(table);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Nothing to retract because the placement is not part of the solution yet
+    }
+
+    // Adding or removing a placement is rare enough that the score is simply calculated from
+    // scratch again.
+    @Override
+    public void afterEntityAdded(Object entity) {
+        resetWorkingSolution(solution);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        if (entity instanceof GuestPlacement && variableName.equals("previousStandstill")
+                && ((GuestPlacement) entity).getPreviousStandstill() == null) {
+            unplacedCount--;
+        }
+        markStandstillDirty((GuestStandstill) entity);
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        if (entity instanceof GuestPlacement && variableName.equals("previousStandstill")
+                && ((GuestPlacement) entity).getPreviousStandstill() == null) {
+            unplacedCount++;
+        }
+        markStandstillDirty((GuestStandstill) entity);
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        // Nothing to retract because the score is calculated from scratch after the removal
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        resetWorkingSolution(solution);
+    }
+
+    /**
+     * Rescores the tables that have changed since the score was last calculated and returns the
+     * updated score.
+     *
+     * @return the score for the working solution
+     */
+    @Override
+    public Score calculateScore() {
+        for (int i = 0; i < dirtyTableCount; i++) {
+            int table = dirtyTableList[i];
+            dirtyTables[table] = false;
+            hardScore -= tableHardScores[table];
+            softScore -= tableSoftScores[table];
+            scoreTable(table);
+            hardScore += tableHardScores[table];
+            softScore += tableSoftScores[table];
+        }
+        dirtyTableCount = 0;
+        // Every placement that isn't in a chain is an unseated guest
+        return HardSoftScore.valueOf(hardScore - unplacedCount, softScore);
+    }
+
+    // Finds the table at the start of the standstill's chain by following the previousStandstill
+    // links, rather than reading the table shadow variable, which may not have been updated yet
+    // when this is called.
+    private void markStandstillDirty(GuestStandstill standstill) {
+        while (standstill instanceof GuestPlacement) {
+            standstill = ((GuestPlacement) standstill).getPreviousStandstill();
+        }
+        if (standstill != null) markTableDirty(((TableAnchor) standstill).getIndex());
+    }
+
+    private void markTableDirty(int table) {
+        if (dirtyTables[table]) return;
+        dirtyTables[table] = true;
+        dirtyTableList[dirtyTableCount++] = table;
+    }
+
+    // Seats the guests in the table's chain in order, and then scores each of the seats. A guest
+    // that comes after the last seat of the table has no seat and loses a hard point.
+    private void scoreTable(int table) {
+        int[] seats = seatsAroundTables[table];
+        int hard = 0;
+        int count = 0;
+        for (GuestPlacement placement = solution.getTables().get(table).getNextPlacement(); placement != null;
+             placement = placement.getNextPlacement()) {
+            if (count < seats.length) {
+                guestsBySeat[seats[count++]] = placement.getGuest();
+            } else {
+                hard--;
+            }
+        }
+        for (int i = count; i < seats.length; i++) {
+            guestsBySeat[seats[i]] = null;
+        }
+        int soft = 0;
+        for (int seat : seats) {
+            soft += getSoftScoreForSeat(seat);
+        }
+        tableHardScores[table] = hard;
+        tableSoftScores[table] = soft;
+    }
+
+    // Calculates exactly what SeatingPlanScoreCalculator calculates for a seat. No guest can be in
+    // more than one seat, so the guests at the table don't need to be checked for duplicates.
+    private int getSoftScoreForSeat(int seat) {
+        Guest guest = guestsBySeat[seat];
+        if (guest == null) return 0;
+        int soft = 0;
+        Guest leftGuest = getGuest(topology.getLeftSeat(seat));
+        Guest rightGuest = getGuest(topology.getRightSeat(seat));
+        if (leftGuest != null) soft += getSoftScoreForNeighbour(guest, leftGuest);
+        // The same guest on both sides is only counted once
+        if (rightGuest != null && rightGuest != leftGuest) soft += getSoftScoreForNeighbour(guest, rightGuest);
+        int table = topology.getTable(seat);
+        for (int position = topology.getTableStart(table); position < topology.getTableEnd(table); position++) {
+            int otherSeat = topology.getSeatAtPosition(position);
+            Guest otherGuest = guestsBySeat[otherSeat];
+            if (otherSeat != seat && otherGuest != null) {
+                soft += preferences.getSameTableWeight(guest.getIndex(), otherGuest.getIndex());
+            }
+        }
+        return soft;
+    }
+
+    private int getSoftScoreForNeighbour(Guest guest, Guest neighbour) {
+        int soft = 0;
+        if (neighbour.getGender() == guest.getGender()) soft--;
+        soft += preferences.getBesideWeight(guest.getIndex(), neighbour.getIndex());
+        return soft;
+    }
+
+    private Guest getGuest(int seat) {
+        return seat == SeatTopology.NO_SEAT ? null : guestsBySeat[seat];
+    }
+
+}
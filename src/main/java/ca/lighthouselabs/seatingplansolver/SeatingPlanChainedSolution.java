@@ -0,0 +1,88 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
+import org.optaplanner.core.api.domain.solution.PlanningSolution;
+import org.optaplanner.core.api.domain.solution.Solution;
+import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Represents a solution for a seating plan problem in the chained model, where each table is the
+ * start of a chain of guest placements and the guests sit at the table in the order of the chain.
+ * It is created from, and converted back to, a SeatingPlanSolution by
+ * SeatingPlanChainedSolutionFactory.
+ *
+ * @author David VanDusen
+ */
+@PlanningSolution
+public class SeatingPlanChainedSolution implements Solution<HardSoftScore> {
+
+    private List<TableAnchor> tables;
+
+    private List<GuestPlacement> placements;
+
+    // The matrix and topology are never changed by the solver, so all clones of the solution share
+    // them.
+    private GuestPreferenceMatrix guestPreferenceMatrix;
+
+    private SeatTopology seatTopology;
+
+    private HardSoftScore score;
+
+    @ValueRangeProvider(id = "tables")
+    public List<TableAnchor> getTables() {
+        return tables;
+    }
+
+    public void setTables(List<TableAnchor> tables) {
+        this.tables = tables;
+    }
+
+    // The placements are both the planning entities and values for the previousStandstill of
+    // other placements.
+    @PlanningEntityCollectionProperty
+    @ValueRangeProvider(id = "placements")
+    public List<GuestPlacement> getPlacements() {
+        return placements;
+    }
+
+    public void setPlacements(List<GuestPlacement> placements) {
+        this.placements = placements;
+    }
+
+    public GuestPreferenceMatrix getGuestPreferenceMatrix() {
+        return guestPreferenceMatrix;
+    }
+
+    public void setGuestPreferenceMatrix(GuestPreferenceMatrix guestPreferenceMatrix) {
+        this.guestPreferenceMatrix = guestPreferenceMatrix;
+    }
+
+    public SeatTopology getSeatTopology() {
+        return seatTopology;
+    }
+
+    public void setSeatTopology(SeatTopology seatTopology) {
+        this.seatTopology = seatTopology;
+    }
+
+    @Override
+    public Collection<?> getProblemFacts() {
+        return new ArrayList<>(tables);
+    }
+
+    @Override
+    public HardSoftScore getScore() {
+        return score;
+    }
+
+    @Override
+    public void setScore(HardSoftScore score) {
+        this.score = score;
+    }
+
+}
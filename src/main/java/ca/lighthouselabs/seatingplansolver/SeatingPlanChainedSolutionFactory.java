@@ -0,0 +1,105 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contains methods for converting between SeatingPlanSolution objects and the chained model of
+ * the same problem in SeatingPlanChainedSolution objects.
+ *
+ * @author David VanDusen
+ */
+// The chained model is created from a SeatingPlanSolution rather than from its own file format, so
+// that every way of reading a problem works for both models, and so that a chained solution can be
+// turned back into seat assignments for SeatingPlanSolutionPresenter and the binary format.
+public class SeatingPlanChainedSolutionFactory {
+
+    // Because this class only contains static methods, there will never be any reason to
+    // instantiate it, therefore the default constructor is made private so that it is not
+    // accidentally instantiated anywhere in the codebase.
+    private SeatingPlanChainedSolutionFactory() {
+        // static class
+    }
+
+    /**
+     * Creates the chained model of a SeatingPlanSolution. There is a table for each table in the
+     * solution's seat topology and a placement for each guest. Guests who are assigned a seat are
+     * chained to their table in the order of their seats around it, and guests who aren't are
+     * left unplaced for the construction heuristic.
+     *
+     * @param solution the solution to convert
+     * @return the chained model of the solution
+     */
+    public static SeatingPlanChainedSolution createFromSolution(SeatingPlanSolution solution) {
+        SeatTopology topology = solution.getSeatTopology();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        // Get the guests in the order of their indexes so that the placements are in a stable order
+        Guest[] guests = new Guest[solution.getGuests().size()];
+        solution.getGuests().forEach(guest -> guests[guest.getIndex()] = guest);
+        List<GuestPlacement> placements = new ArrayList<>(guests.length);
+        GuestPlacement[] placementsByGuest = new GuestPlacement[guests.length];
+        for (Guest guest : guests) {
+            GuestPlacement placement = new GuestPlacement();
+            placement.setGuest(guest);
+            placements.add(placement);
+            placementsByGuest[guest.getIndex()] = placement;
+        }
+        List<TableAnchor> tables = new ArrayList<>(topology.getTableCount());
+        boolean[] placed = new boolean[guests.length];
+        for (int table = 0; table < topology.getTableCount(); table++) {
+            int[] seatsAroundTable = topology.getSeatsAroundTable(table);
+            TableAnchor anchor = new TableAnchor();
+            anchor.setIndex(table);
+            anchor.setTableNumber(seats[seatsAroundTable[0]].getTableNumber());
+            anchor.setCapacity(seatsAroundTable.length);
+            tables.add(anchor);
+            // Chain the seated guests in order, skipping empty seats and any guest seated twice
+            GuestStandstill previous = anchor;
+            for (int seat : seatsAroundTable) {
+                Guest guest = seats[seat].getGuest();
+                if (guest == null || placed[guest.getIndex()]) continue;
+                placed[guest.getIndex()] = true;
+                GuestPlacement placement = placementsByGuest[guest.getIndex()];
+                placement.setPreviousStandstill(previous);
+                placement.setTable(anchor);
+                previous.setNextPlacement(placement);
+                previous = placement;
+            }
+        }
+        SeatingPlanChainedSolution chainedSolution = new SeatingPlanChainedSolution();
+        chainedSolution.setGuestPreferenceMatrix(solution.getGuestPreferenceMatrix());
+        chainedSolution.setSeatTopology(topology);
+        chainedSolution.setTables(tables);
+        chainedSolution.setPlacements(placements);
+        return chainedSolution;
+    }
+
+    /**
+     * Creates a copy of a SeatingPlanSolution with the seat assignments of a chained solution that
+     * was created from it. The guests in each table's chain are assigned its seats in order, and
+     * guests beyond the last seat of a table are left unseated.
+     *
+     * @param solution the solution that the chained solution was created from
+     * @param chainedSolution the chained solution with the seat assignments
+     * @return a copy of the solution with the chained solution's seat assignments and score
+     */
+    public static SeatingPlanSolution createSolution(SeatingPlanSolution solution, SeatingPlanChainedSolution chainedSolution) {
+        SeatingPlanSolution copy = SeatingPlanSolutionFactory.createCopy(solution);
+        SeatTopology topology = copy.getSeatTopology();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(copy.getSeats());
+        for (Seat seat : seats) {
+            seat.setGuest(null);
+        }
+        for (TableAnchor table : chainedSolution.getTables()) {
+            int[] seatsAroundTable = topology.getSeatsAroundTable(table.getIndex());
+            int count = 0;
+            for (GuestPlacement placement = table.getNextPlacement(); placement != null && count < seatsAroundTable.length;
+                 placement = placement.getNextPlacement()) {
+                seats[seatsAroundTable[count++]].setGuest(placement.getGuest());
+            }
+        }
+        copy.setScore(chainedSolution.getScore());
+        return copy;
+    }
+
+}
@@ -0,0 +1,252 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.AbstractIncrementalScoreCalculator;
+
+import java.util.ArrayList;
+
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.getSeatsByIndex;
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.visitGuestsAtTable;
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.visitNeighbouringGuests;
+
+/**
+ * Calculates the same HardSoft score as SeatingPlanScoreCalculator, but incrementally. Instead of
+ * rescanning every seat after each move, it keeps track of how many seats each guest is assigned,
+ * and uses the solution's SeatTopology to rescore only the table of a changed seat.
+ *
+ * @author David VanDusen
+ */
+// OptaPlanner calls the before and after methods of an incremental score calculator around every
+// change it makes to a planning entity. The score calculator retracts the score contribution of
+// everything the change affects in the "before" method and adds it back in the "after" method, so
+// the score is always up to date without ever being calculated from scratch during solving.
+public class SeatingPlanIncrementalScoreCalculator extends AbstractIncrementalScoreCalculator<SeatingPlanSolution> {
+
+    /**
+     * The groups of constraints whose calculation time can be measured separately. The penalties
+     * for unseated guests and for guests with more than one seat are calculated together, and so
+     * are the beside preferences and the do not seat beside preferences, and the same table and do
+     * not seat at the same table preferences.
+     */
+    public enum TimedConstraint {
+        UNSEATED_AND_REDUNDANT_SEATS, GENDER_ALTERNATION, BESIDE_PREFERENCES, TABLE_PREFERENCES
+    }
+
+    private SeatingPlanSolution solution;
+
+    private GuestPreferenceMatrix preferences;
+
+    private SeatTopology topology;
+
+    // The seats of the working solution, at their index in the topology
+    private Seat[] seats;
+
+    // The number of seats that each guest is currently assigned, at the guest's index
+    private int[] seatCounts;
+
+    private int hardScore;
+
+    private int softScore;
+
+    // The nanoseconds spent calculating each TimedConstraint, or null when timing is disabled
+    private long[] constraintNanos;
+
+    /**
+     * Calculates the score of the given solution from scratch and remembers the state needed to
+     * update it as seats change.
+     *
+     * @param solution the solution that will be changed by the solver
+     */
+    @Override
+    public void resetWorkingSolution(SeatingPlanSolution solution) {
+        this.solution = solution;
+        // Solutions that weren't created by SeatingPlanSolutionFactory may not be indexed yet
+        if (solution.getGuestPreferenceMatrix() == null) {
+            solution.setGuestPreferenceMatrix(GuestPreferenceMatrix.create(new ArrayList<>(solution.getGuests())));
+        }
+        if (solution.getSeatTopology() == null) {
+            solution.setSeatTopology(SeatTopology.create(new ArrayList<>(solution.getSeats())));
+        }
+        preferences = solution.getGuestPreferenceMatrix();
+        topology = solution.getSeatTopology();
+        seats = getSeatsByIndex(solution.getSeats());
+        seatCounts = new int[preferences.getGuestCount()];
+        // Every guest starts out unseated
+        hardScore = -solution.getGuests().size();
+        softScore = 0;
+        for (Seat seat : seats) {
+            insertGuest(seat.getGuest());
+        }
+        for (int table = 0; table < topology.getTableCount(); table++) {
+            softScore += getSoftScoreForTable(table);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Nothing to retract because the seat is not part of the solution yet
+    }
+
+    // Adding or removing a seat changes the topology, which whoever makes the change has to update
+    // on the solution. That is rare enough that the score is simply calculated from scratch again.
+    @Override
+    public void afterEntityAdded(Object entity) {
+        resetWorkingSolution(solution);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        Seat seat = (Seat) entity;
+        softScore -= getSoftScoreForTable(topology.getTable(seat.getId()));
+        if (constraintNanos == null) {
+            retractGuest(seat.getGuest());
+        } else {
+            long startNanos = System.nanoTime();
+            retractGuest(seat.getGuest());
+            constraintNanos[TimedConstraint.UNSEATED_AND_REDUNDANT_SEATS.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        Seat seat = (Seat) entity;
+        if (constraintNanos == null) {
+            insertGuest(seat.getGuest());
+        } else {
+            long startNanos = System.nanoTime();
+            insertGuest(seat.getGuest());
+            constraintNanos[TimedConstraint.UNSEATED_AND_REDUNDANT_SEATS.ordinal()] += System.nanoTime() - startNanos;
+        }
+        softScore += getSoftScoreForTable(topology.getTable(seat.getId()));
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        // Nothing to retract because the score is calculated from scratch after the removal
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        resetWorkingSolution(solution);
+    }
+
+    /**
+     * Returns the score that has been kept up to date since the last reset.
+     *
+     * @return the score for the working solution
+     */
+    @Override
+    public Score calculateScore() {
+        return HardSoftScore.valueOf(hardScore, softScore);
+    }
+
+    /**
+     * Starts or stops measuring how long each group of constraints takes to calculate. Timing
+     * scores each constraint in a separate pass over a changed table, which is slower than scoring
+     * them all in one pass, so it is disabled unless something is collecting the times.
+     *
+     * @param enabled whether to measure the time spent on each constraint
+     */
+    public void setConstraintTimingEnabled(boolean enabled) {
+        if (!enabled) {
+            constraintNanos = null;
+        } else if (constraintNanos == null) {
+            constraintNanos = new long[TimedConstraint.values().length];
+        }
+    }
+
+    /**
+     * Returns the time spent calculating a group of constraints since timing was enabled.
+     *
+     * @param constraint the group of constraints
+     * @return the time spent in nanoseconds, or 0 if timing is disabled
+     */
+    public long getConstraintNanos(TimedConstraint constraint) {
+        return constraintNanos == null ? 0L : constraintNanos[constraint.ordinal()];
+    }
+
+    // A guest loses a hard point when unseated and a hard point for each seat beyond the first, so
+    // the hard score only changes by the difference between the old and new penalty for the guest.
+    private void insertGuest(Guest guest) {
+        if (guest == null) return;
+        int seatCount = seatCounts[guest.getIndex()]++;
+        hardScore += getHardPenalty(seatCount) - getHardPenalty(seatCount + 1);
+    }
+
+    private void retractGuest(Guest guest) {
+        if (guest == null) return;
+        int seatCount = seatCounts[guest.getIndex()]--;
+        hardScore += getHardPenalty(seatCount) - getHardPenalty(seatCount - 1);
+    }
+
+    // The number of hard points lost by a guest that is assigned the given number of seats.
+    private static int getHardPenalty(int seatCount) {
+        return seatCount == 0 ? 1 : seatCount - 1;
+    }
+
+    private int getSoftScoreForTable(int table) {
+        if (constraintNanos != null) return getTimedSoftScoreForTable(table);
+        int soft = 0;
+        for (int position = topology.getTableStart(table); position < topology.getTableEnd(table); position++) {
+            soft += getSoftScoreForSeat(topology.getSeatAtPosition(position));
+        }
+        return soft;
+    }
+
+    // Calculates exactly what SeatingPlanScoreCalculator calculates for a seat, but looks up the
+    // preferences in the preference matrix instead of the guests' sets.
+    private int getSoftScoreForSeat(int seat) {
+        Guest guest = seats[seat].getGuest();
+        if (guest == null) return 0;
+        int soft = 0;
+        soft += visitNeighbouringGuests(topology, seats, seat, neighbour -> getSoftScoreForNeighbour(guest, neighbour));
+        soft += visitGuestsAtTable(topology, seats, seat,
+                otherGuest -> preferences.getSameTableWeight(guest.getIndex(), otherGuest.getIndex()));
+        return soft;
+    }
+
+    // Calculates the same score as getSoftScoreForTable, one group of constraints at a time, and
+    // adds the time taken by each group to its total.
+    private int getTimedSoftScoreForTable(int table) {
+        int start = topology.getTableStart(table);
+        int end = topology.getTableEnd(table);
+        int soft = 0;
+        long startNanos = System.nanoTime();
+        for (int position = start; position < end; position++) {
+            int seat = topology.getSeatAtPosition(position);
+            Guest guest = seats[seat].getGuest();
+            if (guest == null) continue;
+            soft += visitNeighbouringGuests(topology, seats, seat, neighbour -> neighbour.getGender() == guest.getGender() ? -1 : 0);
+        }
+        long genderNanos = System.nanoTime();
+        for (int position = start; position < end; position++) {
+            int seat = topology.getSeatAtPosition(position);
+            Guest guest = seats[seat].getGuest();
+            if (guest == null) continue;
+            soft += visitNeighbouringGuests(topology, seats, seat,
+                    neighbour -> preferences.getBesideWeight(guest.getIndex(), neighbour.getIndex()));
+        }
+        long besideNanos = System.nanoTime();
+        for (int position = start; position < end; position++) {
+            int seat = topology.getSeatAtPosition(position);
+            Guest guest = seats[seat].getGuest();
+            if (guest == null) continue;
+            soft += visitGuestsAtTable(topology, seats, seat,
+                    otherGuest -> preferences.getSameTableWeight(guest.getIndex(), otherGuest.getIndex()));
+        }
+        long tableNanos = System.nanoTime();
+        constraintNanos[TimedConstraint.GENDER_ALTERNATION.ordinal()] += genderNanos - startNanos;
+        constraintNanos[TimedConstraint.BESIDE_PREFERENCES.ordinal()] += besideNanos - genderNanos;
+        constraintNanos[TimedConstraint.TABLE_PREFERENCES.ordinal()] += tableNanos - besideNanos;
+        return soft;
+    }
+
+    private int getSoftScoreForNeighbour(Guest guest, Guest neighbour) {
+        int soft = 0;
+        if (neighbour.getGender() == guest.getGender()) soft--;
+        soft += preferences.getBesideWeight(guest.getIndex(), neighbour.getIndex());
+        return soft;
+    }
+
+}
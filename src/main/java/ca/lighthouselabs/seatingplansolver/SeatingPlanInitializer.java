@@ -0,0 +1,71 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+
+/**
+ * Seats every guest who does not have a seat yet in an empty seat, so that no guest is ever
+ * seated twice. Guests who want to sit with each other are seated next to each other, which gives
+ * the local search a good place to start from.
+ *
+ * @author David VanDusen
+ */
+// This replaces OptaPlanner's construction heuristics, which fill each seat with whichever guest
+// scores best in it at that moment, regardless of whether that guest already has a seat. Because
+// every guest is seated exactly once here, the local search only needs moves that rearrange the
+// guests, and every one of those moves keeps the hard score at zero.
+public class SeatingPlanInitializer implements CustomPhaseCommand {
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector scoreDirector) {
+        SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+        SeatTopology topology = solution.getSeatTopology();
+        GuestPreferenceMatrix preferences = solution.getGuestPreferenceMatrix();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        Guest[] guestsByIndex = new Guest[preferences.getGuestCount()];
+        solution.getGuests().forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+        // Guests who already have a seat, such as in a solution that is being solved again, keep it
+        boolean[] visited = new boolean[guestsByIndex.length];
+        for (Seat seat : seats) {
+            if (seat.getGuest() != null) visited[seat.getGuest().getIndex()] = true;
+        }
+        // Seats are filled in order around each table, one table after the other
+        int position = 0;
+        int[] queue = new int[guestsByIndex.length];
+        for (int firstGuest = 0; firstGuest < guestsByIndex.length; firstGuest++) {
+            if (visited[firstGuest]) continue;
+            // Visit the guests connected to this one by preferences to sit together, breadth first,
+            // so that each group is seated in consecutive seats
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = firstGuest;
+            visited[firstGuest] = true;
+            while (head < tail) {
+                int guest = queue[head++];
+                position = nextEmptyPosition(seats, topology, position);
+                // There are fewer empty seats than guests without one, so the rest stay unseated
+                if (position == seats.length) return;
+                Seat seat = seats[topology.getSeatAtPosition(position)];
+                scoreDirector.beforeVariableChanged(seat, "guest");
+                seat.setGuest(guestsByIndex[guest]);
+                scoreDirector.afterVariableChanged(seat, "guest");
+                for (int related = preferences.getRelatedGuestStart(guest); related < preferences.getRelatedGuestEnd(guest); related++) {
+                    int relatedGuest = preferences.getRelatedGuestAtPosition(related);
+                    if (visited[relatedGuest]) continue;
+                    if (preferences.getBesideWeightAtPosition(related) > 0 || preferences.getSameTableWeightAtPosition(related) > 0) {
+                        visited[relatedGuest] = true;
+                        queue[tail++] = relatedGuest;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int nextEmptyPosition(Seat[] seats, SeatTopology topology, int position) {
+        while (position < seats.length && seats[topology.getSeatAtPosition(position)].getGuest() != null) {
+            position++;
+        }
+        return position;
+    }
+
+}
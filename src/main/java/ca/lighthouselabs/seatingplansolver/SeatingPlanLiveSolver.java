@@ -0,0 +1,172 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Solves a SeatingPlanSolution on a background thread, and accepts changes to its guests and their
+ * preferences while it is being solved. Each change is made to the seating plan that the solver is
+ * working on, which keeps its seat assignments, and the solver carries on improving it from there.
+ *
+ * @author David VanDusen
+ */
+// OptaPlanner's Solver.solve only returns once solving has ended, so the solver is run on its own
+// thread while the methods of this class are called from others. Solver.addProblemFactChange is
+// the one method that is safe to call from another thread while solving, and every change goes
+// through it.
+//
+// The solver is built in daemon mode, so reaching the termination in the solver XML doesn't end
+// solve. Instead the solver waits for the next change and solves again from the changed plan, with
+// the termination starting over, and only stop ends it. Without this, changes made after the
+// termination was reached would be queued and never applied.
+public class SeatingPlanLiveSolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanLiveSolver.class);
+
+    private static final long STOP_RETRY_MILLIS = 100L;
+
+    private final Solver solver;
+
+    private Thread solverThread;
+
+    public SeatingPlanLiveSolver(SolverFactory solverFactory) {
+        // The factory's configuration is restored afterwards, so that it can still be shared
+        synchronized (solverFactory) {
+            SolverConfig solverConfig = solverFactory.getSolverConfig();
+            Boolean configuredDaemon = solverConfig.getDaemon();
+            try {
+                solverConfig.setDaemon(true);
+                this.solver = solverFactory.buildSolver();
+            } finally {
+                solverConfig.setDaemon(configuredDaemon);
+            }
+        }
+    }
+
+    /**
+     * Starts solving a problem on a background thread.
+     *
+     * @param problem the problem to solve
+     */
+    public synchronized void start(SeatingPlanSolution problem) {
+        if (solverThread != null) throw new IllegalStateException("the solver has already been started");
+        solverThread = new Thread(() -> solver.solve(problem), "seating-plan-solver");
+        solverThread.start();
+    }
+
+    /**
+     * Stops solving and waits for the solver to finish.
+     *
+     * @return the best solution found
+     * @throws InterruptedException if interrupted while waiting for the solver to finish
+     */
+    public SeatingPlanSolution stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = solverThread;
+        }
+        if (thread == null) return getBestSolution();
+        // Solver.solve clears an earlier request to terminate when it starts, so if the thread
+        // hasn't got that far yet the request is lost. It is repeated until the thread has ended.
+        do {
+            solver.terminateEarly();
+            thread.join(STOP_RETRY_MILLIS);
+        } while (thread.isAlive());
+        return getBestSolution();
+    }
+
+    /**
+     * Returns the best solution found so far, which includes every change that has been
+     * processed.
+     *
+     * @return the best solution
+     */
+    public SeatingPlanSolution getBestSolution() {
+        return (SeatingPlanSolution) solver.getBestSolution();
+    }
+
+    /**
+     * Returns whether the solver is running, which it is from start until stop, including while it
+     * waits for changes after reaching its termination.
+     *
+     * @return true if the solver is running
+     */
+    public boolean isSolving() {
+        return solver.isSolving();
+    }
+
+    /**
+     * Returns whether every change that has been submitted has been made to the working solution.
+     *
+     * @return true if there are no changes waiting to be made
+     */
+    public boolean isEveryChangeProcessed() {
+        return solver.isEveryProblemFactChangeProcessed();
+    }
+
+    /**
+     * Adds a guest, such as for a late RSVP. The guest is seated in an empty seat, which is added
+     * to the smallest table if there are none.
+     *
+     * @param id the id of the new guest
+     * @param firstName the first name of the new guest
+     * @param lastName the last name of the new guest
+     * @param gender the gender of the new guest
+     */
+    public void addGuest(int id, String firstName, String lastName, Guest.Gender gender) {
+        LOG.info("Adding guest (" + id + ").");
+        solver.addProblemFactChange(SeatingPlanProblemChanges.addGuest(id, firstName, lastName, gender));
+    }
+
+    /**
+     * Removes a guest, leaving their seat empty.
+     *
+     * @param id the id of the guest to remove
+     */
+    public void removeGuest(int id) {
+        LOG.info("Removing guest (" + id + ").");
+        solver.addProblemFactChange(SeatingPlanProblemChanges.removeGuest(id));
+    }
+
+    /**
+     * Updates the name and gender of a guest.
+     *
+     * @param id the id of the guest to update
+     * @param firstName the new first name of the guest
+     * @param lastName the new last name of the guest
+     * @param gender the new gender of the guest
+     */
+    public void editGuest(int id, String firstName, String lastName, Guest.Gender gender) {
+        LOG.info("Editing guest (" + id + ").");
+        solver.addProblemFactChange(SeatingPlanProblemChanges.editGuest(id, firstName, lastName, gender));
+    }
+
+    /**
+     * Adds another guest to one of a guest's preferences, such as a new "do not seat beside"
+     * request.
+     *
+     * @param guestId the id of the guest whose preference it is
+     * @param preference the preference to add the other guest to
+     * @param otherGuestId the id of the guest that the preference is about
+     */
+    public void addPreference(int guestId, SeatingPlanProblemChanges.Preference preference, int otherGuestId) {
+        LOG.info("Adding guest (" + otherGuestId + ") to the " + preference + " preference of guest (" + guestId + ").");
+        solver.addProblemFactChange(SeatingPlanProblemChanges.addPreference(guestId, preference, otherGuestId));
+    }
+
+    /**
+     * Removes another guest from one of a guest's preferences.
+     *
+     * @param guestId the id of the guest whose preference it is
+     * @param preference the preference to remove the other guest from
+     * @param otherGuestId the id of the guest that the preference is about
+     */
+    public void removePreference(int guestId, SeatingPlanProblemChanges.Preference preference, int otherGuestId) {
+        LOG.info("Removing guest (" + otherGuestId + ") from the " + preference + " preference of guest (" + guestId + ").");
+        solver.addProblemFactChange(SeatingPlanProblemChanges.removePreference(guestId, preference, otherGuestId));
+    }
+
+}
@@ -0,0 +1,324 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import ca.lighthouselabs.seatingplansolver.SeatingPlanIncrementalScoreCalculator.TimedConstraint;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.event.BestSolutionChangedEvent;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
+import org.optaplanner.core.impl.localsearch.scope.LocalSearchStepScope;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.phase.scope.AbstractPhaseScope;
+import org.optaplanner.core.impl.phase.scope.AbstractStepScope;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+import org.optaplanner.core.impl.solver.scope.DefaultSolverScope;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Collects measurements of a Solver while it solves a SeatingPlanSolution: how many scores it
+ * calculates, how many moves it evaluates and accepts, how its best score improves, and how long
+ * the SeatingPlanIncrementalScoreCalculator spends on each group of constraints. The measurements
+ * can be exported as a line of JSON or in the Prometheus text format.
+ *
+ * @author David VanDusen
+ */
+// The measurements are taken at the end of each step rather than for each move, because a step
+// evaluates up to acceptedCountLimit moves and the solver already keeps count of them. Every
+// measurement is written by the solver's thread and read by whichever thread exports them, so each
+// one is a volatile field or an atomic array that only the solver's thread updates.
+//
+// When there are problem fact changes, DefaultSolver applies them to its score director and then
+// restarts, and every start builds a new score director, which counts score calculations and
+// constraint times from zero again. The score calculations made while the changes were applied
+// happen after the old score director's last update, so its final totals are added when the new
+// one is first seen. The exported counts never go down and include every score director.
+public class SeatingPlanMetrics {
+
+    /**
+     * The system property that turns on constraint timing in the programs that log or serve the
+     * metrics, such as -Dseatingplan.constraintTiming=true. Timing is off unless it is set.
+     */
+    public static final String CONSTRAINT_TIMING_PROPERTY = "seatingplan.constraintTiming";
+
+    private static final int CONSTRAINT_COUNT = TimedConstraint.values().length;
+
+    private final boolean constraintTimingEnabled;
+
+    private volatile long startTimeMillis;
+
+    private volatile long timeMillisSpent;
+
+    // The score director that the solver is using, and the final totals of the score directors
+    // that it used before it restarted, which are only used by the solver's thread
+    private InnerScoreDirector scoreDirector;
+
+    private long previousCalculateCount;
+
+    private final long[] previousConstraintNanos = new long[CONSTRAINT_COUNT];
+
+    private volatile long calculateCount;
+
+    private volatile long stepCount;
+
+    private volatile long evaluatedMoveCount;
+
+    private volatile long acceptedMoveCount;
+
+    private volatile HardSoftScore bestScore;
+
+    private volatile long bestScoreTimeMillis;
+
+    private volatile long bestScoreImprovementCount;
+
+    private final AtomicLongArray constraintNanos = new AtomicLongArray(CONSTRAINT_COUNT);
+
+    /**
+     * Creates an object for collecting the measurements of one solver.
+     *
+     * @param constraintTimingEnabled whether to measure the time spent on each group of
+     *                                constraints, which slows down score calculation
+     */
+    public SeatingPlanMetrics(boolean constraintTimingEnabled) {
+        this.constraintTimingEnabled = constraintTimingEnabled;
+    }
+
+    /**
+     * Starts collecting the measurements of a solver. It must be called before the solver starts
+     * solving, and the solver must be one built by a SolverFactory.
+     *
+     * @param solver the solver to measure
+     */
+    @SuppressWarnings("unchecked")
+    public void attach(Solver solver) {
+        if (!(solver instanceof DefaultSolver)) {
+            throw new IllegalArgumentException("only solvers built by a SolverFactory can be measured");
+        }
+        Listener listener = new Listener();
+        ((DefaultSolver) solver).addPhaseLifecycleListener(listener);
+        solver.addEventListener(listener);
+    }
+
+    public long getTimeMillisSpent() {
+        return timeMillisSpent;
+    }
+
+    public long getCalculateCount() {
+        return calculateCount;
+    }
+
+    /**
+     * Returns the average number of scores calculated per second since solving started.
+     *
+     * @return the number of scores per second
+     */
+    public long getCalculateCountPerSecond() {
+        long millis = timeMillisSpent;
+        return millis == 0L ? 0L : calculateCount * 1000L / millis;
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    public long getEvaluatedMoveCount() {
+        return evaluatedMoveCount;
+    }
+
+    public long getAcceptedMoveCount() {
+        return acceptedMoveCount;
+    }
+
+    public HardSoftScore getBestScore() {
+        return bestScore;
+    }
+
+    public long getBestScoreTimeMillis() {
+        return bestScoreTimeMillis;
+    }
+
+    public long getBestScoreImprovementCount() {
+        return bestScoreImprovementCount;
+    }
+
+    /**
+     * Returns the time spent calculating a group of constraints.
+     *
+     * @param constraint the group of constraints
+     * @return the time spent in nanoseconds, or 0 if constraint timing is disabled
+     */
+    public long getConstraintNanos(TimedConstraint constraint) {
+        return constraintNanos.get(constraint.ordinal());
+    }
+
+    /**
+     * Returns the measurements as a single line of JSON.
+     *
+     * @return the JSON representation
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        HardSoftScore score = bestScore;
+        sb.append("{\"timeMillisSpent\":").append(timeMillisSpent);
+        sb.append(",\"scoreCalculations\":").append(calculateCount);
+        sb.append(",\"scoreCalculationsPerSecond\":").append(getCalculateCountPerSecond());
+        sb.append(",\"steps\":").append(stepCount);
+        sb.append(",\"evaluatedMoves\":").append(evaluatedMoveCount);
+        sb.append(",\"acceptedMoves\":").append(acceptedMoveCount);
+        sb.append(",\"bestScore\":").append(score == null ? "null" : "\"" + score + "\"");
+        sb.append(",\"bestScoreTimeMillis\":").append(bestScoreTimeMillis);
+        sb.append(",\"bestScoreImprovements\":").append(bestScoreImprovementCount);
+        if (constraintTimingEnabled) {
+            sb.append(",\"constraintMillis\":{");
+            for (TimedConstraint constraint : TimedConstraint.values()) {
+                if (constraint.ordinal() > 0) sb.append(',');
+                sb.append('"').append(constraint.name()).append("\":");
+                sb.append(getConstraintNanos(constraint) / 1000000L);
+            }
+            sb.append('}');
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Returns the measurements of several solvers in the Prometheus text format, with a label
+     * naming the solve that each measurement belongs to.
+     *
+     * @param metricsBySolve the measurements of each solver, by the name of its solve
+     * @return the measurements in the Prometheus text format
+     */
+    public static String toPrometheusText(Map<String, SeatingPlanMetrics> metricsBySolve) {
+        StringBuilder sb = new StringBuilder();
+        appendFamily(sb, "seating_plan_time_spent_seconds", "gauge", "Time spent solving.", metricsBySolve,
+                metrics -> metrics.timeMillisSpent / 1000.0);
+        appendFamily(sb, "seating_plan_score_calculations_total", "counter", "Scores calculated.", metricsBySolve,
+                metrics -> metrics.calculateCount);
+        appendFamily(sb, "seating_plan_score_calculations_per_second", "gauge", "Average scores calculated per second.", metricsBySolve,
+                SeatingPlanMetrics::getCalculateCountPerSecond);
+        appendFamily(sb, "seating_plan_steps_total", "counter", "Local search steps taken.", metricsBySolve,
+                metrics -> metrics.stepCount);
+        appendFamily(sb, "seating_plan_evaluated_moves_total", "counter", "Local search moves evaluated.", metricsBySolve,
+                metrics -> metrics.evaluatedMoveCount);
+        appendFamily(sb, "seating_plan_accepted_moves_total", "counter", "Local search moves accepted.", metricsBySolve,
+                metrics -> metrics.acceptedMoveCount);
+        appendFamily(sb, "seating_plan_best_hard_score", "gauge", "Hard score of the best solution.", metricsBySolve,
+                metrics -> metrics.bestScore == null ? Double.NaN : metrics.bestScore.getHardScore());
+        appendFamily(sb, "seating_plan_best_soft_score", "gauge", "Soft score of the best solution.", metricsBySolve,
+                metrics -> metrics.bestScore == null ? Double.NaN : metrics.bestScore.getSoftScore());
+        appendFamily(sb, "seating_plan_best_score_time_seconds", "gauge", "Time at which the best solution was found.", metricsBySolve,
+                metrics -> metrics.bestScoreTimeMillis / 1000.0);
+        String name = "seating_plan_constraint_seconds_total";
+        sb.append("# HELP ").append(name).append(" Time spent calculating each group of constraints.\n");
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        metricsBySolve.forEach((solve, metrics) -> {
+            if (!metrics.constraintTimingEnabled) return;
+            for (TimedConstraint constraint : TimedConstraint.values()) {
+                sb.append(name).append("{solve=\"").append(escapeLabel(solve)).append("\",constraint=\"");
+                sb.append(constraint.name().toLowerCase()).append("\"} ");
+                sb.append(metrics.getConstraintNanos(constraint) / 1e9).append('\n');
+            }
+        });
+        return sb.toString();
+    }
+
+    private static void appendFamily(StringBuilder sb, String name, String type, String help,
+                                     Map<String, SeatingPlanMetrics> metricsBySolve,
+                                     ToDoubleFunction<SeatingPlanMetrics> value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        metricsBySolve.forEach((solve, metrics) -> {
+            sb.append(name).append("{solve=\"").append(escapeLabel(solve)).append("\"} ");
+            double number = value.applyAsDouble(metrics);
+            if (number == Math.rint(number) && !Double.isInfinite(number)) {
+                sb.append((long) number);
+            } else {
+                sb.append(number);
+            }
+            sb.append('\n');
+        });
+    }
+
+    private static String escapeLabel(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Updates the measurements from the solver's thread.
+    private class Listener extends PhaseLifecycleListenerAdapter implements SolverEventListener<SeatingPlanSolution> {
+
+        @Override
+        public void phaseStarted(AbstractPhaseScope phaseScope) {
+            // The score director and its calculator are replaced when the solver restarts, so timing
+            // is enabled again at the start of every phase
+            SeatingPlanIncrementalScoreCalculator calculator = getScoreCalculator(phaseScope.getScoreDirector());
+            if (calculator != null) calculator.setConstraintTimingEnabled(constraintTimingEnabled);
+        }
+
+        @Override
+        public void stepEnded(AbstractStepScope stepScope) {
+            if (stepScope instanceof LocalSearchStepScope) {
+                LocalSearchStepScope localSearchStepScope = (LocalSearchStepScope) stepScope;
+                stepCount++;
+                if (localSearchStepScope.getSelectedMoveCount() != null) {
+                    evaluatedMoveCount += localSearchStepScope.getSelectedMoveCount();
+                }
+                if (localSearchStepScope.getAcceptedMoveCount() != null) {
+                    acceptedMoveCount += localSearchStepScope.getAcceptedMoveCount();
+                }
+            }
+            update(stepScope.getPhaseScope().getSolverScope());
+        }
+
+        @Override
+        public void phaseEnded(AbstractPhaseScope phaseScope) {
+            update(phaseScope.getSolverScope());
+        }
+
+        @Override
+        public void bestSolutionChanged(BestSolutionChangedEvent<SeatingPlanSolution> event) {
+            if (!event.isNewBestSolutionInitialized()) return;
+            bestScore = event.getNewBestSolution().getScore();
+            bestScoreTimeMillis = event.getTimeMillisSpent();
+            bestScoreImprovementCount++;
+        }
+
+        private void update(DefaultSolverScope solverScope) {
+            if (startTimeMillis == 0L) startTimeMillis = solverScope.getStartingSystemTimeMillis();
+            // A new score director means the solver has restarted, and the old one has made its
+            // last score calculations
+            if (solverScope.getScoreDirector() != scoreDirector) {
+                if (scoreDirector != null) addFinalTotals(scoreDirector);
+                scoreDirector = solverScope.getScoreDirector();
+            }
+            timeMillisSpent = System.currentTimeMillis() - startTimeMillis;
+            calculateCount = previousCalculateCount + solverScope.getCalculateCount();
+            SeatingPlanIncrementalScoreCalculator calculator = getScoreCalculator(solverScope.getScoreDirector());
+            if (calculator == null || !constraintTimingEnabled) return;
+            for (TimedConstraint constraint : TimedConstraint.values()) {
+                int i = constraint.ordinal();
+                constraintNanos.set(i, previousConstraintNanos[i] + calculator.getConstraintNanos(constraint));
+            }
+        }
+
+        private void addFinalTotals(InnerScoreDirector oldScoreDirector) {
+            previousCalculateCount += oldScoreDirector.getCalculateCount();
+            SeatingPlanIncrementalScoreCalculator calculator = getScoreCalculator(oldScoreDirector);
+            if (calculator == null || !constraintTimingEnabled) return;
+            for (TimedConstraint constraint : TimedConstraint.values()) {
+                previousConstraintNanos[constraint.ordinal()] += calculator.getConstraintNanos(constraint);
+            }
+        }
+
+        // Returns the score calculator if the solver is configured with the incremental one.
+        private SeatingPlanIncrementalScoreCalculator getScoreCalculator(InnerScoreDirector scoreDirector) {
+            if (!(scoreDirector instanceof IncrementalScoreDirector)) return null;
+            Object calculator = ((IncrementalScoreDirector) scoreDirector).getIncrementalScoreCalculator();
+            return calculator instanceof SeatingPlanIncrementalScoreCalculator ? (SeatingPlanIncrementalScoreCalculator) calculator : null;
+        }
+
+    }
+
+}
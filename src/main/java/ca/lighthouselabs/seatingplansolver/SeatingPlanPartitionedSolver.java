@@ -0,0 +1,341 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Solves a large seating plan problem by splitting it into partitions of consecutive tables, each
+ * with a share of the guests, solving the partitions in parallel, and then merging the results and
+ * improving the whole solution with a short local search.
+ *
+ * @author David VanDusen
+ */
+// This is known as partitioned search. The time a local search needs grows much faster than the
+// size of the problem, so several small problems can be solved much faster than one big one, and
+// each of them can use its own core. Guests who want to sit with each other are kept in the same
+// partition wherever possible, because preferences between guests in different partitions can only
+// be satisfied by the final local search over the whole solution.
+public class SeatingPlanPartitionedSolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanPartitionedSolver.class);
+
+    private final SolverFactory solverFactory;
+
+    private final int partitionCount;
+
+    private final int threadCount;
+
+    private long mergeSecondsSpentLimit = 60L;
+
+    /**
+     * Creates a partitioned solver that solves each partition with a solver built by the given
+     * factory.
+     *
+     * @param solverFactory the factory that each partition's solver is built with
+     * @param partitionCount the number of partitions to split the problem into
+     * @param threadCount the number of partitions to solve at once
+     */
+    public SeatingPlanPartitionedSolver(SolverFactory solverFactory, int partitionCount, int threadCount) {
+        if (partitionCount < 1) throw new IllegalArgumentException("partition count (" + partitionCount + ") must be at least 1");
+        if (threadCount < 1) throw new IllegalArgumentException("thread count (" + threadCount + ") must be at least 1");
+        this.solverFactory = solverFactory;
+        this.partitionCount = partitionCount;
+        this.threadCount = threadCount;
+    }
+
+    public long getMergeSecondsSpentLimit() {
+        return mergeSecondsSpentLimit;
+    }
+
+    /**
+     * Sets how long the local search over the whole merged solution runs for.
+     *
+     * @param mergeSecondsSpentLimit the time limit in seconds
+     */
+    public void setMergeSecondsSpentLimit(long mergeSecondsSpentLimit) {
+        this.mergeSecondsSpentLimit = mergeSecondsSpentLimit;
+    }
+
+    /**
+     * Solves the planning problem and returns the best solution found. The planning problem itself
+     * is not changed.
+     *
+     * @param planningProblem the problem to solve
+     * @return the best solution found
+     * @throws InterruptedException if the thread is interrupted while waiting for the partitions
+     */
+    public SeatingPlanSolution solve(SeatingPlanSolution planningProblem) throws InterruptedException {
+        List<Partition> partitions = createPartitions(planningProblem);
+        LOG.info("Solving ({}) partitions on ({}) threads.", partitions.size(), threadCount);
+        List<Solver> solvers = buildPartitionSolvers(partitions.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<SeatingPlanSolution>> futures = new ArrayList<>(partitions.size());
+            for (int i = 0; i < partitions.size(); i++) {
+                Solver solver = solvers.get(i);
+                SeatingPlanSolution partitionProblem = partitions.get(i).problem;
+                futures.add(executor.submit(() -> {
+                    solver.solve(partitionProblem);
+                    return (SeatingPlanSolution) solver.getBestSolution();
+                }));
+            }
+            for (int i = 0; i < partitions.size(); i++) {
+                try {
+                    partitions.get(i).solution = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // Stop the other partitions rather than letting them run out their time
+                    solvers.forEach(Solver::terminateEarly);
+                    throw new IllegalStateException("solving partition (" + i + ") failed", e.getCause());
+                }
+                LOG.info("Partition ({}) finished with score ({}).", i, partitions.get(i).solution.getScore());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        SeatingPlanSolution mergedSolution = merge(planningProblem, partitions);
+        Solver mergeSolver = buildLocalSearchSolver(solverFactory, mergeSecondsSpentLimit);
+        mergeSolver.solve(mergedSolution);
+        return (SeatingPlanSolution) mergeSolver.getBestSolution();
+    }
+
+    // Builds a solver for each partition. When there are more partitions than threads, the
+    // partitions are solved in several rounds, so each of them gets the configured time limit divided
+    // by the number of rounds. The factory's termination is restored afterwards so that it can still
+    // be used to build a normal solver.
+    private List<Solver> buildPartitionSolvers(int count) {
+        List<Solver> solvers = new ArrayList<>(count);
+        synchronized (solverFactory) {
+            SolverConfig solverConfig = solverFactory.getSolverConfig();
+            TerminationConfig terminationConfig = solverConfig.getTerminationConfig();
+            Long timeMillisSpentLimit = terminationConfig == null ? null : terminationConfig.calculateTimeMillisSpentLimit();
+            try {
+                if (timeMillisSpentLimit != null && count > threadCount) {
+                    long partitionMillisSpentLimit = getPartitionMillisSpentLimit(timeMillisSpentLimit, count, threadCount);
+                    LOG.info("Solving each partition for ({}) ms.", partitionMillisSpentLimit);
+                    TerminationConfig partitionTerminationConfig = new TerminationConfig();
+                    partitionTerminationConfig.setMillisecondsSpentLimit(partitionMillisSpentLimit);
+                    // The configured termination still applies, such as a best score limit
+                    partitionTerminationConfig.setTerminationConfigList(Collections.singletonList(terminationConfig));
+                    solverConfig.setTerminationConfig(partitionTerminationConfig);
+                }
+                for (int i = 0; i < count; i++) {
+                    solvers.add(solverFactory.buildSolver());
+                }
+            } finally {
+                solverConfig.setTerminationConfig(terminationConfig);
+            }
+        }
+        return solvers;
+    }
+
+    // Returns the time limit of each of count partitions solved threadCount at a time. The last round
+    // can have fewer partitions than threads, but it still takes as long as a full one, so the limit
+    // is divided by the number of rounds rather than by the share of the partitions per thread.
+    static long getPartitionMillisSpentLimit(long timeMillisSpentLimit, int count, int threadCount) {
+        int roundCount = (count + threadCount - 1) / threadCount;
+        return Math.max(timeMillisSpentLimit / roundCount, 1L);
+    }
+
+    // Splits the tables into partitionCount ranges of consecutive tables, then distributes the
+    // groups of guests who want to sit with each other among the ranges with the most free seats.
+    private List<Partition> createPartitions(SeatingPlanSolution planningProblem) {
+        SeatTopology topology = planningProblem.getSeatTopology();
+        GuestPreferenceMatrix preferences = planningProblem.getGuestPreferenceMatrix();
+        int count = Math.min(partitionCount, topology.getTableCount());
+        List<Partition> partitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Partition partition = new Partition();
+            partition.firstTable = topology.getTableCount() * i / count;
+            partition.endTable = topology.getTableCount() * (i + 1) / count;
+            partition.freeSeats = topology.getTableEnd(partition.endTable - 1) - topology.getTableStart(partition.firstTable);
+            partitions.add(partition);
+        }
+        List<int[]> groups = getGroups(preferences);
+        // Place the largest groups first, while there is still the most room to keep them together
+        groups.sort(Comparator.comparingInt((int[] group) -> group.length).reversed());
+        PriorityQueue<Partition> partitionsByFreeSeats =
+                new PriorityQueue<>(Comparator.comparingInt((Partition partition) -> partition.freeSeats).reversed());
+        partitionsByFreeSeats.addAll(partitions);
+        for (int[] group : groups) {
+            int placed = 0;
+            // A group that is too big for any partition is split over several of them
+            while (placed < group.length) {
+                Partition partition = partitionsByFreeSeats.poll();
+                int end = Math.min(group.length, placed + partition.freeSeats);
+                partition.freeSeats -= end - placed;
+                for (; placed < end; placed++) {
+                    partition.guestIndexes.add(group[placed]);
+                }
+                partitionsByFreeSeats.add(partition);
+            }
+        }
+        // With fewer guests than partitions, some partitions are left with empty tables
+        partitions.removeIf(partition -> partition.guestIndexes.isEmpty());
+        Guest[] guestsByIndex = new Guest[preferences.getGuestCount()];
+        planningProblem.getGuests().forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(planningProblem.getSeats());
+        partitions.forEach(partition -> partition.problem = createProblem(partition, guestsByIndex, seats, topology));
+        return partitions;
+    }
+
+    // Groups the guests that are connected by positive preferences, such as families, by joining
+    // the groups of each pair of guests where one wants to sit beside or at the same table as the
+    // other. The guests in each group are in index order.
+    static List<int[]> getGroups(GuestPreferenceMatrix preferences) {
+        int[] parents = new int[preferences.getGuestCount()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+        for (int i = 0; i < parents.length; i++) {
+            for (int position = preferences.getRelatedGuestStart(i); position < preferences.getRelatedGuestEnd(i); position++) {
+                if (preferences.getBesideWeightAtPosition(position) > 0 || preferences.getSameTableWeightAtPosition(position) > 0) {
+                    parents[findRoot(parents, i)] = findRoot(parents, preferences.getRelatedGuestAtPosition(position));
+                }
+            }
+        }
+        Map<Integer, List<Integer>> groupsByRoot = new LinkedHashMap<>();
+        for (int i = 0; i < parents.length; i++) {
+            groupsByRoot.computeIfAbsent(findRoot(parents, i), root -> new ArrayList<>()).add(i);
+        }
+        return groupsByRoot.values().stream()
+                .map(group -> group.stream().mapToInt(Integer::intValue).toArray())
+                .collect(Collectors.toList());
+    }
+
+    // Finds the guest that represents a group, shortening the path to it along the way.
+    private static int findRoot(int[] parents, int guestIndex) {
+        while (parents[guestIndex] != guestIndex) {
+            parents[guestIndex] = parents[parents[guestIndex]];
+            guestIndex = parents[guestIndex];
+        }
+        return guestIndex;
+    }
+
+    // Creates the problem for a partition from copies of its guests and seats, because creating a
+    // solution sets the indexes of its guests and seats, which must not change those of the whole
+    // problem. Preferences about guests in other partitions are left out.
+    private static SeatingPlanSolution createProblem(Partition partition, Guest[] guestsByIndex, Seat[] seats,
+                                                     SeatTopology topology) {
+        Map<Guest, Guest> copies = new IdentityHashMap<>();
+        for (int guestIndex : partition.guestIndexes) {
+            Guest guest = guestsByIndex[guestIndex];
+            Guest copy = new Guest();
+            copy.setId(guest.getId());
+            copy.setFirstName(guest.getFirstName());
+            copy.setLastName(guest.getLastName());
+            copy.setGender(guest.getGender());
+            copies.put(guest, copy);
+        }
+        List<Guest> guests = new ArrayList<>(partition.guestIndexes.size());
+        for (int guestIndex : partition.guestIndexes) {
+            Guest guest = guestsByIndex[guestIndex];
+            Guest copy = copies.get(guest);
+            copy.setSeatAtSameTable(getCopies(guest.getSeatAtSameTable(), copies::get));
+            copy.setSeatBeside(getCopies(guest.getSeatBeside(), copies::get));
+            copy.setDoNotSeatAtSameTable(getCopies(guest.getDoNotSeatAtSameTable(), copies::get));
+            copy.setDoNotSeatBeside(getCopies(guest.getDoNotSeatBeside(), copies::get));
+            guests.add(copy);
+        }
+        int firstSeat = topology.getTableStart(partition.firstTable);
+        int endSeat = topology.getTableEnd(partition.endTable - 1);
+        Map<Integer, Seat> seatCopies = new HashMap<>();
+        List<Seat> partitionSeats = new ArrayList<>(endSeat - firstSeat);
+        for (int position = firstSeat; position < endSeat; position++) {
+            Seat seat = seats[topology.getSeatAtPosition(position)];
+            Seat copy = new Seat();
+            copy.setTableNumber(seat.getTableNumber());
+            copy.setSeatNumber(seat.getSeatNumber());
+            seatCopies.put(seat.getId(), copy);
+            partitionSeats.add(copy);
+            partition.seatIndexes.add(seat.getId());
+        }
+        // Seats are only ever linked to seats at the same table, which are in the same partition
+        for (int position = firstSeat; position < endSeat; position++) {
+            Seat seat = seats[topology.getSeatAtPosition(position)];
+            if (seat.getLeft() != null) seatCopies.get(seat.getId()).setLeft(seatCopies.get(seat.getLeft().getId()));
+            if (seat.getRight() != null) seatCopies.get(seat.getId()).setRight(seatCopies.get(seat.getRight().getId()));
+        }
+        return SeatingPlanSolutionFactory.createFromGuestsAndSeats(guests, partitionSeats);
+    }
+
+    private static Set<Guest> getCopies(Set<Guest> guests, Function<Guest, Guest> copies) {
+        Set<Guest> guestCopies = new HashSet<>();
+        for (Guest guest : guests) {
+            Guest copy = copies.apply(guest);
+            if (copy != null) guestCopies.add(copy);
+        }
+        return guestCopies;
+    }
+
+    // Copies the seat assignments of each partition's solution into a copy of the whole problem.
+    // The seats of a partition's problem are in the same order as the seat indexes it covers, and
+    // its guests are in the same order as the guest indexes it was given.
+    private static SeatingPlanSolution merge(SeatingPlanSolution planningProblem, List<Partition> partitions) {
+        SeatingPlanSolution mergedSolution = SeatingPlanSolutionFactory.createCopy(planningProblem);
+        Guest[] guestsByIndex = new Guest[mergedSolution.getGuestPreferenceMatrix().getGuestCount()];
+        mergedSolution.getGuests().forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(mergedSolution.getSeats());
+        for (Partition partition : partitions) {
+            for (Seat seat : partition.solution.getSeats()) {
+                Guest guest = seat.getGuest();
+                seats[partition.seatIndexes.get(seat.getId())].setGuest(
+                        guest == null ? null : guestsByIndex[partition.guestIndexes.get(guest.getIndex())]);
+            }
+        }
+        return mergedSolution;
+    }
+
+    // Builds a solver with the same score calculation as the configured solver but only its local
+    // search phases, because the merged solution is already complete, and a shorter time limit.
+    static Solver buildLocalSearchSolver(SolverFactory solverFactory, long secondsSpentLimit) {
+        SolverConfig solverConfig = solverFactory.getSolverConfig();
+        SolverConfig mergeSolverConfig = new SolverConfig();
+        mergeSolverConfig.setEnvironmentMode(solverConfig.getEnvironmentMode());
+        mergeSolverConfig.setRandomSeed(solverConfig.getRandomSeed());
+        mergeSolverConfig.setSolutionClass(solverConfig.getSolutionClass());
+        mergeSolverConfig.setEntityClassList(solverConfig.getEntityClassList());
+        mergeSolverConfig.setScoreDirectorFactoryConfig(solverConfig.getScoreDirectorFactoryConfig());
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setSecondsSpentLimit(secondsSpentLimit);
+        mergeSolverConfig.setTerminationConfig(terminationConfig);
+        List<PhaseConfig> phaseConfigs = solverConfig.getPhaseConfigList().stream()
+                .filter(phaseConfig -> phaseConfig instanceof LocalSearchPhaseConfig)
+                .collect(Collectors.toList());
+        if (phaseConfigs.isEmpty()) phaseConfigs.add(new LocalSearchPhaseConfig());
+        mergeSolverConfig.setPhaseConfigList(phaseConfigs);
+        return mergeSolverConfig.buildSolver();
+    }
+
+    private static class Partition {
+
+        // The partition has the tables from firstTable up to, but not including, endTable
+        private int firstTable;
+
+        private int endTable;
+
+        private int freeSeats;
+
+        // The indexes of the partition's guests and seats in the whole problem, in the order of
+        // their indexes in the partition's problem
+        private final List<Integer> guestIndexes = new ArrayList<>();
+
+        private final List<Integer> seatIndexes = new ArrayList<>();
+
+        private SeatingPlanSolution problem;
+
+        private SeatingPlanSolution solution;
+
+    }
+
+}
@@ -0,0 +1,256 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.ProblemFactChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Solves a seating plan problem with several solvers at once, each on its own thread and each
+ * with a different random seed, and returns the best solution found by any of them. Workers that
+ * fall behind are periodically restarted from the best solution found so far.
+ *
+ * @author David VanDusen
+ */
+// This is known as a portfolio approach to parallel solving. A single local search only follows
+// one path through the possible solutions, and which path it takes depends on its random seed.
+// Running several searches with different seeds explores several paths in the same amount of time.
+// Copying the best seat assignments into the searches that have stopped improving means that no
+// thread keeps wasting its time on a path that is clearly worse than another one.
+public class SeatingPlanPortfolioSolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanPortfolioSolver.class);
+
+    // The index stored for a seat that has no guest
+    private static final int NO_GUEST = -1;
+
+    private final SolverFactory solverFactory;
+
+    private final int threadCount;
+
+    private long reseedIntervalMillis = 30000L;
+
+    private SeatingPlanTermination termination;
+
+    // The best solution found by any of the workers, guarded by this object
+    private SeatingPlanSolution bestSolution;
+
+    /**
+     * Creates a portfolio solver that builds its solvers with the given factory.
+     *
+     * @param solverFactory the factory that each worker's solver is built with
+     * @param threadCount the number of solvers to run at once
+     */
+    public SeatingPlanPortfolioSolver(SolverFactory solverFactory, int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("thread count (" + threadCount + ") must be at least 1");
+        this.solverFactory = solverFactory;
+        this.threadCount = threadCount;
+    }
+
+    public long getReseedIntervalMillis() {
+        return reseedIntervalMillis;
+    }
+
+    /**
+     * Sets how often the workers are checked, and the ones that have not improved since the last
+     * check and are worse than the best solution are restarted from the best solution.
+     *
+     * @param reseedIntervalMillis the time between checks in milliseconds
+     */
+    public void setReseedIntervalMillis(long reseedIntervalMillis) {
+        this.reseedIntervalMillis = reseedIntervalMillis;
+    }
+
+    public SeatingPlanTermination getTermination() {
+        return termination;
+    }
+
+    /**
+     * Sets when each worker's solver stops, which it does at the termination in the solver
+     * configuration if this isn't set.
+     *
+     * @param termination the termination of the workers, or null
+     */
+    public void setTermination(SeatingPlanTermination termination) {
+        this.termination = termination;
+    }
+
+    /**
+     * Solves the planning problem on all the threads until every solver terminates, and returns the
+     * best solution found by any of them. The planning problem itself is not changed.
+     *
+     * @param planningProblem the problem to solve
+     * @return the best solution found
+     * @throws InterruptedException if the thread is interrupted while waiting for the solvers
+     */
+    public SeatingPlanSolution solve(SeatingPlanSolution planningProblem) throws InterruptedException {
+        synchronized (this) {
+            bestSolution = null;
+        }
+        List<Worker> workers = buildWorkers(planningProblem);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.scheduleWithFixedDelay(() -> reseedLaggingWorkers(workers),
+                    reseedIntervalMillis, reseedIntervalMillis, TimeUnit.MILLISECONDS);
+            List<Future<?>> futures = new ArrayList<>();
+            workers.forEach(worker -> futures.add(executor.submit(worker)));
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Stop the other workers rather than letting them run out their time
+                    workers.forEach(worker -> worker.solver.terminateEarly());
+                    throw new IllegalStateException("a solver failed", e.getCause());
+                }
+            }
+        } finally {
+            scheduler.shutdownNow();
+            executor.shutdownNow();
+        }
+        return getBestSolution();
+    }
+
+    /**
+     * Returns the best solution found by any worker so far, which can be called while solving.
+     *
+     * @return the best solution, or null if no worker has initialized a solution yet
+     */
+    public synchronized SeatingPlanSolution getBestSolution() {
+        return bestSolution;
+    }
+
+    // Builds a solver for each thread with a seed that is offset from the configured one. The
+    // seed is restored afterwards so that the factory can still be used to build a normal solver.
+    private List<Worker> buildWorkers(SeatingPlanSolution planningProblem) {
+        List<Worker> workers = new ArrayList<>(threadCount);
+        synchronized (solverFactory) {
+            SolverConfig solverConfig = solverFactory.getSolverConfig();
+            Long randomSeed = solverConfig.getRandomSeed();
+            try {
+                for (int i = 0; i < threadCount; i++) {
+                    solverConfig.setRandomSeed((randomSeed == null ? 0L : randomSeed) + i);
+                    // Each solver needs its own copy of the problem because the solver sets its score
+                    Solver solver = termination == null ? solverFactory.buildSolver() : termination.buildSolver(solverFactory, planningProblem);
+                    workers.add(new Worker(i, solver, SeatingPlanSolutionFactory.createCopy(planningProblem)));
+                }
+            } finally {
+                solverConfig.setRandomSeed(randomSeed);
+            }
+        }
+        return workers;
+    }
+
+    // Replaces the best solution if the given one is better.
+    private synchronized void offerBestSolution(SeatingPlanSolution solution, Worker worker) {
+        if (bestSolution == null || solution.getScore().compareTo(bestSolution.getScore()) > 0) {
+            bestSolution = solution;
+            LOG.debug("Worker ({}) found a new best score ({}).", worker.index, solution.getScore());
+        }
+    }
+
+    private void reseedLaggingWorkers(List<Worker> workers) {
+        SeatingPlanSolution solution = getBestSolution();
+        if (solution == null) return;
+        int[] guestIndexes = null;
+        for (Worker worker : workers) {
+            HardSoftScore score = worker.bestScore;
+            if (!worker.improved && score != null && score.compareTo(solution.getScore()) < 0) {
+                if (guestIndexes == null) guestIndexes = getGuestIndexes(solution);
+                LOG.debug("Reseeding worker ({}) with score ({}) from best score ({}).", worker.index, score, solution.getScore());
+                worker.solver.addProblemFactChange(new CopySeatAssignmentsChange(guestIndexes, solution.getScore()));
+            }
+            worker.improved = false;
+        }
+    }
+
+    // Returns the index of the guest in each seat, by seat index, which can be applied to any copy
+    // of the problem because the copies share the same guests and seat indexes.
+    private static int[] getGuestIndexes(SeatingPlanSolution solution) {
+        int[] guestIndexes = new int[solution.getSeats().size()];
+        for (Seat seat : solution.getSeats()) {
+            guestIndexes[seat.getId()] = seat.getGuest() == null ? NO_GUEST : seat.getGuest().getIndex();
+        }
+        return guestIndexes;
+    }
+
+    private class Worker implements Runnable {
+
+        private final int index;
+
+        private final Solver solver;
+
+        private final SeatingPlanSolution planningProblem;
+
+        // The score of this worker's best solution, and whether it has improved since the last
+        // reseed check. They are written by the worker's thread and read by the scheduler's thread.
+        private volatile HardSoftScore bestScore;
+
+        private volatile boolean improved;
+
+        private Worker(int index, Solver solver, SeatingPlanSolution planningProblem) {
+            this.index = index;
+            this.solver = solver;
+            this.planningProblem = planningProblem;
+            // The solution in the event is a new clone that the solver never changes again, so it
+            // is safe to keep a reference to it
+            solver.addEventListener(event -> {
+                if (!event.isNewBestSolutionInitialized()) return;
+                SeatingPlanSolution solution = (SeatingPlanSolution) event.getNewBestSolution();
+                bestScore = solution.getScore();
+                improved = true;
+                offerBestSolution(solution, this);
+            });
+        }
+
+        @Override
+        public void run() {
+            solver.solve(planningProblem);
+            LOG.info("Worker ({}) finished with score ({}).", index, bestScore);
+        }
+
+    }
+
+    // Assigns every seat in the working solution the same guest as in another solution. The
+    // solver restarts from the changed solution and makes it its best solution.
+    private static class CopySeatAssignmentsChange implements ProblemFactChange {
+
+        private final int[] guestIndexes;
+
+        private final HardSoftScore score;
+
+        private CopySeatAssignmentsChange(int[] guestIndexes, HardSoftScore score) {
+            this.guestIndexes = guestIndexes;
+            this.score = score;
+        }
+
+        @Override
+        public void doChange(ScoreDirector scoreDirector) {
+            // The working solution starts as the worker's best solution, which may have caught up
+            // in the time between deciding to reseed the worker and the change being done
+            if (((HardSoftScore) scoreDirector.calculateScore()).compareTo(score) >= 0) return;
+            SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+            Guest[] guestsByIndex = new Guest[solution.getGuests().size()];
+            solution.getGuests().forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+            for (Seat seat : solution.getSeats()) {
+                int guestIndex = guestIndexes[seat.getId()];
+                Guest guest = guestIndex == NO_GUEST ? null : guestsByIndex[guestIndex];
+                if (seat.getGuest() != guest) {
+                    scoreDirector.beforeVariableChanged(seat, "guest");
+                    seat.setGuest(guest);
+                    scoreDirector.afterVariableChanged(seat, "guest");
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,376 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.ProblemFactChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Contains methods for creating changes to the guests of a SeatingPlanSolution that can be made
+ * while it is being solved, by passing them to Solver.addProblemFactChange. Guests are identified
+ * by their ids, so that a change can be created without access to the solver's working solution.
+ *
+ * @author David VanDusen
+ */
+// The solver makes each change to its working solution between two moves, and then starts its
+// phases again from the changed solution, keeping all the seat assignments that the change didn't
+// touch. The initializer seats any guest that the change left without a seat, and the local search
+// carries on from there.
+//
+// The best solutions that the solver has already found are planning clones of the working
+// solution, which only copy the seats, so they share the guests list, the preference matrix and the
+// guests themselves with it. A change therefore replaces the guests list and the matrix rather than
+// changing them, and never changes a guest's index, which the matrix of an earlier best solution
+// still uses. A guest's name, gender and preferences are changed on the shared guest, so earlier
+// best solutions see those changes.
+//
+// A change that refers to a guest that doesn't exist is logged and ignored rather than throwing an
+// exception, because an exception would end the solve that the change was meant to keep going.
+public class SeatingPlanProblemChanges {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanProblemChanges.class);
+
+    /**
+     * The preferences that a guest can have about another guest.
+     */
+    public enum Preference {
+        SEAT_AT_SAME_TABLE, SEAT_BESIDE, DO_NOT_SEAT_AT_SAME_TABLE, DO_NOT_SEAT_BESIDE
+    }
+
+    // Because this class only contains static methods, there will never be any reason to
+    // instantiate it, therefore the default constructor is made private so that it is not
+    // accidentally instantiated anywhere in the codebase.
+    private SeatingPlanProblemChanges() {
+        // static class
+    }
+
+    /**
+     * Creates a change that adds a guest with no preferences. If there are more guests than seats,
+     * a seat is added to the table with the fewest seats.
+     *
+     * @param id the id of the new guest, which must not belong to another guest
+     * @param firstName the first name of the new guest
+     * @param lastName the last name of the new guest
+     * @param gender the gender of the new guest
+     * @return the change
+     */
+    public static ProblemFactChange addGuest(int id, String firstName, String lastName, Guest.Gender gender) {
+        return scoreDirector -> {
+            SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+            if (findGuest(solution, id) != null) {
+                LOG.warn("Ignoring new guest with id (" + id + ") that belongs to another guest.");
+                return;
+            }
+            Guest guest = new Guest();
+            guest.setId(id);
+            // Index the new guest after all the others, so that their indexes don't change
+            guest.setIndex(solution.getGuests().size());
+            guest.setFirstName(firstName);
+            guest.setLastName(lastName);
+            guest.setGender(gender);
+            guest.setSeatAtSameTable(new HashSet<>());
+            guest.setSeatBeside(new HashSet<>());
+            guest.setDoNotSeatAtSameTable(new HashSet<>());
+            guest.setDoNotSeatBeside(new HashSet<>());
+            List<Guest> guests = new ArrayList<>(solution.getGuests());
+            guests.add(guest);
+            scoreDirector.beforeProblemFactAdded(guest);
+            solution.setGuests(guests);
+            rebuildPreferenceMatrix(solution);
+            scoreDirector.afterProblemFactAdded(guest);
+            // Earlier changes may have added guests who haven't been seated yet, so compare the
+            // number of guests to the number of seats rather than looking for an empty seat
+            if (solution.getGuests().size() > solution.getSeats().size()) {
+                addSeat(scoreDirector, solution);
+            }
+        };
+    }
+
+    /**
+     * Creates a change that removes a guest, leaving their seat empty, and removes them from the
+     * preferences of every other guest.
+     *
+     * @param id the id of the guest to remove
+     * @return the change
+     */
+    public static ProblemFactChange removeGuest(int id) {
+        return scoreDirector -> {
+            SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+            Guest guest = findGuest(solution, id);
+            if (guest == null) {
+                LOG.warn("Ignoring removal of unknown guest with id (" + id + ").");
+                return;
+            }
+            for (Seat seat : solution.getSeats()) {
+                if (seat.getGuest() != guest) continue;
+                scoreDirector.beforeVariableChanged(seat, "guest");
+                seat.setGuest(null);
+                scoreDirector.afterVariableChanged(seat, "guest");
+            }
+            for (Guest otherGuest : solution.getGuests()) {
+                for (Preference preference : Preference.values()) {
+                    if (getPreference(otherGuest, preference).contains(guest)) {
+                        scoreDirector.beforeProblemFactChanged(otherGuest);
+                        Set<Guest> preferredGuests = new HashSet<>(getPreference(otherGuest, preference));
+                        preferredGuests.remove(guest);
+                        setPreference(otherGuest, preference, preferredGuests);
+                        scoreDirector.afterProblemFactChanged(otherGuest);
+                    }
+                }
+            }
+            List<Guest> guests = new ArrayList<>(solution.getGuests());
+            guests.remove(guest);
+            Guest lastGuest = findGuestByIndex(guests, guests.size());
+            scoreDirector.beforeProblemFactRemoved(guest);
+            if (lastGuest == null) {
+                solution.setGuests(guests);
+                rebuildPreferenceMatrix(solution);
+            } else {
+                // The guest with the last index takes the removed guest's index, so that the
+                // indexes stay consecutive, but as a copy, because the guest itself can't be
+                // reindexed
+                Guest movedGuest = copyGuest(lastGuest, guest.getIndex());
+                guests.set(guests.indexOf(lastGuest), movedGuest);
+                replaceGuest(scoreDirector, solution, guests, lastGuest, movedGuest);
+            }
+            scoreDirector.afterProblemFactRemoved(guest);
+        };
+    }
+
+    /**
+     * Creates a change that updates the name and gender of a guest.
+     *
+     * @param id the id of the guest to update
+     * @param firstName the new first name of the guest
+     * @param lastName the new last name of the guest
+     * @param gender the new gender of the guest
+     * @return the change
+     */
+    public static ProblemFactChange editGuest(int id, String firstName, String lastName, Guest.Gender gender) {
+        return scoreDirector -> {
+            SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+            Guest guest = findGuest(solution, id);
+            if (guest == null) {
+                LOG.warn("Ignoring edit of unknown guest with id (" + id + ").");
+                return;
+            }
+            scoreDirector.beforeProblemFactChanged(guest);
+            guest.setFirstName(firstName);
+            guest.setLastName(lastName);
+            guest.setGender(gender);
+            scoreDirector.afterProblemFactChanged(guest);
+        };
+    }
+
+    /**
+     * Creates a change that adds another guest to one of a guest's preferences.
+     *
+     * @param guestId the id of the guest whose preference it is
+     * @param preference the preference to add the other guest to
+     * @param otherGuestId the id of the guest that the preference is about
+     * @return the change
+     */
+    public static ProblemFactChange addPreference(int guestId, Preference preference, int otherGuestId) {
+        return scoreDirector -> changePreference(scoreDirector, guestId, preference, otherGuestId, true);
+    }
+
+    /**
+     * Creates a change that removes another guest from one of a guest's preferences.
+     *
+     * @param guestId the id of the guest whose preference it is
+     * @param preference the preference to remove the other guest from
+     * @param otherGuestId the id of the guest that the preference is about
+     * @return the change
+     */
+    public static ProblemFactChange removePreference(int guestId, Preference preference, int otherGuestId) {
+        return scoreDirector -> changePreference(scoreDirector, guestId, preference, otherGuestId, false);
+    }
+
+    private static void changePreference(ScoreDirector scoreDirector, int guestId, Preference preference, int otherGuestId, boolean add) {
+        SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+        Guest guest = findGuest(solution, guestId);
+        Guest otherGuest = findGuest(solution, otherGuestId);
+        if (guest == null || otherGuest == null) {
+            LOG.warn("Ignoring preference change between unknown guests with ids (" + guestId + ") and (" + otherGuestId + ").");
+            return;
+        }
+        Set<Guest> preferredGuests = new HashSet<>(getPreference(guest, preference));
+        if (add) {
+            preferredGuests.add(otherGuest);
+        } else {
+            preferredGuests.remove(otherGuest);
+        }
+        scoreDirector.beforeProblemFactChanged(guest);
+        setPreference(guest, preference, preferredGuests);
+        rebuildPreferenceMatrix(solution);
+        scoreDirector.afterProblemFactChanged(guest);
+    }
+
+    private static Guest findGuest(SeatingPlanSolution solution, int id) {
+        for (Guest guest : solution.getGuests()) {
+            if (guest.getId() == id) return guest;
+        }
+        return null;
+    }
+
+    private static Guest findGuestByIndex(List<Guest> guests, int index) {
+        for (Guest guest : guests) {
+            if (guest.getIndex() == index) return guest;
+        }
+        return null;
+    }
+
+    // Copies a guest with a new index. The preference sets are shared with the original, which is
+    // safe because they are only ever replaced.
+    private static Guest copyGuest(Guest guest, int index) {
+        Guest copy = new Guest();
+        copy.setId(guest.getId());
+        copy.setIndex(index);
+        copy.setFirstName(guest.getFirstName());
+        copy.setLastName(guest.getLastName());
+        copy.setGender(guest.getGender());
+        copy.setSeatAtSameTable(guest.getSeatAtSameTable());
+        copy.setSeatBeside(guest.getSeatBeside());
+        copy.setDoNotSeatAtSameTable(guest.getDoNotSeatAtSameTable());
+        copy.setDoNotSeatBeside(guest.getDoNotSeatBeside());
+        return copy;
+    }
+
+    // Replaces a guest with another in the seats and in the other guests' preferences, and makes
+    // the given list, which has the new guest instead of the old one, the solution's guests. Every
+    // change is announced to the score director before any of them is made, so that it only
+    // recalculates the score once the solution is consistent again.
+    private static void replaceGuest(ScoreDirector scoreDirector, SeatingPlanSolution solution, List<Guest> guests,
+                                     Guest oldGuest, Guest newGuest) {
+        List<Seat> seats = new ArrayList<>();
+        for (Seat seat : solution.getSeats()) {
+            if (seat.getGuest() == oldGuest) seats.add(seat);
+        }
+        List<Guest> referringGuests = new ArrayList<>();
+        for (Guest otherGuest : guests) {
+            for (Preference preference : Preference.values()) {
+                if (getPreference(otherGuest, preference).contains(oldGuest)) {
+                    referringGuests.add(otherGuest);
+                    break;
+                }
+            }
+        }
+        seats.forEach(seat -> scoreDirector.beforeVariableChanged(seat, "guest"));
+        // The new guest isn't known to the score director until it has been added
+        referringGuests.stream().filter(otherGuest -> otherGuest != newGuest).forEach(scoreDirector::beforeProblemFactChanged);
+        scoreDirector.beforeProblemFactRemoved(oldGuest);
+        scoreDirector.beforeProblemFactAdded(newGuest);
+        seats.forEach(seat -> seat.setGuest(newGuest));
+        for (Guest otherGuest : referringGuests) {
+            for (Preference preference : Preference.values()) {
+                if (getPreference(otherGuest, preference).contains(oldGuest)) {
+                    Set<Guest> preferredGuests = new HashSet<>(getPreference(otherGuest, preference));
+                    preferredGuests.remove(oldGuest);
+                    preferredGuests.add(newGuest);
+                    setPreference(otherGuest, preference, preferredGuests);
+                }
+            }
+        }
+        solution.setGuests(guests);
+        rebuildPreferenceMatrix(solution);
+        seats.forEach(seat -> scoreDirector.afterVariableChanged(seat, "guest"));
+        referringGuests.stream().filter(otherGuest -> otherGuest != newGuest).forEach(scoreDirector::afterProblemFactChanged);
+        scoreDirector.afterProblemFactRemoved(oldGuest);
+        scoreDirector.afterProblemFactAdded(newGuest);
+    }
+
+    private static Set<Guest> getPreference(Guest guest, Preference preference) {
+        switch (preference) {
+            case SEAT_AT_SAME_TABLE:
+                return guest.getSeatAtSameTable();
+            case SEAT_BESIDE:
+                return guest.getSeatBeside();
+            case DO_NOT_SEAT_AT_SAME_TABLE:
+                return guest.getDoNotSeatAtSameTable();
+            case DO_NOT_SEAT_BESIDE:
+                return guest.getDoNotSeatBeside();
+            default:
+                throw new IllegalArgumentException("unknown preference (" + preference + ")");
+        }
+    }
+
+    // The preference sets are replaced rather than changed, so that another thread reading the
+    // guests of a best solution, such as to publish it, never reads a set while it is being changed.
+    private static void setPreference(Guest guest, Preference preference, Set<Guest> preferredGuests) {
+        switch (preference) {
+            case SEAT_AT_SAME_TABLE:
+                guest.setSeatAtSameTable(preferredGuests);
+                break;
+            case SEAT_BESIDE:
+                guest.setSeatBeside(preferredGuests);
+                break;
+            case DO_NOT_SEAT_AT_SAME_TABLE:
+                guest.setDoNotSeatAtSameTable(preferredGuests);
+                break;
+            case DO_NOT_SEAT_BESIDE:
+                guest.setDoNotSeatBeside(preferredGuests);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown preference (" + preference + ")");
+        }
+    }
+
+    // Creates a new preference matrix for the guests' preferences. The guests' indexes always run
+    // from 0 to one less than the number of guests, so in index order each guest's position is its
+    // index, and no guest has to be indexed again.
+    private static void rebuildPreferenceMatrix(SeatingPlanSolution solution) {
+        List<Guest> guests = new ArrayList<>(solution.getGuests());
+        guests.sort(Comparator.comparingInt(Guest::getIndex));
+        solution.setGuestPreferenceMatrix(GuestPreferenceMatrix.createWithoutIndexing(guests));
+    }
+
+    // Adds a seat to the end of the table with the fewest seats, after the seat at the open end of
+    // a row if it has one, and indexes the seats again with the new seat last.
+    private static void addSeat(ScoreDirector scoreDirector, SeatingPlanSolution solution) {
+        SeatTopology topology = solution.getSeatTopology();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        int smallestTable = 0;
+        for (int table = 1; table < topology.getTableCount(); table++) {
+            if (topology.getTableEnd(table) - topology.getTableStart(table)
+                    < topology.getTableEnd(smallestTable) - topology.getTableStart(smallestTable)) {
+                smallestTable = table;
+            }
+        }
+        int[] seatsAroundTable = topology.getSeatsAroundTable(smallestTable);
+        Seat leftSeat = seats[seatsAroundTable[seatsAroundTable.length - 1]];
+        Seat rightSeat = leftSeat.getRight();
+        int seatNumber = 0;
+        for (int tableSeat : seatsAroundTable) {
+            seatNumber = Math.max(seatNumber, seats[tableSeat].getSeatNumber());
+        }
+        Seat seat = new Seat();
+        seat.setTableNumber(leftSeat.getTableNumber());
+        seat.setSeatNumber(seatNumber + 1);
+        // The seats beside the new seat are entities, not problem facts. Announcing them as
+        // variable changes makes the score director look at their new neighbours again.
+        scoreDirector.beforeVariableChanged(leftSeat, "guest");
+        if (rightSeat != null) scoreDirector.beforeVariableChanged(rightSeat, "guest");
+        scoreDirector.beforeEntityAdded(seat);
+        leftSeat.setRight(seat);
+        seat.setLeft(leftSeat);
+        if (rightSeat != null) {
+            rightSeat.setLeft(seat);
+            seat.setRight(rightSeat);
+        }
+        List<Seat> indexedSeats = new ArrayList<>(Arrays.asList(seats));
+        indexedSeats.add(seat);
+        solution.getSeats().add(seat);
+        solution.setSeatTopology(SeatTopology.create(indexedSeats));
+        scoreDirector.afterVariableChanged(leftSeat, "guest");
+        if (rightSeat != null) scoreDirector.afterVariableChanged(rightSeat, "guest");
+        scoreDirector.afterEntityAdded(seat);
+    }
+
+}
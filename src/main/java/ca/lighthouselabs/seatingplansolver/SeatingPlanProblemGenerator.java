@@ -0,0 +1,214 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates seating plan problems of any size in the YAML format read by
+ * SeatingPlanSolutionFactory. Guests are generated in clusters, such as families or colleagues at
+ * the same company, whose members want to sit together, and a few guests do not want to sit near
+ * random other guests. The same seed always generates the same problem.
+ *
+ * @author David VanDusen
+ */
+// The guests are written out one cluster at a time, and a guest's preferences only ever refer to
+// other guests in the same cluster or to ids chosen at random, so only the current cluster has to
+// be kept in memory. This makes it possible to generate problems with hundreds of thousands of
+// guests without holding the whole document in memory.
+public class SeatingPlanProblemGenerator {
+
+    /**
+     * The kinds of groups that guests are generated in.
+     */
+    public enum Clustering {
+        // Couples and their children, between 1 and 6 guests sharing a last name
+        FAMILIES,
+        // Colleagues, between 4 and 30 guests with no relation between their names
+        COMPANIES,
+        // Every guest on their own, with no "seat beside" or "seat at same table" preferences
+        NONE
+    }
+
+    private static final String[] MALE_FIRST_NAMES = {"ALLEN", "NICK", "RILEY", "EFREN", "OTHA", "DARWIN",
+            "DEREK", "AGUSTIN", "CARMEN", "THAD", "ISMAEL", "JAMES", "ROBERT", "MICHAEL", "WILLIAM", "DAVID"};
+
+    private static final String[] FEMALE_FIRST_NAMES = {"ELAINA", "HOLLIS", "KEREN", "TAMESHA", "BRUNILDA",
+            "JOSPHINE", "TEMIKA", "SHIRL", "LATRISHA", "ROSANNA", "ROSARIA", "REVA", "MARY", "LINDA", "SUSAN"};
+
+    private static final String[] LAST_NAMES = {"THOMPSON", "LEE", "TAYLOR", "GARCIA", "HARRIS", "BROWN",
+            "THOMAS", "MARTIN", "SMITH", "CLARK", "WALKER", "ROBINSON", "WILLIAMS", "DAVIS", "MARTINEZ",
+            "JOHNSON", "JONES", "MILLER", "WILSON", "MOORE", "ANDERSON", "JACKSON", "WHITE", "LEWIS"};
+
+    private long seed = 0L;
+
+    private int guestCount = 250;
+
+    private double preferenceDensity = 0.5;
+
+    private Clustering clustering = Clustering.FAMILIES;
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getGuestCount() {
+        return guestCount;
+    }
+
+    public void setGuestCount(int guestCount) {
+        this.guestCount = guestCount;
+    }
+
+    /**
+     * Returns the density of the generated preferences, between 0 and 1. It is the chance that a
+     * guest wants to sit at the same table as each other member of their cluster and beside their
+     * partner, and ten times the chance that they do not want to sit beside or at the same table
+     * as a random guest.
+     *
+     * @return the preference density
+     */
+    public double getPreferenceDensity() {
+        return preferenceDensity;
+    }
+
+    public void setPreferenceDensity(double preferenceDensity) {
+        this.preferenceDensity = preferenceDensity;
+    }
+
+    public Clustering getClustering() {
+        return clustering;
+    }
+
+    public void setClustering(Clustering clustering) {
+        this.clustering = clustering;
+    }
+
+    /**
+     * Writes a generated problem to the given writer as a YAML document.
+     *
+     * @param writer the writer to write the YAML to, which is not closed
+     * @throws IOException if the writer fails
+     */
+    public void generate(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        writer.write("---\n");
+        int nextId = 1;
+        while (nextId <= guestCount) {
+            int clusterSize = Math.min(getClusterSize(random), guestCount - nextId + 1);
+            writeCluster(writer, random, nextId, clusterSize);
+            nextId += clusterSize;
+        }
+        writer.flush();
+    }
+
+    private int getClusterSize(Random random) {
+        switch (clustering) {
+            case FAMILIES:
+                return 1 + random.nextInt(6);
+            case COMPANIES:
+                return 4 + random.nextInt(27);
+            default:
+                return 1;
+        }
+    }
+
+    // Writes the guests with the ids from firstId to firstId + clusterSize - 1 as one cluster.
+    private void writeCluster(Writer writer, Random random, int firstId, int clusterSize) throws IOException {
+        String familyName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        for (int i = 0; i < clusterSize; i++) {
+            int id = firstId + i;
+            // In a family the first two guests are a couple, and partners in a couple alternate
+            // genders so that they can be seated beside each other
+            boolean male = clustering == Clustering.FAMILIES && i < 2 ? i == 0 : random.nextBoolean();
+            String[] firstNames = male ? MALE_FIRST_NAMES : FEMALE_FIRST_NAMES;
+            String lastName = clustering == Clustering.FAMILIES ? familyName : LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            writer.write("- id: " + id + "\n");
+            writer.write("  gender: " + (male ? Guest.Gender.MALE : Guest.Gender.FEMALE) + "\n");
+            writer.write("  firstName: " + firstNames[random.nextInt(firstNames.length)] + "\n");
+            writer.write("  lastName: " + lastName + "\n");
+            writeIds(writer, "seatAtSameTable", getSeatAtSameTable(random, firstId, clusterSize, id));
+            writeIds(writer, "seatBeside", getSeatBeside(random, firstId, clusterSize, id));
+            writeIds(writer, "doNotSeatAtSameTable", getRandomGuest(random, id));
+            writeIds(writer, "doNotSeatBeside", getRandomGuest(random, id));
+        }
+    }
+
+    private List<Integer> getSeatAtSameTable(Random random, int firstId, int clusterSize, int id) {
+        List<Integer> ids = new ArrayList<>();
+        if (clustering == Clustering.NONE) return ids;
+        for (int otherId = firstId; otherId < firstId + clusterSize; otherId++) {
+            if (otherId != id && random.nextDouble() < preferenceDensity) ids.add(otherId);
+        }
+        return ids;
+    }
+
+    // Partners in a family want to sit beside each other, and colleagues sometimes want to sit
+    // beside the colleague that was generated after them.
+    private List<Integer> getSeatBeside(Random random, int firstId, int clusterSize, int id) {
+        List<Integer> ids = new ArrayList<>();
+        int partnerId;
+        if (clustering == Clustering.FAMILIES && clusterSize >= 2 && id < firstId + 2) {
+            partnerId = id == firstId ? firstId + 1 : firstId;
+        } else if (clustering == Clustering.COMPANIES && id + 1 < firstId + clusterSize) {
+            partnerId = id + 1;
+        } else {
+            return ids;
+        }
+        if (random.nextDouble() < preferenceDensity) ids.add(partnerId);
+        return ids;
+    }
+
+    private List<Integer> getRandomGuest(Random random, int id) {
+        List<Integer> ids = new ArrayList<>();
+        if (guestCount > 1 && random.nextDouble() < preferenceDensity / 10) {
+            int otherId = 1 + random.nextInt(guestCount - 1);
+            // Skip over the guest's own id
+            ids.add(otherId >= id ? otherId + 1 : otherId);
+        }
+        return ids;
+    }
+
+    // Writes a list of ids in the same block style as the bundled problem.yml.
+    private static void writeIds(Writer writer, String key, List<Integer> ids) throws IOException {
+        if (ids.isEmpty()) {
+            writer.write("  " + key + ": []\n");
+            return;
+        }
+        writer.write("  " + key + ":\n");
+        for (Integer id : ids) {
+            writer.write("  - " + id + "\n");
+        }
+    }
+
+    /**
+     * Generates a problem and writes it to a file.
+     *
+     * @param args 0 - path of the YAML file to write, 1 - number of guests, 2 - seed (optional,
+     *             default 0), 3 - preference density (optional, default 0.5), 4 - clustering
+     *             (optional, FAMILIES, COMPANIES or NONE, default FAMILIES)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) throw new IllegalArgumentException("path to output YAML file must be first arg");
+        if (args.length < 2) throw new IllegalArgumentException("number of guests must be second arg");
+        SeatingPlanProblemGenerator generator = new SeatingPlanProblemGenerator();
+        generator.setGuestCount(Integer.parseInt(args[1]));
+        if (args.length > 2) generator.setSeed(Long.parseLong(args[2]));
+        if (args.length > 3) generator.setPreferenceDensity(Double.parseDouble(args[3]));
+        if (args.length > 4) generator.setClustering(Clustering.valueOf(args[4]));
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            generator.generate(writer);
+        }
+    }
+
+}
@@ -4,11 +4,11 @@ import org.optaplanner.core.api.score.Score;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.impl.score.director.easy.EasyScoreCalculator;
 
-import java.util.Collection;
 import java.util.stream.Collectors;
 
-import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.getGuestsAtTable;
-import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.getNeighbouringGuests;
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.getSeatsByIndex;
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.visitGuestsAtTable;
+import static ca.lighthouselabs.seatingplansolver.SeatingPlanUtil.visitNeighbouringGuests;
 
 /**
  * Calculates the HardSoft score of a SeatingPlanSolution. Optimises for solutions where each guest
@@ -91,62 +91,54 @@ public class SeatingPlanScoreCalculator implements EasyScoreCalculator<SeatingPl
 
     // The soft score is the sum of the soft score for each seat.
     private int getSoftScore(SeatingPlanSolution solution) {
+        SeatTopology topology = solution.getSeatTopology();
+        // Get the seats in an array so that the topology's seat indexes can be used to look them up
+        Seat[] seats;
+        if (topology == null) {
+            // Solutions that weren't created by SeatingPlanSolutionFactory may not have a topology
+            // yet. One is made for this calculation only, indexed by the seats' positions in the
+            // list, so that scoring doesn't change the solution or the ids of its seats.
+            topology = SeatTopology.createWithoutIndexing(solution.getSeats());
+            seats = solution.getSeats().toArray(new Seat[0]);
+        } else {
+            seats = getSeatsByIndex(solution.getSeats());
+        }
         // Sum the soft score for each seat
-        // Start with all the seats
-        return solution.getSeats()
-                // Make a stream
-                .stream()
-                // Remove unassigned seats
-                .filter(seat -> seat.getGuest() != null)
-                // Call getSoftScoreForSeat on each remaining seat to produce a collection of ints
-                .mapToInt(this::getSoftScoreForSeat)
-                // Sum the ints
-                .sum();
+        int soft = 0;
+        for (int seatIndex = 0; seatIndex < seats.length; seatIndex++) {
+            // Skip unassigned seats
+            if (seats[seatIndex].getGuest() != null) soft += getSoftScoreForSeat(seatIndex, topology, seats);
+        }
+        return soft;
     }
 
-    // Calculate the soft score for a specific seat.
-    private int getSoftScoreForSeat(Seat seat) {
+    // Calculate the soft score for the seat with the given index in the topology.
+    private int getSoftScoreForSeat(int seatIndex, SeatTopology topology, Seat[] seats) {
         // Starting at 0
         int soft = 0;
-        // Use the static import of the utility class method to get the guests next to the one
-        // having its score calculated
-        Collection<Guest> neighbouringGuests = getNeighbouringGuests(seat);
-        Guest guest = seat.getGuest();
+        Guest guest = seats[seatIndex].getGuest();
+        // Use the static imports of the utility class methods to visit each of the guests next to
+        // the one having its score calculated, and count the ones that each rule applies to. The
+        // visitor methods don't create any collections, which matters because this runs for every
+        // seat every time a score is calculated.
         // Lose a point if the gender of an adjacent guest is the same as this guest
-        soft -= getNonAlternatingGenders(guest, neighbouringGuests);
+        soft -= visitNeighbouringGuests(topology, seats, seatIndex, neighbour -> count(neighbour.getGender() == guest.getGender()));
         // Add a point for each adjacent guest in this guest's "seat beside" preferences
-        soft += countIntersection(guest.getSeatBeside(), neighbouringGuests);
+        soft += visitNeighbouringGuests(topology, seats, seatIndex, neighbour -> count(guest.getSeatBeside().contains(neighbour)));
         // Lose a point for each adjacent guest in this guest's "do not seat beside" preferences
-        soft -= countIntersection(guest.getDoNotSeatBeside(), neighbouringGuests);
-        // Use the static import of the utility class method to get the guests at the same table as
-        // the one having its score calculated
-        Collection<Guest> guestsAtTable = getGuestsAtTable(seat);
+        soft -= visitNeighbouringGuests(topology, seats, seatIndex, neighbour -> count(guest.getDoNotSeatBeside().contains(neighbour)));
+        // Do the same for the guests at the same table as the one having its score calculated
         // Add a point for each guest at the table in this guest's "seat at same table" preferences
-        soft += countIntersection(guest.getSeatAtSameTable(), guestsAtTable);
+        soft += visitGuestsAtTable(topology, seats, seatIndex, otherGuest -> count(guest.getSeatAtSameTable().contains(otherGuest)));
         // Lose a point for each guest at the table in this guest's "do not seat at same table" preferences
-        soft -= countIntersection(guest.getDoNotSeatAtSameTable(), guestsAtTable);
+        soft -= visitGuestsAtTable(topology, seats, seatIndex, otherGuest -> count(guest.getDoNotSeatAtSameTable().contains(otherGuest)));
         return soft;
     }
 
-    // Counts how many adjacent guests are of the same gender as the guest.
-    private long getNonAlternatingGenders(Guest guest, Collection<Guest> neighbouringGuests) {
-        // Start with the guests stream
-        return neighbouringGuests.stream()
-                // Filter out the ones that are a different gender
-                .filter(g -> g.getGender() == guest.getGender())
-                // Count what's left
-                .count();
-    }
-
-    // Counts how many elements are in the intersection of two collections.
-    private long countIntersection(Collection<?> collection1, Collection<?> collection2) {
-        // Starting with a stream of the first collection
-        return collection1.stream()
-                // Call collection2.contains(object) on each object in collection1 to get a
-                // stream containing only the objects that are in both collections
-                .filter(collection2::contains)
-                // Count the result
-                .count();
+    // Turns a condition into 1 when it is true and 0 when it is false, so that visited guests that
+    // match a condition can be counted by summing.
+    private static int count(boolean condition) {
+        return condition ? 1 : 0;
     }
 
 }
@@ -0,0 +1,392 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Breaks the score of a SeatingPlanSolution down into the individual constraint matches that make
+ * it up: each unseated guest and redundant seat, each pair of neighbours of the same gender, and
+ * each seating preference of each guest, whether it was satisfied or not. The matches can be looked
+ * up by guest and by table, and totalled by constraint.
+ *
+ * @author David VanDusen
+ */
+// The explanation is built in a single pass over the tables. For each table the guests at it are
+// marked in an array indexed by guest index, so that whether a guest's preferred guest is at the
+// same table is a single array lookup, and each preference of each seated guest is looked at once.
+// This takes time in proportion to the number of seats plus the number of preferences, which makes
+// it cheap enough to build for every new best solution, unlike running the score calculation again
+// for each seat to find out where its score came from.
+//
+// Matches are attributed to seats in exactly the same way as SeatingPlanScoreCalculator scores
+// them, so the impacts of all the matches add up to the solution's score.
+public class SeatingPlanScoreExplanation {
+
+    /**
+     * The constraints that make up the score.
+     */
+    public enum Constraint {
+        UNSEATED_GUEST, REDUNDANT_SEAT, SAME_GENDER_NEIGHBOUR, SEAT_BESIDE, DO_NOT_SEAT_BESIDE,
+        SEAT_AT_SAME_TABLE, DO_NOT_SEAT_AT_SAME_TABLE
+    }
+
+    /**
+     * One application of a constraint to a guest. Preferences are matched whether or not they were
+     * satisfied, so that unsatisfied wishes to sit with someone show up even though they don't
+     * lower the score.
+     */
+    public static class ConstraintMatch {
+
+        private final Constraint constraint;
+
+        private final Guest guest;
+
+        private final Guest otherGuest;
+
+        private final Seat seat;
+
+        private final boolean satisfied;
+
+        private final int hardImpact;
+
+        private final int softImpact;
+
+        private ConstraintMatch(Constraint constraint, Guest guest, Guest otherGuest, Seat seat, boolean satisfied, int hardImpact, int softImpact) {
+            this.constraint = constraint;
+            this.guest = guest;
+            this.otherGuest = otherGuest;
+            this.seat = seat;
+            this.satisfied = satisfied;
+            this.hardImpact = hardImpact;
+            this.softImpact = softImpact;
+        }
+
+        public Constraint getConstraint() {
+            return constraint;
+        }
+
+        /**
+         * Returns the guest that the constraint applies to, such as the guest whose preference it
+         * is.
+         *
+         * @return the guest
+         */
+        public Guest getGuest() {
+            return guest;
+        }
+
+        /**
+         * Returns the other guest involved, such as the guest that a preference is about.
+         *
+         * @return the other guest, or null for the constraints that only involve one guest
+         */
+        public Guest getOtherGuest() {
+            return otherGuest;
+        }
+
+        /**
+         * Returns the seat of the guest that the constraint was applied to.
+         *
+         * @return the seat, or null for an unseated guest
+         */
+        public Seat getSeat() {
+            return seat;
+        }
+
+        public boolean isSatisfied() {
+            return satisfied;
+        }
+
+        public int getHardImpact() {
+            return hardImpact;
+        }
+
+        public int getSoftImpact() {
+            return softImpact;
+        }
+
+    }
+
+    /**
+     * The number of matches of a constraint, how many of them were not satisfied, and their total
+     * impact on the score.
+     */
+    public static class ConstraintTotal {
+
+        private int matchCount;
+
+        private int violationCount;
+
+        private int hardScore;
+
+        private int softScore;
+
+        public int getMatchCount() {
+            return matchCount;
+        }
+
+        public int getViolationCount() {
+            return violationCount;
+        }
+
+        public HardSoftScore getScore() {
+            return HardSoftScore.valueOf(hardScore, softScore);
+        }
+
+    }
+
+    private final List<ConstraintMatch> constraintMatches = new ArrayList<>();
+
+    private final Map<Constraint, ConstraintTotal> constraintTotals = new EnumMap<>(Constraint.class);
+
+    // The index of each guest in the explained solution
+    private final ToIntFunction<Guest> guestIndexes;
+
+    // The matches that involve each guest, as either guest, at the guest's index
+    private final List<List<ConstraintMatch>> matchesByGuest;
+
+    // The hard and soft score of the matches at each table, by table number
+    private final Map<Integer, int[]> scoresByTable = new TreeMap<>();
+
+    private int hardScore;
+
+    private int softScore;
+
+    private SeatingPlanScoreExplanation(int guestCount, ToIntFunction<Guest> guestIndexes) {
+        this.guestIndexes = guestIndexes;
+        matchesByGuest = new ArrayList<>(guestCount);
+        for (int i = 0; i < guestCount; i++) {
+            matchesByGuest.add(new ArrayList<>());
+        }
+        for (Constraint constraint : Constraint.values()) {
+            constraintTotals.put(constraint, new ConstraintTotal());
+        }
+    }
+
+    /**
+     * Explains the score of a solution.
+     *
+     * @param solution the solution to explain
+     * @return the explanation
+     */
+    public static SeatingPlanScoreExplanation create(SeatingPlanSolution solution) {
+        // Solutions that weren't created by SeatingPlanSolutionFactory may not be indexed yet, so
+        // their guests and seats are indexed by their position in the lists instead, without
+        // changing them
+        int guestCount;
+        ToIntFunction<Guest> guestIndexes;
+        if (solution.getGuestPreferenceMatrix() == null) {
+            Map<Guest, Integer> positions = new IdentityHashMap<>(solution.getGuests().size() * 2);
+            solution.getGuests().forEach(guest -> positions.put(guest, positions.size()));
+            guestCount = positions.size();
+            guestIndexes = positions::get;
+        } else {
+            guestCount = solution.getGuestPreferenceMatrix().getGuestCount();
+            guestIndexes = Guest::getIndex;
+        }
+        Seat[] seats;
+        SeatTopology topology;
+        if (solution.getSeatTopology() == null) {
+            seats = solution.getSeats().toArray(new Seat[0]);
+            topology = SeatTopology.createWithoutIndexing(Arrays.asList(seats));
+        } else {
+            seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+            topology = solution.getSeatTopology();
+        }
+        SeatingPlanScoreExplanation explanation = new SeatingPlanScoreExplanation(guestCount, guestIndexes);
+        explanation.addSeatCountMatches(solution.getGuests(), seats, guestCount);
+        explanation.addTableMatches(topology, seats, guestCount);
+        return explanation;
+    }
+
+    /**
+     * Returns the score that the matches add up to, which is the score of the solution.
+     *
+     * @return the score
+     */
+    public HardSoftScore getScore() {
+        return HardSoftScore.valueOf(hardScore, softScore);
+    }
+
+    public List<ConstraintMatch> getConstraintMatches() {
+        return Collections.unmodifiableList(constraintMatches);
+    }
+
+    /**
+     * Returns the totals of each constraint.
+     *
+     * @return the totals by constraint
+     */
+    public Map<Constraint, ConstraintTotal> getConstraintTotals() {
+        return Collections.unmodifiableMap(constraintTotals);
+    }
+
+    /**
+     * Returns the matches that involve a guest, either as the guest that the constraint applies to
+     * or as the other guest.
+     *
+     * @param guest the guest
+     * @return the matches that involve the guest
+     */
+    public List<ConstraintMatch> getMatchesForGuest(Guest guest) {
+        return Collections.unmodifiableList(matchesByGuest.get(guestIndexes.applyAsInt(guest)));
+    }
+
+    /**
+     * Returns the matches that involve a guest and were not satisfied.
+     *
+     * @param guest the guest
+     * @return the unsatisfied matches that involve the guest
+     */
+    public List<ConstraintMatch> getViolationsForGuest(Guest guest) {
+        List<ConstraintMatch> violations = new ArrayList<>();
+        for (ConstraintMatch match : matchesByGuest.get(guestIndexes.applyAsInt(guest))) {
+            if (!match.isSatisfied()) violations.add(match);
+        }
+        return violations;
+    }
+
+    /**
+     * Returns the score of the matches at a table.
+     *
+     * @param tableNumber the number of the table
+     * @return the score of the table
+     */
+    public HardSoftScore getTableScore(int tableNumber) {
+        int[] score = scoresByTable.get(tableNumber);
+        return score == null ? HardSoftScore.valueOf(0, 0) : HardSoftScore.valueOf(score[0], score[1]);
+    }
+
+    /**
+     * Returns the numbers of the tables with the lowest scores, lowest first.
+     *
+     * @param count the most tables to return
+     * @return the table numbers
+     */
+    public List<Integer> getWorstTables(int count) {
+        List<Integer> tableNumbers = new ArrayList<>(scoresByTable.keySet());
+        tableNumbers.sort(Comparator.comparing(this::getTableScore));
+        return tableNumbers.subList(0, Math.min(count, tableNumbers.size()));
+    }
+
+    // Every guest without a seat loses a hard point, and so does every seat after the first that a
+    // guest is assigned.
+    private void addSeatCountMatches(List<Guest> guests, Seat[] seats, int guestCount) {
+        int[] seatCounts = new int[guestCount];
+        for (Seat seat : seats) {
+            Guest guest = seat.getGuest();
+            if (guest == null) continue;
+            if (seatCounts[guestIndexes.applyAsInt(guest)]++ > 0) {
+                add(new ConstraintMatch(Constraint.REDUNDANT_SEAT, guest, null, seat, false, -1, 0));
+            }
+        }
+        for (Guest guest : guests) {
+            if (seatCounts[guestIndexes.applyAsInt(guest)] == 0) {
+                add(new ConstraintMatch(Constraint.UNSEATED_GUEST, guest, null, null, false, -1, 0));
+            }
+        }
+    }
+
+    private void addTableMatches(SeatTopology topology, Seat[] seats, int guestCount) {
+        // The table that each guest was last seen at, and how many seats they have at it, which
+        // is only read for the table that is being explained
+        int[] guestTables = new int[guestCount];
+        int[] guestSeatCounts = new int[guestCount];
+        Arrays.fill(guestTables, -1);
+        for (int table = 0; table < topology.getTableCount(); table++) {
+            int start = topology.getTableStart(table);
+            int end = topology.getTableEnd(table);
+            if (start < end) scoresByTable.putIfAbsent(seats[topology.getSeatAtPosition(start)].getTableNumber(), new int[2]);
+            for (int position = start; position < end; position++) {
+                Guest guest = seats[topology.getSeatAtPosition(position)].getGuest();
+                if (guest == null) continue;
+                int guestIndex = guestIndexes.applyAsInt(guest);
+                if (guestTables[guestIndex] != table) {
+                    guestTables[guestIndex] = table;
+                    guestSeatCounts[guestIndex] = 0;
+                }
+                guestSeatCounts[guestIndex]++;
+            }
+            for (int position = start; position < end; position++) {
+                int seat = topology.getSeatAtPosition(position);
+                Guest guest = seats[seat].getGuest();
+                if (guest == null) continue;
+                addNeighbourMatches(topology, seats, seat, guest);
+                // A guest is only at the same table as themselves if they have another seat at it
+                for (Guest otherGuest : guest.getSeatAtSameTable()) {
+                    if (otherGuest == null) continue;
+                    boolean atTable = isAtTable(otherGuest, guest, table, guestTables, guestSeatCounts);
+                    add(new ConstraintMatch(Constraint.SEAT_AT_SAME_TABLE, guest, otherGuest, seats[seat], atTable, 0, atTable ? 1 : 0));
+                }
+                for (Guest otherGuest : guest.getDoNotSeatAtSameTable()) {
+                    if (otherGuest == null) continue;
+                    boolean atTable = isAtTable(otherGuest, guest, table, guestTables, guestSeatCounts);
+                    add(new ConstraintMatch(Constraint.DO_NOT_SEAT_AT_SAME_TABLE, guest, otherGuest, seats[seat], !atTable, 0, atTable ? -1 : 0));
+                }
+            }
+        }
+    }
+
+    // Neighbours are compared the same way as SeatingPlanUtil.visitNeighbouringGuests visits them,
+    // so the same guest on both sides only counts once.
+    private void addNeighbourMatches(SeatTopology topology, Seat[] seats, int seat, Guest guest) {
+        Guest leftGuest = getGuest(seats, topology.getLeftSeat(seat));
+        Guest rightGuest = getGuest(seats, topology.getRightSeat(seat));
+        if (rightGuest == leftGuest) rightGuest = null;
+        for (Guest neighbour : new Guest[]{leftGuest, rightGuest}) {
+            if (neighbour != null && neighbour.getGender() == guest.getGender()) {
+                add(new ConstraintMatch(Constraint.SAME_GENDER_NEIGHBOUR, guest, neighbour, seats[seat], false, 0, -1));
+            }
+        }
+        for (Guest otherGuest : guest.getSeatBeside()) {
+            if (otherGuest == null) continue;
+            boolean beside = otherGuest == leftGuest || otherGuest == rightGuest;
+            add(new ConstraintMatch(Constraint.SEAT_BESIDE, guest, otherGuest, seats[seat], beside, 0, beside ? 1 : 0));
+        }
+        for (Guest otherGuest : guest.getDoNotSeatBeside()) {
+            if (otherGuest == null) continue;
+            boolean beside = otherGuest == leftGuest || otherGuest == rightGuest;
+            add(new ConstraintMatch(Constraint.DO_NOT_SEAT_BESIDE, guest, otherGuest, seats[seat], !beside, 0, beside ? -1 : 0));
+        }
+    }
+
+    private boolean isAtTable(Guest otherGuest, Guest guest, int table, int[] guestTables, int[] guestSeatCounts) {
+        if (guestTables[guestIndexes.applyAsInt(otherGuest)] != table) return false;
+        return otherGuest != guest || guestSeatCounts[guestIndexes.applyAsInt(guest)] > 1;
+    }
+
+    private static Guest getGuest(Seat[] seats, int seat) {
+        return seat == SeatTopology.NO_SEAT ? null : seats[seat].getGuest();
+    }
+
+    private void add(ConstraintMatch match) {
+        constraintMatches.add(match);
+        ConstraintTotal total = constraintTotals.get(match.getConstraint());
+        total.matchCount++;
+        if (!match.isSatisfied()) total.violationCount++;
+        total.hardScore += match.getHardImpact();
+        total.softScore += match.getSoftImpact();
+        hardScore += match.getHardImpact();
+        softScore += match.getSoftImpact();
+        matchesByGuest.get(guestIndexes.applyAsInt(match.getGuest())).add(match);
+        if (match.getOtherGuest() != null && match.getOtherGuest() != match.getGuest()) {
+            matchesByGuest.get(guestIndexes.applyAsInt(match.getOtherGuest())).add(match);
+        }
+        if (match.getSeat() != null) {
+            int[] tableScore = scoresByTable.computeIfAbsent(match.getSeat().getTableNumber(), tableNumber -> new int[2]);
+            tableScore[0] += match.getHardImpact();
+            tableScore[1] += match.getSoftImpact();
+        }
+    }
+
+}
@@ -6,8 +6,9 @@ import org.optaplanner.core.api.domain.solution.Solution;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Set;
+import java.util.List;
 
 /**
  * Represents a solution for a seating plan problem with a score to indicate how successfully it
@@ -22,17 +23,25 @@ import java.util.Set;
 //
 // The following @PlanningSolution annotation indicates that this is a solution class for a planning
 // problem in conjunction with the implementation of the Solution interface (which takes the kind
-// of score that this solution uses as a type parameter.)
-@PlanningSolution
+// of score that this solution uses as a type parameter.) The solution is cloned by
+// SeatingPlanSolutionCloner instead of OptaPlanner's default reflection based cloner.
+@PlanningSolution(solutionCloner = SeatingPlanSolutionCloner.class)
 public class SeatingPlanSolution extends SeatingPlan implements Solution<HardSoftScore> {
 
     private HardSoftScore score;
 
-    // It is necessary to implement every method in the Solution interface, even if the
-    // functionality of the method is never used.
+    // The matrix and topology are never changed by the solver, so all clones of the solution share
+    // them.
+    private GuestPreferenceMatrix guestPreferenceMatrix;
+
+    private SeatTopology seatTopology;
+
+    // The problem facts are the objects that are not planning entities but that the score depends
+    // on. The Drools score rules need the guests to be inserted as facts so that they can match
+    // guests that have no seat at all.
     @Override
     public Collection<?> getProblemFacts() {
-        return null;
+        return new ArrayList<>(getGuests());
     }
 
     // This method from the SeatingPlan class is overridden in order to annotate the property with
@@ -40,7 +49,7 @@ public class SeatingPlanSolution extends SeatingPlan implements Solution<HardSof
     // objects that can be set on planning variables up change the score of the solution.
     @Override
     @ValueRangeProvider(id = "guests")
-    public Set<Guest> getGuests() {
+    public List<Guest> getGuests() {
         // The super keyword is a reference to the superclass on which the original method is called
         return super.getGuests();
     }
@@ -51,11 +60,27 @@ public class SeatingPlanSolution extends SeatingPlan implements Solution<HardSof
     // score of the solution.
     @Override
     @PlanningEntityCollectionProperty
-    public Set<Seat> getSeats() {
+    public List<Seat> getSeats() {
         // The super keyword is a reference to the superclass on which the original method is called
         return super.getSeats();
     }
 
+    public GuestPreferenceMatrix getGuestPreferenceMatrix() {
+        return guestPreferenceMatrix;
+    }
+
+    public void setGuestPreferenceMatrix(GuestPreferenceMatrix guestPreferenceMatrix) {
+        this.guestPreferenceMatrix = guestPreferenceMatrix;
+    }
+
+    public SeatTopology getSeatTopology() {
+        return seatTopology;
+    }
+
+    public void setSeatTopology(SeatTopology seatTopology) {
+        this.seatTopology = seatTopology;
+    }
+
     @Override
     public HardSoftScore getScore() {
         return score;
@@ -0,0 +1,191 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores the best solutions of an event in a directory, so that solving it again can start from
+ * the previous seating plan instead of from scratch. Each solution is stored in the binary format
+ * of SeatingPlanBinaryFormat, in a file named after the SHA-256 hash of its problem, in a
+ * subdirectory for the event.
+ *
+ * @author David VanDusen
+ */
+// The guest list of an event usually changes a few guests at a time as RSVPs come in, which changes
+// the hash of the problem. When there is no solution for the exact problem, the most recently
+// stored solution for the same event is used instead, and its seat assignments are carried over
+// for the guests who are still on the list. The initializer then only has to seat the new guests.
+public class SeatingPlanSolutionCache {
+
+    private static final String FILE_EXTENSION = ".bin";
+
+    private final Path directory;
+
+    public SeatingPlanSolutionCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Calculates the SHA-256 hash of a problem's guests, their preferences, and its seats and how
+     * they are linked. Seat assignments are not part of the hash, so a problem and its solution
+     * have the same hash.
+     *
+     * @param problem the problem to hash
+     * @return the hash as a string of hexadecimal digits
+     */
+    public static String getProblemHash(SeatingPlanSolution problem) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        // Hash the guests in order of their ids so that the order they are stored in doesn't matter
+        List<Guest> guests = new ArrayList<>(problem.getGuests());
+        guests.sort(Comparator.comparing(Guest::getId));
+        for (Guest guest : guests) {
+            updateInt(digest, buffer, guest.getId());
+            updateString(digest, buffer, String.valueOf(guest.getGender()));
+            updateString(digest, buffer, guest.getFirstName());
+            updateString(digest, buffer, guest.getLastName());
+            updateIds(digest, buffer, guest.getSeatAtSameTable());
+            updateIds(digest, buffer, guest.getSeatBeside());
+            updateIds(digest, buffer, guest.getDoNotSeatAtSameTable());
+            updateIds(digest, buffer, guest.getDoNotSeatBeside());
+        }
+        for (Seat seat : SeatingPlanUtil.getSeatsByIndex(problem.getSeats())) {
+            updateInt(digest, buffer, seat.getTableNumber());
+            updateInt(digest, buffer, seat.getSeatNumber());
+            updateInt(digest, buffer, seat.getLeft() == null ? SeatTopology.NO_SEAT : seat.getLeft().getId());
+            updateInt(digest, buffer, seat.getRight() == null ? SeatTopology.NO_SEAT : seat.getRight().getId());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Finds the stored solution to start solving a problem from: the solution for the exact same
+     * problem if there is one, or otherwise the most recently stored solution for the event.
+     *
+     * @param eventName the name of the event, such as the name of its problem file
+     * @param problem the problem that is about to be solved
+     * @return the stored solution, or null if there is none for the event
+     * @throws IOException if a stored solution can't be read
+     */
+    public SeatingPlanSolution findPrevious(String eventName, SeatingPlanSolution problem) throws IOException {
+        Path eventDirectory = directory.resolve(eventName);
+        if (!Files.isDirectory(eventDirectory)) return null;
+        Path exactMatch = eventDirectory.resolve(getProblemHash(problem) + FILE_EXTENSION);
+        if (Files.isRegularFile(exactMatch)) return SeatingPlanBinaryFormat.read(exactMatch);
+        Path latest = null;
+        FileTime latestTime = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(eventDirectory, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                FileTime time = Files.getLastModifiedTime(file);
+                if (latestTime == null || time.compareTo(latestTime) > 0) {
+                    latest = file;
+                    latestTime = time;
+                }
+            }
+        }
+        return latest == null ? null : SeatingPlanBinaryFormat.read(latest);
+    }
+
+    /**
+     * Stores a solution for an event, replacing any solution stored for the same problem.
+     *
+     * @param eventName the name of the event, such as the name of its problem file
+     * @param solution the solution to store
+     * @throws IOException if the solution can't be written
+     */
+    public void store(String eventName, SeatingPlanSolution solution) throws IOException {
+        Path eventDirectory = Files.createDirectories(directory.resolve(eventName));
+        Path file = eventDirectory.resolve(getProblemHash(solution) + FILE_EXTENSION);
+        // Write to a temporary file first so that a solver that is stopped while writing never
+        // leaves a broken file behind
+        Path temporaryFile = Files.createTempFile(eventDirectory, "solution", ".tmp");
+        try {
+            SeatingPlanBinaryFormat.write(solution, temporaryFile);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Seats the guests of a problem where they sat in a previous solution, matching guests by id
+     * and seats by table and seat number. Guests who are no longer on the guest list are left out,
+     * and guests who are new or whose seat no longer exists are left without a seat.
+     *
+     * @param problem the problem to seat the guests of
+     * @param previous the previous solution for the same event
+     * @return the number of guests who were given their previous seat
+     */
+    public static int applyPreviousAssignments(SeatingPlanSolution problem, SeatingPlanSolution previous) {
+        Map<Integer, Guest> guestsById = new HashMap<>();
+        problem.getGuests().forEach(guest -> guestsById.put(guest.getId(), guest));
+        Map<Long, Integer> guestIdsBySeat = new HashMap<>();
+        for (Seat seat : previous.getSeats()) {
+            if (seat.getGuest() != null) guestIdsBySeat.put(getSeatKey(seat), seat.getGuest().getId());
+        }
+        int seatedCount = 0;
+        for (Seat seat : problem.getSeats()) {
+            Integer guestId = guestIdsBySeat.get(getSeatKey(seat));
+            Guest guest = guestId == null ? null : guestsById.get(guestId);
+            seat.setGuest(guest);
+            if (guest != null) seatedCount++;
+        }
+        problem.setScore(null);
+        return seatedCount;
+    }
+
+    private static long getSeatKey(Seat seat) {
+        return ((long) seat.getTableNumber() << 32) | (seat.getSeatNumber() & 0xFFFFFFFFL);
+    }
+
+    private static void updateInt(MessageDigest digest, ByteBuffer buffer, int value) {
+        buffer.clear();
+        buffer.putInt(value);
+        digest.update(buffer.array());
+    }
+
+    // Strings are preceded by their length so that different splits of the same characters between
+    // fields hash differently. A missing string has a length of -1.
+    private static void updateString(MessageDigest digest, ByteBuffer buffer, String value) {
+        if (value == null) {
+            updateInt(digest, buffer, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        updateInt(digest, buffer, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateIds(MessageDigest digest, ByteBuffer buffer, Set<Guest> guests) {
+        int[] ids = guests.stream().filter(guest -> guest != null).mapToInt(Guest::getId).sorted().toArray();
+        updateInt(digest, buffer, ids.length);
+        for (int id : ids) {
+            updateInt(digest, buffer, id);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.domain.solution.cloner.SolutionCloner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Clones a SeatingPlanSolution for OptaPlanner, which keeps a clone of the best solution found so
+ * far and of the working solution when solving starts. Only the seats are copied, because they are
+ * the only objects that the solver changes, and the clone shares everything else with the original.
+ *
+ * @author David VanDusen
+ */
+// OptaPlanner's default cloner finds out what to copy by reflection on every clone. It copies every
+// planning entity field by field and follows the links between seats through a map from original to
+// cloned objects. A solution is cloned every time the solver finds a new best solution, which early
+// in a solve can be every few milliseconds.
+//
+// This cloner knows that the guests, their preferences, the preference matrix and the seat topology
+// never change while solving, so it shares them. The seats are looked up by index, so the new seats
+// are linked to one another through array lookups instead of a map. Apart from the new seats, the
+// only thing that is copied is the guest in each seat.
+public class SeatingPlanSolutionCloner implements SolutionCloner<SeatingPlanSolution> {
+
+    /**
+     * Creates a clone of the solution with new seats that have the same guests, tables, seat
+     * numbers and links as the original seats.
+     *
+     * @param original the solution to clone
+     * @return the clone
+     */
+    @Override
+    public SeatingPlanSolution cloneSolution(SeatingPlanSolution original) {
+        Seat[] originalSeats = SeatingPlanUtil.getSeatsByIndex(original.getSeats());
+        Seat[] seats = new Seat[originalSeats.length];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = new Seat();
+            seats[i].setId(i);
+            seats[i].setTableNumber(originalSeats[i].getTableNumber());
+            seats[i].setSeatNumber(originalSeats[i].getSeatNumber());
+            seats[i].setGuest(originalSeats[i].getGuest());
+        }
+        // Link the new seats in the same way as the original seats
+        for (int i = 0; i < seats.length; i++) {
+            if (originalSeats[i].getLeft() != null) seats[i].setLeft(seats[originalSeats[i].getLeft().getId()]);
+            if (originalSeats[i].getRight() != null) seats[i].setRight(seats[originalSeats[i].getRight().getId()]);
+        }
+        SeatingPlanSolution clone = new SeatingPlanSolution();
+        clone.setGuestPreferenceMatrix(original.getGuestPreferenceMatrix());
+        // The guests are shared, so changes to them replace the list rather than changing it
+        clone.setGuests(original.getGuests());
+        clone.setSeatTopology(original.getSeatTopology());
+        clone.setSeats(new ArrayList<>(Arrays.asList(seats)));
+        clone.setScore(original.getScore());
+        return clone;
+    }
+
+}
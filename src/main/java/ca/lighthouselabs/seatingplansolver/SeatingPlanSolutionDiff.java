@@ -0,0 +1,147 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The differences between two seating plans for the same event: the seats whose guest changed, and
+ * the score of the newer plan. Seat assignments are compared by seat index, so that consumers that
+ * have seen an earlier plan can bring it up to date without receiving every seat again.
+ *
+ * @author David VanDusen
+ */
+// Best solutions are published as diffs because an improvement found by local search usually only
+// moves a handful of guests, while the plan has a seat for every guest. Each published plan is
+// remembered as an array of guest ids by seat index, so that finding the next diff is a single pass
+// over the seats that doesn't need a copy of the plan itself.
+public class SeatingPlanSolutionDiff {
+
+    /**
+     * The guest id that stands for an empty seat in an array of guest ids by seat index.
+     */
+    public static final int NO_GUEST = Integer.MIN_VALUE;
+
+    /**
+     * A seat whose guest changed.
+     */
+    public static class SeatChange {
+
+        private final int tableNumber;
+
+        private final int seatNumber;
+
+        private final Integer guestId;
+
+        public SeatChange(int tableNumber, int seatNumber, Integer guestId) {
+            this.tableNumber = tableNumber;
+            this.seatNumber = seatNumber;
+            this.guestId = guestId;
+        }
+
+        public int getTableNumber() {
+            return tableNumber;
+        }
+
+        public int getSeatNumber() {
+            return seatNumber;
+        }
+
+        /**
+         * Returns the id of the guest now in the seat.
+         *
+         * @return the guest's id, or null if the seat is now empty
+         */
+        public Integer getGuestId() {
+            return guestId;
+        }
+
+    }
+
+    private final HardSoftScore score;
+
+    private final List<SeatChange> seatChanges;
+
+    public SeatingPlanSolutionDiff(HardSoftScore score, List<SeatChange> seatChanges) {
+        this.score = score;
+        this.seatChanges = Collections.unmodifiableList(seatChanges);
+    }
+
+    public HardSoftScore getScore() {
+        return score;
+    }
+
+    public List<SeatChange> getSeatChanges() {
+        return seatChanges;
+    }
+
+    public boolean isEmpty() {
+        return seatChanges.isEmpty();
+    }
+
+    /**
+     * Returns the id of the guest in each seat of a solution.
+     *
+     * @param seats the seats of the solution ordered by their index
+     * @return the guest ids by seat index, with NO_GUEST for empty seats
+     */
+    public static int[] getGuestIds(Seat[] seats) {
+        int[] guestIds = new int[seats.length];
+        for (int seat = 0; seat < seats.length; seat++) {
+            guestIds[seat] = seats[seat].getGuest() == null ? NO_GUEST : seats[seat].getGuest().getId();
+        }
+        return guestIds;
+    }
+
+    /**
+     * Finds the seats of a solution whose guest is different from an earlier solution of the same
+     * event. Seats that the earlier solution didn't have, such as seats added while solving, are
+     * included if they have a guest.
+     *
+     * @param previousGuestIds the guest ids by seat index of the earlier solution, or an empty
+     *                         array to include every seat with a guest
+     * @param seats the seats of the later solution ordered by their index
+     * @param score the score of the later solution
+     * @return the diff
+     */
+    public static SeatingPlanSolutionDiff between(int[] previousGuestIds, Seat[] seats, HardSoftScore score) {
+        List<SeatChange> seatChanges = new ArrayList<>();
+        for (int seat = 0; seat < seats.length; seat++) {
+            int previousGuestId = seat < previousGuestIds.length ? previousGuestIds[seat] : NO_GUEST;
+            Guest guest = seats[seat].getGuest();
+            int guestId = guest == null ? NO_GUEST : guest.getId();
+            if (guestId != previousGuestId) {
+                seatChanges.add(new SeatChange(seats[seat].getTableNumber(), seats[seat].getSeatNumber(),
+                        guest == null ? null : guestId));
+            }
+        }
+        return new SeatingPlanSolutionDiff(score, seatChanges);
+    }
+
+    /**
+     * Returns the diff as a single line of JSON, in the form
+     * {"score":"0hard/-10soft","seats":[{"table":1,"seat":2,"guest":3},...]}, where the guest is
+     * null for a seat that is now empty.
+     *
+     * @return the JSON representation
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"score\":");
+        sb.append(score == null ? "null" : "\"" + score + "\"");
+        sb.append(",\"seats\":[");
+        for (int i = 0; i < seatChanges.size(); i++) {
+            SeatChange seatChange = seatChanges.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"table\":").append(seatChange.getTableNumber());
+            sb.append(",\"seat\":").append(seatChange.getSeatNumber());
+            sb.append(",\"guest\":").append(seatChange.getGuestId());
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,75 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Writes each SeatingPlanSolutionDiff that it is given as a line of JSON, flushing after every
+ * line so that a reader at the other end sees each diff as soon as it is published.
+ *
+ * @author David VanDusen
+ */
+public class SeatingPlanSolutionDiffWriter implements Consumer<SeatingPlanSolutionDiff>, Closeable {
+
+    private final Writer writer;
+
+    public SeatingPlanSolutionDiffWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Creates a writer that writes to a file, replacing its contents.
+     *
+     * @param path the path of the file
+     * @return the writer
+     * @throws IOException if the file can't be opened
+     */
+    public static SeatingPlanSolutionDiffWriter toFile(Path path) throws IOException {
+        return new SeatingPlanSolutionDiffWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a writer that connects to a TCP socket and writes to it.
+     *
+     * @param host the host to connect to
+     * @param port the port to connect to
+     * @return the writer
+     * @throws IOException if the connection can't be made
+     */
+    public static SeatingPlanSolutionDiffWriter toSocket(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        return new SeatingPlanSolutionDiffWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes a diff as a line of JSON.
+     *
+     * @param diff the diff to write
+     * @throws UncheckedIOException if the diff can't be written
+     */
+    @Override
+    public synchronized void accept(SeatingPlanSolutionDiff diff) {
+        try {
+            writer.write(diff.toJson());
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+}
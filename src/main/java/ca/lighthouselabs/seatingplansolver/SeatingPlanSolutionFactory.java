@@ -1,10 +1,11 @@
 package ca.lighthouselabs.seatingplansolver;
 
-import org.yaml.snakeyaml.Yaml;
-
-import java.io.InputStream;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Contains methods for creating fully configured SeatingPlanSolution objects.
@@ -13,7 +14,7 @@ import java.util.stream.Collectors;
  */
 // This is an example of a factory class. Factory classes have static factory methods which
 // construct complex objects that have multiple ways of being constructed. In this case, we have
-// defined a way to create and configure a SeatingPlanSolution object from a YAML file. This is an
+// defined ways to create and configure a SeatingPlanSolution object from a YAML file. This is an
 // alternative to having complex code in the constructors of what should be simple Bean classes,
 // and also eliminate the need to have multiple constructors.
 public class SeatingPlanSolutionFactory {
@@ -38,101 +39,104 @@ public class SeatingPlanSolutionFactory {
     public static SeatingPlanSolution createFromYamlResource(String yamlPath) {
         // Get an InputStream for the specified YAML file with the guest data in it
         InputStream inputStream = SeatingPlanSolutionFactory.class.getClassLoader().getResourceAsStream(yamlPath);
-        // Use the Snake YAML library to parse that InputStream into a Java object that can be
-        // queried for configuration data.
-        List<Map<String, Object>> data = (List<Map<String, Object>>) new Yaml().load(inputStream);
-        // Create the solution object
-        SeatingPlanSolution solution = new SeatingPlanSolution();
-        // Set its guests collection from the parsed configuration data
-        solution.setGuests(new HashSet<>(buildGuests(data)));
-        // Set its seats collection to objects created based on configuration data
-        // TODO The YAML structure could change to include configuration such as table size
-        solution.setSeats(new HashSet<>(buildSeats(solution.getGuests().size(), 8)));
-        return solution;
+        if (inputStream == null) throw new IllegalArgumentException("no resource found at (" + yamlPath + ")");
+        return createFromYaml(inputStream);
+    }
+
+    /**
+     * Creates a fully configured SeatingPlanSolution from the configuration data in the YAML file
+     * at the specified filesystem path.
+     *
+     * @param yamlPath path to the YAML configuration file
+     * @return fully configured solution
+     * @throws IOException if the file can't be read
+     */
+    public static SeatingPlanSolution createFromYamlFile(Path yamlPath) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(yamlPath)) {
+            return createFromYaml(inputStream);
+        }
     }
 
-    // Take the data from the configuration file and turn it into a collection of Guest objects to
-    // set on the SeatingPlan.
-    private static Collection<Guest> buildGuests(List<Map<String, Object>> data) {
-        // Create a Map of each Guest's id to that Guest instance so that each Guest can be looked
-        // up easily by their id.
-        Map<Integer,Guest> guests = new HashMap<>();
-        // Iterate over the list of guest data from the configuration
-        data.forEach(guestData -> {
-            // Create a new Guest
-            Guest guest = new Guest();
-            // Set its properties from the configuration data
-            guest.setId((Integer) guestData.get("id"));
-            guest.setFirstName((String) guestData.get("firstName"));
-            guest.setLastName((String) guestData.get("lastName"));
-            guest.setGender(Guest.Gender.valueOf((String) guestData.get("gender")));
-            // Put it in the map using its id as the key
-            guests.put(guest.getId(), guest);
-        });
-        // Iterate over the list of guest data again, now that the Map is complete
-        data.forEach(guestData -> {
-            // For each guest in the Map
-            Guest guest = guests.get(guestData.get("id"));
-            // Set each of its preference collections using the configuration data, which lists the
-            // ids of other guests
-            guest.setSeatBeside(buildGuestSet(guests, (Collection) guestData.get("seatBeside")));
-            guest.setSeatAtSameTable(buildGuestSet(guests, (Collection) guestData.get("seatAtSameTable")));
-            guest.setDoNotSeatBeside(buildGuestSet(guests, (Collection) guestData.get("doNotSeatBeside")));
-            guest.setDoNotSeatAtSameTable(buildGuestSet(guests, (Collection) guestData.get("doNotSeatAtSameTable")));
-        });
-        return guests.values();
+    /**
+     * Creates a fully configured SeatingPlanSolution from YAML configuration data read from the
+     * given stream. JSON can be read as well, because YAML is a superset of JSON.
+     *
+     * @param inputStream stream of YAML configuration data, which is not closed
+     * @return fully configured solution
+     */
+    public static SeatingPlanSolution createFromYaml(InputStream inputStream) {
+        // Read the guests one at a time as the YAML is parsed, instead of loading the whole
+        // document first. The buffer lets the parser read the stream in large chunks.
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 64 * 1024);
+        GuestYamlReader guestYamlReader = GuestYamlReader.read(reader);
+        if (guestYamlReader.getVenue() == null) return createFromGuests(guestYamlReader.getGuests());
+        return createFromGuestsAndVenue(guestYamlReader.getGuests(), guestYamlReader.getVenue());
     }
 
-    // Using the Map of Guest ids to Guest instances created above, we can turn the lists of ids
-    // from the configuration into sets of Guest objects.
-    private static Set<Guest> buildGuestSet(Map<?, Guest> guests, Collection<?> guestIds) {
-        if (guestIds == null) return new HashSet<>();
-        return guestIds.stream()
-                .map(guests::get)
-                .collect(Collectors.toSet());
+    /**
+     * Creates a fully configured SeatingPlanSolution for the given guests, with exactly one seat
+     * for each of them at round tables created by Venue.createForGuests.
+     *
+     * @param guests the guests at the event, with their preferences set
+     * @return fully configured solution
+     */
+    public static SeatingPlanSolution createFromGuests(List<Guest> guests) {
+        return createFromGuestsAndVenue(guests, Venue.createForGuests(guests.size()));
     }
 
-    // Iterates over the calculated number of tables and the table size to produce the seats for a
-    // SeatingPlan. Each table is a tableSize sized doubly linked list of Seat objects. By setting
-    // up the Seat objects in this way, more complex seating arrangements are possible because a
-    // single collection of Seat objects can represent tables of varying sizes, with or without
-    // edges.
-    private static Collection<Seat> buildSeats(int numberOfGuests, int tableSize) {
-        int numberOfTables = numberOfGuests / tableSize;
-        // Ensure that there are at least enough seats for every guest
-        if (numberOfGuests % tableSize != 0) numberOfTables++;
-        // Initialize the capacity of the list to the number of seats that are known to be needed
-        Collection<Seat> seats = new ArrayList<>(numberOfTables * tableSize);
-        // Start at table number 1
-        for (int tableNumber = 1; tableNumber <= numberOfTables; tableNumber++) {
-            // Create a Seat to start the linked list from
-            Seat firstSeat = new Seat();
-            // Ensure the seat is added to the list
-            seats.add(firstSeat);
-            // Set the known properties of the Seat object
-            firstSeat.setTableNumber(tableNumber);
-            firstSeat.setSeatNumber(1);
-            Seat currentSeat = firstSeat;
-            // Loop from 2 to tableSize
-            for (int seatNumber = 2; seatNumber <= tableSize; seatNumber++) {
-                // Create new seat
-                Seat newSeat = new Seat();
-                // Ensure it is added to the list
-                seats.add(newSeat);
-                // Set the known properties
-                newSeat.setTableNumber(tableNumber);
-                newSeat.setSeatNumber(seatNumber);
-                // Link this seat to adjacent seats
-                currentSeat.setRight(newSeat);
-                newSeat.setLeft(currentSeat);
-                // Shift over for the next iteration
-                currentSeat = newSeat;
-            }
-            // Finalize the loop by linking the first Seat to the last one
-            currentSeat.setRight(firstSeat);
-            firstSeat.setLeft(currentSeat);
+    /**
+     * Creates a fully configured SeatingPlanSolution for the given guests, seated at the tables of
+     * the given venue.
+     *
+     * @param guests the guests at the event, with their preferences set
+     * @param venue the tables at the event, which must have at least one seat for each guest
+     * @return fully configured solution
+     */
+    public static SeatingPlanSolution createFromGuestsAndVenue(List<Guest> guests, Venue venue) {
+        if (venue.getSeatCount() < guests.size()) {
+            throw new IllegalArgumentException("venue has (" + venue.getSeatCount() + ") seats for (" + guests.size() + ") guests");
         }
-        return seats;
+        return createFromGuestsAndSeats(guests, venue.buildSeats());
+    }
+
+    /**
+     * Creates a fully configured SeatingPlanSolution from a file in the binary format written by
+     * SeatingPlanBinaryFormat, including any seat assignments stored in it.
+     *
+     * @param binaryPath path to the binary file
+     * @return fully configured solution
+     * @throws IOException if the file can't be read or isn't in the binary format
+     */
+    public static SeatingPlanSolution createFromBinaryFile(Path binaryPath) throws IOException {
+        return SeatingPlanBinaryFormat.read(binaryPath);
+    }
+
+    /**
+     * Creates a copy of a SeatingPlanSolution with its own Seat objects, so that it can be solved
+     * at the same time as the original. The guests, preference matrix and seat topology are never
+     * changed by solving, so the copy shares them with the original.
+     *
+     * @param solution the solution to copy
+     * @return a copy of the solution with the same seat assignments
+     */
+    public static SeatingPlanSolution createCopy(SeatingPlanSolution solution) {
+        return new SeatingPlanSolutionCloner().cloneSolution(solution);
+    }
+
+    // Creates the solution for guests and seats that have already been built, with the seats
+    // linked to one another. The order of the lists determines the guest and seat indexes.
+    static SeatingPlanSolution createFromGuestsAndSeats(List<Guest> guests, List<Seat> seats) {
+        // Create the solution object
+        SeatingPlanSolution solution = new SeatingPlanSolution();
+        // Index the guests' preferences once so that scoring does not need to search their sets
+        solution.setGuestPreferenceMatrix(GuestPreferenceMatrix.create(guests));
+        // Set its guests collection
+        solution.setGuests(new ArrayList<>(guests));
+        // Index the arrangement of the seats once so that scoring does not need to walk around tables
+        solution.setSeatTopology(SeatTopology.create(seats));
+        // Set its seats collection
+        solution.setSeats(new ArrayList<>(seats));
+        return solution;
     }
 
 }
@@ -4,6 +4,7 @@ import org.apache.commons.lang.builder.CompareToBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -73,6 +74,35 @@ public class SeatingPlanSolutionPresenter {
         return sb.toString();
     }
 
+    /**
+     * Returns a JSON representation of the SeatingPlanSolution with its score and an object for
+     * each seat, in order of table number and seat number, with the id of the guest assigned to it
+     * or null for an empty seat.
+     *
+     * @return JSON representation of the score and seat assignments
+     */
+    public String displaySeatAssignmentsAsJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"score\":");
+        sb.append(seatingPlanSolution.getScore() == null ? "null" : "\"" + seatingPlanSolution.getScore() + "\"");
+        sb.append(",\"seats\":[");
+        List<Seat> seats = new ArrayList<>(seatingPlanSolution.getSeats());
+        seats.sort((seat1, seat2) -> new CompareToBuilder()
+                .append(seat1.getTableNumber(), seat2.getTableNumber())
+                .append(seat1.getSeatNumber(), seat2.getSeatNumber())
+                .toComparison());
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"table\":").append(seat.getTableNumber());
+            sb.append(",\"seat\":").append(seat.getSeatNumber());
+            sb.append(",\"guest\":").append(seat.getGuest() == null ? "null" : seat.getGuest().getId());
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
     /**
      * Returns a string representation of the SeatingPlanSolution that includes statistical
      * information about the solution, including counts of various properties.
@@ -111,4 +141,40 @@ public class SeatingPlanSolutionPresenter {
                 "), male guests (" + maleGuests + ")";
     }
 
+    /**
+     * Returns a multi-line string representation of where the SeatingPlanSolution's score comes
+     * from: the totals of each constraint, and the matches at the tables with the lowest scores.
+     *
+     * @param tableCount the number of the lowest scoring tables to include
+     * @return representation of the score explanation
+     */
+    public String displayScoreExplanation(int tableCount) {
+        SeatingPlanScoreExplanation explanation = SeatingPlanScoreExplanation.create(seatingPlanSolution);
+        StringBuilder sb = new StringBuilder();
+        sb.append("score (").append(explanation.getScore()).append(")\n");
+        explanation.getConstraintTotals().forEach((constraint, total) -> {
+            sb.append(constraint).append(": matches (").append(total.getMatchCount());
+            sb.append("), violations (").append(total.getViolationCount());
+            sb.append("), score (").append(total.getScore()).append(")\n");
+        });
+        // Group the matches of the worst tables by table so that each table's matches can be
+        // listed under it
+        List<Integer> worstTables = explanation.getWorstTables(tableCount);
+        Map<Integer, List<SeatingPlanScoreExplanation.ConstraintMatch>> matchesByTable = explanation.getConstraintMatches()
+                .stream()
+                .filter(match -> match.getSeat() != null && worstTables.contains(match.getSeat().getTableNumber()))
+                .filter(match -> !match.isSatisfied())
+                .collect(Collectors.groupingBy(match -> match.getSeat().getTableNumber()));
+        for (Integer tableNumber : worstTables) {
+            sb.append("table (").append(tableNumber).append("), score (");
+            sb.append(explanation.getTableScore(tableNumber)).append(")\n");
+            for (SeatingPlanScoreExplanation.ConstraintMatch match : matchesByTable.getOrDefault(tableNumber, new ArrayList<>())) {
+                sb.append("  ").append(match.getConstraint()).append(": guest (").append(match.getGuest().getId());
+                if (match.getOtherGuest() != null) sb.append("), other guest (").append(match.getOtherGuest().getId());
+                sb.append("), seat (").append(match.getSeat().getSeatNumber()).append(")\n");
+            }
+        }
+        return sb.toString();
+    }
+
 }
@@ -0,0 +1,209 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A seating plan problem that has been submitted to SeatingPlanSolverServer, which is solved when
+ * a worker thread becomes free. The best solution found so far can be read at any time, and
+ * threads can wait for it to improve.
+ *
+ * @author David VanDusen
+ */
+// The state of a job is read by the threads handling HTTP requests while a worker thread solves it,
+// so every field that changes after the job is created is guarded by the job itself. Waiting for
+// an update uses the job's monitor, which the worker notifies whenever the best solution changes
+// and when solving ends.
+public class SeatingPlanSolveJob implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanSolveJob.class);
+
+    /**
+     * The stages that a job goes through, in order. A job ends up either solved, cancelled or
+     * failed.
+     */
+    public enum Status {
+        QUEUED, SOLVING, SOLVED, CANCELLED, FAILED;
+
+        public boolean isFinished() {
+            return this == SOLVED || this == CANCELLED || this == FAILED;
+        }
+    }
+
+    private final String id;
+
+    private final SolverFactory solverFactory;
+
+    private final SeatingPlanTermination termination;
+
+    private final SeatingPlanSolution problem;
+
+    private Status status = Status.QUEUED;
+
+    private Solver solver;
+
+    private SeatingPlanSolution bestSolution;
+
+    // Counts the updates to the best solution and status, so that a waiting thread can tell
+    // whether it has missed any
+    private long version;
+
+    private String errorMessage;
+
+    private final SeatingPlanMetrics metrics;
+
+    private long startTimeMillis;
+
+    private long endTimeMillis;
+
+    private long finishedTimeMillis;
+
+    /**
+     * Creates a queued job for a problem.
+     *
+     * @param id the id of the job
+     * @param solverFactory the factory that builds the job's solver, which is shared with other jobs
+     * @param termination decides when to stop solving the problem, or null to only stop at the
+     *                    termination in the solver configuration
+     * @param problem the problem to solve
+     * @param constraintTimingEnabled whether the job's metrics measure the time spent on each group
+     *                                of constraints, which slows down solving
+     */
+    public SeatingPlanSolveJob(String id, SolverFactory solverFactory, SeatingPlanTermination termination, SeatingPlanSolution problem,
+                               boolean constraintTimingEnabled) {
+        this.id = id;
+        this.solverFactory = solverFactory;
+        this.termination = termination;
+        this.problem = problem;
+        this.metrics = new SeatingPlanMetrics(constraintTimingEnabled);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized SeatingPlanSolution getBestSolution() {
+        return bestSolution;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public SeatingPlanMetrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Returns how long the job has been solving for.
+     *
+     * @return the time spent solving in milliseconds, or 0 if solving hasn't started
+     */
+    public synchronized long getTimeMillisSpent() {
+        // The solver's own clock isn't started until some time after solve is called, so the job
+        // keeps its own
+        if (startTimeMillis == 0L) return 0L;
+        return (endTimeMillis == 0L ? System.currentTimeMillis() : endTimeMillis) - startTimeMillis;
+    }
+
+    /**
+     * Returns when the job finished, whether or not it ever started solving.
+     *
+     * @return the time in milliseconds since the epoch, or 0 if the job hasn't finished
+     */
+    public synchronized long getFinishedTimeMillis() {
+        return finishedTimeMillis;
+    }
+
+    /**
+     * Solves the problem on the calling thread, unless the job was cancelled while it was queued.
+     */
+    @Override
+    public void run() {
+        Solver jobSolver;
+        synchronized (this) {
+            if (status != Status.QUEUED) return;
+            // The solver factory holds the parsed solver configuration and is shared by every job
+            synchronized (solverFactory) {
+                solver = termination == null ? solverFactory.buildSolver() : termination.buildSolver(solverFactory, problem);
+            }
+            jobSolver = solver;
+            startTimeMillis = System.currentTimeMillis();
+            solver.addEventListener(event -> updateBestSolution((SeatingPlanSolution) event.getNewBestSolution()));
+            metrics.attach(solver);
+            update(Status.SOLVING);
+        }
+        LOG.info("Solving job (" + id + ").");
+        try {
+            jobSolver.solve(problem);
+            SeatingPlanSolution solution = (SeatingPlanSolution) jobSolver.getBestSolution();
+            synchronized (this) {
+                bestSolution = solution;
+                update(status == Status.CANCELLED ? Status.CANCELLED : Status.SOLVED);
+            }
+            LOG.info("Job (" + id + ") ended with best score (" + solution.getScore() + ").");
+        } catch (RuntimeException e) {
+            LOG.error("Job (" + id + ") failed.", e);
+            synchronized (this) {
+                errorMessage = String.valueOf(e.getMessage());
+                update(Status.FAILED);
+            }
+        }
+    }
+
+    /**
+     * Stops the job. A queued job will not be solved, and a job that is solving stops and keeps
+     * the best solution found so far.
+     */
+    public synchronized void cancel() {
+        if (status.isFinished()) return;
+        if (solver != null) solver.terminateEarly();
+        update(Status.CANCELLED);
+    }
+
+    /**
+     * Waits until the best solution or status changes from the given version, or until the timeout
+     * passes.
+     *
+     * @param lastVersion the version that the caller has already seen
+     * @param timeoutMillis the longest time to wait
+     * @return the current version, which is the same as lastVersion if nothing changed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized long awaitUpdate(long lastVersion, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (version == lastVersion && !status.isFinished()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) break;
+            wait(remaining);
+        }
+        return version;
+    }
+
+    private synchronized void updateBestSolution(SeatingPlanSolution solution) {
+        bestSolution = solution;
+        version++;
+        notifyAll();
+    }
+
+    private void update(Status newStatus) {
+        if (newStatus.isFinished() && startTimeMillis != 0L && endTimeMillis == 0L) {
+            endTimeMillis = System.currentTimeMillis();
+        }
+        if (newStatus.isFinished() && finishedTimeMillis == 0L) finishedTimeMillis = System.currentTimeMillis();
+        status = newStatus;
+        version++;
+        notifyAll();
+    }
+
+}
@@ -1,13 +1,25 @@
 package ca.lighthouselabs.seatingplansolver;
 
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Program that solves a planning problem involving seating guests at an event using configuration
- * supplied in classpath resources.
+ * supplied in files or classpath resources.
  *
  * @author David VanDusen
  */
@@ -21,12 +33,30 @@ public class SeatingPlanSolverApp {
     // which output streams are used.
     private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanSolverApp.class);
 
+    // The least time between two published changes to the best solution
+    private static final long PUBLISH_INTERVAL_MILLIS = 500L;
+
+    // The time between two lines of logged solver measurements
+    private static final long METRICS_INTERVAL_MILLIS = 10000L;
+
+    // How long a warm started solve may go without improving the best score before it stops
+    private static final long WARM_START_UNIMPROVED_SECONDS = 10L;
+
     /**
      * Takes the path to a YAML file containing data about a SeatingPlanSolution and the path to an
      * XML file containing configuration for a Solver and solves the planning problem, logging the
      * best solution.
      *
-     * @param args 0 - path to a problem YAML file, 1 - the path to a solver XML file
+     * @param args 0 - path to a problem YAML or binary file, or a YAML resource, 1 - the path to a
+     *             solver XML resource, 2 - the number of solvers to run in parallel (optional,
+     *             default 1), 3 - the number of partitions to split the problem into, or "tables"
+     *             to assign guests to tables before ordering each table (optional, default 1),
+     *             4 - a directory to store best solutions in and to warm start from (optional),
+     *             5 - a file path or host:port to publish the changes to the best solution to while
+     *             solving, or "-" to not publish (optional), 6 - a score to stop at such as
+     *             0hard/100soft, "adaptive" to stop when the score stops improving or can't
+     *             improve, or "fixed" to only stop at the solver XML's termination (optional,
+     *             default "adaptive", and only for the seat model without partitions or tables)
      */
     // This method signature is required exactly as it is in order for this method to act as a code
     // entry point for the program. The args parameter is the list of space separated text arguments
@@ -35,14 +65,139 @@ public class SeatingPlanSolverApp {
         if (args.length < 1) throw new IllegalArgumentException("path to problem YAML file must be first arg");
         if (args.length < 2) throw new IllegalArgumentException("path to solver XML file must be second arg");
         LOG.info("Building seating plan problem from file (" + args[0] + ").");
-        SeatingPlanSolution planningProblem = SeatingPlanSolutionFactory.createFromYamlResource(args[0]);
+        Path problemPath = Paths.get(args[0]);
+        SeatingPlanSolution planningProblem;
+        if (!Files.isRegularFile(problemPath)) {
+            planningProblem = SeatingPlanSolutionFactory.createFromYamlResource(args[0]);
+        } else if (SeatingPlanBinaryFormat.isBinaryFile(problemPath)) {
+            planningProblem = SeatingPlanSolutionFactory.createFromBinaryFile(problemPath);
+        } else {
+            planningProblem = SeatingPlanSolutionFactory.createFromYamlFile(problemPath);
+        }
+        SeatingPlanSolutionCache cache = args.length > 4 ? new SeatingPlanSolutionCache(Paths.get(args[4])) : null;
+        String eventName = problemPath.getFileName().toString();
+        boolean warmStarted = false;
+        if (cache != null) {
+            SeatingPlanSolution previousSolution = cache.findPrevious(eventName, planningProblem);
+            if (previousSolution != null) {
+                int seatedCount = SeatingPlanSolutionCache.applyPreviousAssignments(planningProblem, previousSolution);
+                LOG.info("Warm starting with (" + seatedCount + ") guests in their previous seats.");
+                warmStarted = true;
+            }
+        }
         LOG.info("Building solver from file (" + args[1] + ").");
-        Solver solver = SolverFactory.createFromXmlResource(args[1]).buildSolver();
-        solver.solve(planningProblem);
-        SeatingPlanSolution solution = (SeatingPlanSolution) solver.getBestSolution();
+        SolverFactory solverFactory = SolverFactory.createFromXmlResource(args[1]);
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        boolean twoLevel = args.length > 3 && args[3].equals("tables");
+        int partitionCount = args.length > 3 && !twoLevel ? Integer.parseInt(args[3]) : 1;
+        // A publish destination of "-" lets a termination be given without publishing
+        String publishDestination = args.length > 5 && !args[5].equals("-") ? args[5] : null;
+        if (publishDestination != null && (partitionCount > 1 || threadCount > 1 || twoLevel
+                || solverFactory.getSolverConfig().getSolutionClass() != SeatingPlanSolution.class)) {
+            throw new IllegalArgumentException("best solution changes can only be published from a single solver of the seat model");
+        }
+        // Only the seat model's single and parallel solvers are built with the termination
+        if (args.length > 6 && (partitionCount > 1 || twoLevel
+                || solverFactory.getSolverConfig().getSolutionClass() != SeatingPlanSolution.class)) {
+            throw new IllegalArgumentException("a termination can only be given for the seat model without partitions or tables");
+        }
+        // Only the guests who are new or had no seat in the cached plan are seated by the solver, so
+        // a warm started plan stops improving long before the whole problem would
+        if (warmStarted) addWarmStartTermination(solverFactory.getSolverConfig());
+        SeatingPlanTermination termination = createTermination(args.length > 6 ? args[6] : "adaptive");
+        long solveStartMillis = System.currentTimeMillis();
+        SeatingPlanSolution solution;
+        if (solverFactory.getSolverConfig().getSolutionClass() == SeatingPlanChainedSolution.class) {
+            // The chained model is solved by converting the problem to it and back again
+            if (partitionCount > 1 || threadCount > 1 || twoLevel) {
+                throw new IllegalArgumentException("the chained model can only be solved by a single solver");
+            }
+            LOG.info("Solving the chained model of the problem.");
+            Solver solver = solverFactory.buildSolver();
+            solver.solve(SeatingPlanChainedSolutionFactory.createFromSolution(planningProblem));
+            SeatingPlanChainedSolution chainedSolution = (SeatingPlanChainedSolution) solver.getBestSolution();
+            solution = SeatingPlanChainedSolutionFactory.createSolution(planningProblem, chainedSolution);
+        } else if (twoLevel) {
+            LOG.info("Solving table assignments and then the order at each table on (" + threadCount + ") threads.");
+            solution = new SeatingPlanTwoLevelSolver(solverFactory, threadCount).solve(planningProblem);
+        } else if (partitionCount > 1) {
+            LOG.info("Solving in (" + partitionCount + ") partitions.");
+            solution = new SeatingPlanPartitionedSolver(solverFactory, partitionCount, threadCount).solve(planningProblem);
+        } else if (threadCount > 1) {
+            LOG.info("Solving with (" + threadCount + ") solvers in parallel.");
+            SeatingPlanPortfolioSolver portfolioSolver = new SeatingPlanPortfolioSolver(solverFactory, threadCount);
+            portfolioSolver.setTermination(termination);
+            solution = portfolioSolver.solve(planningProblem);
+        } else {
+            Solver solver = termination == null ? solverFactory.buildSolver() : termination.buildSolver(solverFactory, planningProblem);
+            if (termination != null) {
+                LOG.info("Solving for up to (" + termination.getSecondsSpentLimit(planningProblem.getGuests().size())
+                        + ") seconds, or until the best score stops improving"
+                        + (warmStarted ? " for (" + WARM_START_UNIMPROVED_SECONDS + ") seconds" : "")
+                        + " or reaches (" + termination.calculateBestScoreLimit(planningProblem) + ").");
+            }
+            SeatingPlanSolutionDiffWriter diffWriter = publishDestination != null ? createDiffWriter(publishDestination) : null;
+            SeatingPlanBestSolutionPublisher publisher = null;
+            if (diffWriter != null) {
+                LOG.info("Publishing best solution changes to (" + publishDestination + ").");
+                publisher = new SeatingPlanBestSolutionPublisher(PUBLISH_INTERVAL_MILLIS, Collections.singletonList(diffWriter));
+                solver.addEventListener(publisher);
+            }
+            // Log the solver's measurements as a line of JSON at regular intervals and at the end.
+            // Timing the constraints slows the solver down, so it is only done when asked for.
+            SeatingPlanMetrics metrics = new SeatingPlanMetrics(Boolean.getBoolean(SeatingPlanMetrics.CONSTRAINT_TIMING_PROPERTY));
+            metrics.attach(solver);
+            ScheduledExecutorService metricsLogger = Executors.newSingleThreadScheduledExecutor();
+            metricsLogger.scheduleWithFixedDelay(() -> LOG.info("Metrics: " + metrics.toJson()),
+                    METRICS_INTERVAL_MILLIS, METRICS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            try {
+                solver.solve(planningProblem);
+            } finally {
+                metricsLogger.shutdownNow();
+                if (publisher != null) publisher.close();
+                if (diffWriter != null) diffWriter.close();
+            }
+            LOG.info("Metrics: " + metrics.toJson());
+            solution = (SeatingPlanSolution) solver.getBestSolution();
+        }
+        long solveMillis = System.currentTimeMillis() - solveStartMillis;
+        LOG.info((warmStarted ? "Re-solved the warm started plan" : "Solved") + " in (" + solveMillis + ") ms.");
+        if (cache != null) cache.store(eventName, solution);
         SeatingPlanSolutionPresenter presenter = new SeatingPlanSolutionPresenter(solution);
         LOG.info("Solution stats: " + presenter.displaySolutionStats() + ".");
         LOG.info("Solution seat assignments:\n" + presenter.displaySeatAssignments());
+        LOG.info("Solution score explanation:\n" + presenter.displayScoreExplanation(5));
+    }
+
+    // Stops solving once the best score hasn't improved for a while, as well as at the configured
+    // termination. The configured time limit is repeated at the top so that the partitioned solver
+    // can still divide it between its partitions.
+    private static void addWarmStartTermination(SolverConfig solverConfig) {
+        TerminationConfig configuredTerminationConfig = solverConfig.getTerminationConfig();
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setUnimprovedSecondsSpentLimit(WARM_START_UNIMPROVED_SECONDS);
+        if (configuredTerminationConfig != null) {
+            terminationConfig.setMillisecondsSpentLimit(configuredTerminationConfig.calculateTimeMillisSpentLimit());
+            terminationConfig.setTerminationConfigList(Collections.singletonList(configuredTerminationConfig));
+        }
+        solverConfig.setTerminationConfig(terminationConfig);
+    }
+
+    // Returns null for the fixed termination, so that solvers are built with the solver XML as it is.
+    private static SeatingPlanTermination createTermination(String setting) {
+        if (setting.equals("fixed")) return null;
+        SeatingPlanTermination termination = new SeatingPlanTermination();
+        if (!setting.equals("adaptive")) termination.setBestScoreLimit(HardSoftScore.parseScore(setting));
+        return termination;
+    }
+
+    // A destination of the form host:port is a socket, and anything else is a file.
+    private static SeatingPlanSolutionDiffWriter createDiffWriter(String destination) throws IOException {
+        if (destination.matches("[^/\\\\]+:\\d+")) {
+            int colon = destination.lastIndexOf(':');
+            return SeatingPlanSolutionDiffWriter.toSocket(destination.substring(0, colon), Integer.parseInt(destination.substring(colon + 1)));
+        }
+        return SeatingPlanSolutionDiffWriter.toFile(Paths.get(destination));
     }
 
 }
@@ -0,0 +1,368 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Program that runs a local HTTP server which accepts seating plan problems as YAML or JSON,
+ * queues them, and solves several of them at once. The endpoints are:
+ *
+ * <ul>
+ * <li>POST /jobs with a problem as the body, which queues it and returns the new job's id</li>
+ * <li>GET /jobs/{id}, which returns the job's status and best score</li>
+ * <li>GET /jobs/{id}/solution, which returns the job's best seat assignments</li>
+ * <li>GET /jobs/{id}/events, which streams the job's best score and the seats that changed as
+ * server-sent events whenever it improves, until the job is finished</li>
+ * <li>DELETE /jobs/{id}, which cancels the job, keeping its best solution, or removes the job if it
+ * has already finished</li>
+ * <li>GET /metrics, which returns measurements of every job that has started solving in the
+ * Prometheus text format</li>
+ * </ul>
+ *
+ * Finished jobs are removed an hour after they finish.
+ *
+ * @author David VanDusen
+ */
+// The server stays running between problems, so the solver configuration is parsed only once and
+// the JIT compiler's work on the score calculator and moves carries over from one event to the
+// next. The solves run on a fixed number of worker threads with a bounded queue in front of them,
+// so that a burst of requests can't start more solves than there are cores or hold an unlimited
+// number of problems in memory. Requests are handled on a separate pool of threads that mostly
+// wait on sockets, so a client streaming events doesn't hold up a solve or other requests.
+public class SeatingPlanSolverServer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanSolverServer.class);
+
+    // How often a comment is sent on an event stream that has no new events, so that clients that
+    // have gone away are noticed
+    private static final long KEEP_ALIVE_MILLIS = 15000L;
+
+    // The least time between two changes to the best solution sent on an event stream
+    private static final long EVENT_INTERVAL_MILLIS = 250L;
+
+    // How long a finished job's solution is kept for its client to fetch, so that a server that
+    // runs for weeks doesn't hold on to every problem that it has ever solved
+    private static final long FINISHED_JOB_TTL_MILLIS = 3600000L;
+
+    private final SolverFactory solverFactory;
+
+    // Small events are solved in far less time than large ones, so jobs don't hold up the queue
+    // for the whole configured time limit
+    private final SeatingPlanTermination termination = new SeatingPlanTermination();
+
+    private volatile boolean constraintTimingEnabled;
+
+    private final ThreadPoolExecutor workers;
+
+    private final ExecutorService requestHandlers;
+
+    private final Map<String, SeatingPlanSolveJob> jobs = new ConcurrentHashMap<>();
+
+    private HttpServer httpServer;
+
+    /**
+     * Creates a server that solves problems with solvers built by the given factory.
+     *
+     * @param solverFactory the factory that builds a solver for each job
+     * @param workerCount the number of problems to solve at once
+     * @param queueCapacity the number of problems that can wait for a free worker
+     */
+    public SeatingPlanSolverServer(SolverFactory solverFactory, int workerCount, int queueCapacity) {
+        if (workerCount < 1) throw new IllegalArgumentException("worker count (" + workerCount + ") must be at least 1");
+        if (queueCapacity < 1) throw new IllegalArgumentException("queue capacity (" + queueCapacity + ") must be at least 1");
+        if (solverFactory.getSolverConfig().getSolutionClass() != SeatingPlanSolution.class) {
+            throw new IllegalArgumentException("the server can only solve the SeatingPlanSolution model");
+        }
+        this.solverFactory = solverFactory;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        this.requestHandlers = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Starts accepting requests on the given port.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the server can't listen on the port
+     */
+    public synchronized void start(int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        httpServer.createContext("/jobs", this::handle);
+        httpServer.createContext("/metrics", this::handleMetrics);
+        httpServer.setExecutor(requestHandlers);
+        httpServer.start();
+        LOG.info("Listening on port (" + getPort() + ").");
+    }
+
+    /**
+     * Returns the termination that the solver of each job is built with, which can be configured
+     * before problems are submitted.
+     *
+     * @return the termination of the jobs
+     */
+    public SeatingPlanTermination getTermination() {
+        return termination;
+    }
+
+    public boolean isConstraintTimingEnabled() {
+        return constraintTimingEnabled;
+    }
+
+    /**
+     * Sets whether the metrics of jobs submitted from now on measure the time spent on each group
+     * of constraints, which slows down solving.
+     *
+     * @param constraintTimingEnabled true to time the constraints
+     */
+    public void setConstraintTimingEnabled(boolean constraintTimingEnabled) {
+        this.constraintTimingEnabled = constraintTimingEnabled;
+    }
+
+    public synchronized int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, cancels every job, and waits for the solves to end.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void stop() throws InterruptedException {
+        httpServer.stop(0);
+        jobs.values().forEach(SeatingPlanSolveJob::cancel);
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        requestHandlers.shutdownNow();
+    }
+
+    /**
+     * Starts a server with the given configuration and runs it until the program is stopped.
+     *
+     * @param args 0 - the path to a solver XML resource, 1 - the port to listen on (optional,
+     *             default 8080), 2 - the number of problems to solve at once (optional, default the
+     *             number of processors), 3 - the number of problems that can be queued (optional,
+     *             default 100)
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) throw new IllegalArgumentException("path to solver XML file must be first arg");
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int workerCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        LOG.info("Building solver from file (" + args[0] + ").");
+        SeatingPlanSolverServer server = new SeatingPlanSolverServer(SolverFactory.createFromXmlResource(args[0]), workerCount, queueCapacity);
+        server.setConstraintTimingEnabled(Boolean.getBoolean(SeatingPlanMetrics.CONSTRAINT_TIMING_PROPERTY));
+        server.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // The path is /jobs, /jobs/{id} or /jobs/{id}/{resource}
+            String[] path = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 2 && method.equals("POST")) {
+                submitJob(exchange);
+                return;
+            }
+            SeatingPlanSolveJob job = path.length > 2 ? jobs.get(path[2]) : null;
+            if (job == null) {
+                send(exchange, 404, "{\"error\":\"no such job\"}");
+            } else if (path.length == 3 && method.equals("GET")) {
+                send(exchange, 200, getJobJson(job));
+            } else if (path.length == 3 && method.equals("DELETE")) {
+                // Deleting a job that is still queued or solving only cancels it, so that its best
+                // solution can still be fetched
+                if (job.getStatus().isFinished()) {
+                    jobs.remove(job.getId());
+                    LOG.info("Removed job (" + job.getId() + ").");
+                } else {
+                    job.cancel();
+                }
+                send(exchange, 200, getJobJson(job));
+            } else if (path.length == 4 && path[3].equals("solution") && method.equals("GET")) {
+                SeatingPlanSolution solution = job.getBestSolution();
+                if (solution == null) {
+                    send(exchange, 404, "{\"error\":\"no solution yet\"}");
+                } else {
+                    send(exchange, 200, new SeatingPlanSolutionPresenter(solution).displaySeatAssignmentsAsJson());
+                }
+            } else if (path.length == 4 && path[3].equals("events") && method.equals("GET")) {
+                streamEvents(exchange, job);
+            } else {
+                send(exchange, 404, "{\"error\":\"no such resource\"}");
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Request failed.", e);
+            send(exchange, 500, "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, SeatingPlanMetrics> metricsByJob = new TreeMap<>();
+            jobs.values().stream()
+                    .filter(job -> job.getStatus() != SeatingPlanSolveJob.Status.QUEUED)
+                    .forEach(job -> metricsByJob.put(job.getId(), job.getMetrics()));
+            byte[] bytes = SeatingPlanMetrics.toPrometheusText(metricsByJob).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Reads the problem from the request body, which can be YAML or JSON because YAML is a
+    // superset of JSON, and queues it.
+    private void submitJob(HttpExchange exchange) throws IOException {
+        SeatingPlanSolution problem;
+        try (InputStream body = exchange.getRequestBody()) {
+            problem = SeatingPlanSolutionFactory.createFromYaml(body);
+        } catch (IllegalArgumentException | YAMLException e) {
+            send(exchange, 400, "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+            return;
+        }
+        removeExpiredJobs();
+        SeatingPlanSolveJob job = new SeatingPlanSolveJob(UUID.randomUUID().toString(), solverFactory, termination, problem,
+                constraintTimingEnabled);
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            send(exchange, 503, "{\"error\":\"too many queued jobs\"}");
+            return;
+        }
+        LOG.info("Queued job (" + job.getId() + ") with (" + problem.getGuests().size() + ") guests.");
+        exchange.getResponseHeaders().set("Location", "/jobs/" + job.getId());
+        send(exchange, 202, getJobJson(job));
+    }
+
+    // Removes the jobs that finished longer ago than the time that finished jobs are kept for.
+    private void removeExpiredJobs() {
+        long expiredTimeMillis = System.currentTimeMillis() - FINISHED_JOB_TTL_MILLIS;
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedTimeMillis() < expiredTimeMillis);
+    }
+
+    // Sends an event with the job's status and score straight away and then every time it changes,
+    // until the job is finished or the client goes away. Each change to the best solution is
+    // followed by an event with the seats that changed since the last one sent to this client, the
+    // first of which has every seat with a guest. Changes that come faster than the event interval
+    // are sent together.
+    private void streamEvents(HttpExchange exchange, SeatingPlanSolveJob job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        // A response length of 0 means the body is sent in chunks of any length
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int[] sentGuestIds = new int[0];
+        long version = job.getVersion();
+        try {
+            sentGuestIds = writeEvents(out, job, sentGuestIds);
+            while (!job.getStatus().isFinished()) {
+                long newVersion = job.awaitUpdate(version, KEEP_ALIVE_MILLIS);
+                if (newVersion == version) {
+                    write(out, ": keep-alive\n\n");
+                } else {
+                    version = newVersion;
+                    sentGuestIds = writeEvents(out, job, sentGuestIds);
+                    Thread.sleep(EVENT_INTERVAL_MILLIS);
+                }
+            }
+            // The job may have finished while the last events were being sent
+            writeDiffEvent(out, job, sentGuestIds);
+            write(out, "event: done\ndata: " + getJobJson(job) + "\n\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOG.debug("Event stream for job (" + job.getId() + ") closed by the client.");
+        }
+    }
+
+    // Writes a best event with the job's status followed by a diff event.
+    private static int[] writeEvents(OutputStream out, SeatingPlanSolveJob job, int[] sentGuestIds) throws IOException {
+        write(out, "event: best\ndata: " + getJobJson(job) + "\n\n");
+        return writeDiffEvent(out, job, sentGuestIds);
+    }
+
+    // Writes a diff event if the job's best solution has seats that changed since the guest ids
+    // that were last sent. Returns the guest ids that have now been sent.
+    private static int[] writeDiffEvent(OutputStream out, SeatingPlanSolveJob job, int[] sentGuestIds) throws IOException {
+        SeatingPlanSolution solution = job.getBestSolution();
+        if (solution == null) return sentGuestIds;
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        SeatingPlanSolutionDiff diff = SeatingPlanSolutionDiff.between(sentGuestIds, seats, solution.getScore());
+        if (!diff.isEmpty()) write(out, "event: diff\ndata: " + diff.toJson() + "\n\n");
+        return SeatingPlanSolutionDiff.getGuestIds(seats);
+    }
+
+    private static String getJobJson(SeatingPlanSolveJob job) {
+        SeatingPlanSolution solution = job.getBestSolution();
+        String json = "{\"id\":" + quote(job.getId()) +
+                ",\"status\":" + quote(job.getStatus().name()) +
+                ",\"score\":" + (solution == null || solution.getScore() == null ? "null" : quote(solution.getScore().toString())) +
+                ",\"timeMillisSpent\":" + job.getTimeMillisSpent();
+        if (job.getErrorMessage() != null) json += ",\"error\":" + quote(job.getErrorMessage());
+        return json + "}";
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    // Turns a string into a JSON string literal, escaping the characters that JSON requires.
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+}
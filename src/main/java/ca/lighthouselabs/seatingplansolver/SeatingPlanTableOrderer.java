@@ -0,0 +1,352 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the order of the guests at one table that scores the most, without changing which guests
+ * are at the table. The order is exact for tables of up to MAX_EXACT_SEATS seats, and the order of
+ * each set of guests at each shape of table is remembered, so ordering the same guests at the same
+ * kind of table again only looks it up.
+ *
+ * @author David VanDusen
+ */
+// Which guests are at a table decides the score of their preferences about sitting at the same
+// table, so the only part of the score that the order of the guests changes is the score of each
+// pair of neighbours: their genders and their preferences about sitting beside each other. Finding
+// the best order is then a travelling salesman problem, where each guest is a city and the score
+// of two neighbours is the distance between them, and a round table is a tour that returns to
+// where it started.
+//
+// For a table of n seats, there are n! orders of its guests, but the best order of all of them can
+// be found from the best order of each subset of them that ends with each guest, of which there
+// are only 2^n * n. This is known as the Held-Karp algorithm, and it is a form of dynamic
+// programming. For a table of 10 this is about 10,000 subsets instead of over 3 million orders, and
+// for a round table one guest can always be put in the first seat, because turning the table
+// doesn't change who sits beside who.
+public class SeatingPlanTableOrderer {
+
+    /**
+     * The guest index of an empty seat.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The most seats at a table that is ordered exactly. Larger tables are ordered by swapping
+     * pairs of guests for as long as that improves the score, which is usually but not always the
+     * best order, and their orders are not remembered.
+     */
+    public static final int MAX_EXACT_SEATS = 14;
+
+    // The most orders that are remembered before they are all forgotten, so that a long solve
+    // doesn't fill the memory with the orders of tables that no longer exist
+    private static final int MAX_REMEMBERED_ORDERS = 1 << 16;
+
+    private static final int UNREACHABLE = Integer.MIN_VALUE / 2;
+
+    private final GuestPreferenceMatrix preferences;
+
+    // The gender of each guest when the orderer was created, at the guest's index. A guest's
+    // gender can change without the preference matrix being replaced, so the remembered orders are
+    // found with these rather than with the guests' current genders.
+    private final Guest.Gender[] genders;
+
+    private final Map<TableKey, int[]> orders = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an orderer for the guests and preferences of a solution. The orderer must be
+     * created again after the guests, their genders or their preferences change.
+     *
+     * @param solution the solution whose tables will be ordered
+     */
+    public SeatingPlanTableOrderer(SeatingPlanSolution solution) {
+        preferences = solution.getGuestPreferenceMatrix();
+        genders = new Guest.Gender[preferences.getGuestCount()];
+        solution.getGuests().forEach(guest -> genders[guest.getIndex()] = guest.getGender());
+    }
+
+    /**
+     * Returns whether this orderer still orders the tables of a solution correctly, which it does
+     * while the solution has the preference matrix that the orderer was created with and none of
+     * the guests' genders have changed since.
+     *
+     * @param solution the solution whose tables will be ordered
+     * @return true if the orderer can still be used for the solution
+     */
+    public boolean isUpToDate(SeatingPlanSolution solution) {
+        if (solution.getGuestPreferenceMatrix() != preferences) return false;
+        for (Guest guest : solution.getGuests()) {
+            if (genders[guest.getIndex()] != guest.getGender()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Orders the guests at a table. The guests can be given in any order, and there can be fewer
+     * of them than there are seats.
+     *
+     * @param guestIndexes the indexes of the guests at the table, which may include NONE
+     * @param seatsAroundTable the table's seats in order from left to right, as returned by
+     *                         SeatTopology.getSeatsAroundTable
+     * @param topology the topology of the seats
+     * @return the index of the guest in each of the table's seats in the best order, or NONE for
+     * an empty seat
+     */
+    public int[] orderTable(int[] guestIndexes, int[] seatsAroundTable, SeatTopology topology) {
+        if (guestIndexes.length > seatsAroundTable.length) {
+            throw new IllegalArgumentException("guests (" + guestIndexes.length + ") must not outnumber seats (" + seatsAroundTable.length + ")");
+        }
+        int size = seatsAroundTable.length;
+        int[] members = Arrays.copyOf(guestIndexes, size);
+        Arrays.fill(members, guestIndexes.length, size, NONE);
+        int[] rightPositions = getRightPositions(seatsAroundTable, topology);
+        // Larger tables are improved from the order they are given in, which is never made worse
+        if (size > MAX_EXACT_SEATS) return findOrder(members, rightPositions);
+        Arrays.sort(members);
+        TableKey key = new TableKey(members, rightPositions);
+        int[] order = orders.get(key);
+        if (order == null) {
+            order = findOrder(members, rightPositions);
+            if (orders.size() >= MAX_REMEMBERED_ORDERS) orders.clear();
+            orders.put(key, order);
+        }
+        return order.clone();
+    }
+
+    /**
+     * Returns the score of the neighbours at a table when its guests are in the given order. This
+     * is the only part of the score that ordering the table changes.
+     *
+     * @param order the index of the guest in each of the table's seats, or NONE
+     * @param seatsAroundTable the table's seats in order from left to right
+     * @param topology the topology of the seats
+     * @return the score of the neighbours at the table
+     */
+    public int getOrderScore(int[] order, int[] seatsAroundTable, SeatTopology topology) {
+        int[] rightPositions = getRightPositions(seatsAroundTable, topology);
+        int score = 0;
+        for (int position = 0; position < order.length; position++) {
+            if (rightPositions[position] != NONE) score += getPairScore(order[position], order[rightPositions[position]]);
+        }
+        return score;
+    }
+
+    // Finds the best order of the members, which are the table's guests and empty seats.
+    private int[] findOrder(int[] members, int[] rightPositions) {
+        int size = members.length;
+        int[][] pairScores = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i != j) pairScores[i][j] = getPairScore(members[i], members[j]);
+            }
+        }
+        int[] memberOrder = size <= MAX_EXACT_SEATS ? findExactOrder(rightPositions, pairScores) : null;
+        if (memberOrder == null) memberOrder = findOrderBySwaps(rightPositions, pairScores);
+        int[] order = new int[size];
+        for (int position = 0; position < size; position++) {
+            order[position] = members[memberOrder[position]];
+        }
+        return order;
+    }
+
+    // Finds the best order of the members with the Held-Karp algorithm, returning the member in
+    // each position, or null if the table's seats are not one ring or a number of rows.
+    private static int[] findExactOrder(int[] rightPositions, int[][] pairScores) {
+        int size = rightPositions.length;
+        // Lay the seats out as one sequence, made of each row from left to right or of the ring,
+        // where each seat after the first is either the right neighbour of the one before it or
+        // the first seat of another row
+        int[] sequence = new int[size];
+        boolean[] hasLeft = new boolean[size];
+        for (int position = 0; position < size; position++) {
+            if (rightPositions[position] != NONE) hasLeft[rightPositions[position]] = true;
+        }
+        boolean[] added = new boolean[size];
+        int count = 0;
+        for (int position = 0; position < size; position++) {
+            if (hasLeft[position]) continue;
+            for (int seat = position; seat != NONE && !added[seat]; seat = rightPositions[seat]) {
+                added[seat] = true;
+                sequence[count++] = seat;
+            }
+        }
+        boolean ring = count == 0;
+        if (ring) {
+            for (int seat = 0; seat != NONE && !added[seat]; seat = rightPositions[seat]) {
+                added[seat] = true;
+                sequence[count++] = seat;
+            }
+        }
+        // Seats that are left over are in a ring beside rows, or in more than one ring
+        if (count < size || (ring && rightPositions[sequence[size - 1]] != sequence[0])) return null;
+        boolean[] linked = new boolean[size];
+        for (int i = 1; i < size; i++) {
+            linked[i] = rightPositions[sequence[i - 1]] == sequence[i];
+        }
+        // best[mask * size + last] is the best score of the members in mask in the first seats of
+        // the sequence, with member last in the last of those seats
+        int[] best = new int[(1 << size) * size];
+        Arrays.fill(best, UNREACHABLE);
+        if (ring) {
+            // Turning a round table doesn't change its score, so member 0 can always go first
+            best[size] = 0;
+        } else {
+            for (int member = 0; member < size; member++) {
+                best[(1 << member) * size + member] = 0;
+            }
+        }
+        for (int mask = 1; mask < (1 << size); mask++) {
+            int next = Integer.bitCount(mask);
+            if (next == size) continue;
+            for (int last = 0; last < size; last++) {
+                int score = best[mask * size + last];
+                if (score == UNREACHABLE) continue;
+                for (int member = 0; member < size; member++) {
+                    if ((mask & (1 << member)) != 0) continue;
+                    int nextScore = score + (linked[next] ? pairScores[last][member] : 0);
+                    int index = (mask | (1 << member)) * size + member;
+                    if (nextScore > best[index]) best[index] = nextScore;
+                }
+            }
+        }
+        // Close the ring between the last member and member 0, then walk back through the
+        // sequence to find the member in each seat
+        int full = (1 << size) - 1;
+        int bestLast = NONE;
+        int bestScore = UNREACHABLE;
+        for (int last = 0; last < size; last++) {
+            int score = best[full * size + last];
+            if (score == UNREACHABLE) continue;
+            if (ring) score += pairScores[last][0];
+            if (score > bestScore) {
+                bestScore = score;
+                bestLast = last;
+            }
+        }
+        int[] memberOrder = new int[size];
+        int mask = full;
+        int last = bestLast;
+        for (int i = size - 1; i >= 0; i--) {
+            memberOrder[sequence[i]] = last;
+            if (i == 0) break;
+            int previousMask = mask & ~(1 << last);
+            int score = best[mask * size + last];
+            for (int previous = 0; previous < size; previous++) {
+                int previousScore = best[previousMask * size + previous];
+                if (previousScore != UNREACHABLE && previousScore + (linked[i] ? pairScores[previous][last] : 0) == score) {
+                    last = previous;
+                    break;
+                }
+            }
+            mask = previousMask;
+        }
+        return memberOrder;
+    }
+
+    // Starting from the members in the order given, keeps swapping the pair of seats that improves
+    // the table's score the most until no swap improves it, returning the member in each position.
+    private static int[] findOrderBySwaps(int[] rightPositions, int[][] pairScores) {
+        int size = rightPositions.length;
+        int[] memberOrder = new int[size];
+        for (int position = 0; position < size; position++) {
+            memberOrder[position] = position;
+        }
+        int score = getMemberOrderScore(memberOrder, rightPositions, pairScores);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int bestScore = score;
+            int bestFirst = NONE;
+            int bestSecond = NONE;
+            for (int first = 0; first < size; first++) {
+                for (int second = first + 1; second < size; second++) {
+                    swap(memberOrder, first, second);
+                    int swappedScore = getMemberOrderScore(memberOrder, rightPositions, pairScores);
+                    swap(memberOrder, first, second);
+                    if (swappedScore > bestScore) {
+                        bestScore = swappedScore;
+                        bestFirst = first;
+                        bestSecond = second;
+                    }
+                }
+            }
+            if (bestFirst != NONE) {
+                swap(memberOrder, bestFirst, bestSecond);
+                score = bestScore;
+                improved = true;
+            }
+        }
+        return memberOrder;
+    }
+
+    private static int getMemberOrderScore(int[] memberOrder, int[] rightPositions, int[][] pairScores) {
+        int score = 0;
+        for (int position = 0; position < memberOrder.length; position++) {
+            if (rightPositions[position] != NONE) score += pairScores[memberOrder[position]][memberOrder[rightPositions[position]]];
+        }
+        return score;
+    }
+
+    private static void swap(int[] values, int first, int second) {
+        int value = values[first];
+        values[first] = values[second];
+        values[second] = value;
+    }
+
+    // The score that two guests add to a solution by sitting beside each other, which is the same
+    // whichever side each of them is on. Each of them loses a point if they have the same gender,
+    // and each of their preferences about sitting beside the other counts. An empty seat scores
+    // nothing beside anyone.
+    private int getPairScore(int guestIndex, int otherGuestIndex) {
+        if (guestIndex == NONE || otherGuestIndex == NONE) return 0;
+        int score = preferences.getBesideWeight(guestIndex, otherGuestIndex) + preferences.getBesideWeight(otherGuestIndex, guestIndex);
+        if (genders[guestIndex] == genders[otherGuestIndex]) score -= 2;
+        return score;
+    }
+
+    // Finds the position of the seat to the right of each of a table's seats, or NONE.
+    private static int[] getRightPositions(int[] seatsAroundTable, SeatTopology topology) {
+        int[] rightPositions = new int[seatsAroundTable.length];
+        for (int position = 0; position < seatsAroundTable.length; position++) {
+            rightPositions[position] = NONE;
+            int rightSeat = topology.getRightSeat(seatsAroundTable[position]);
+            for (int other = 0; other < seatsAroundTable.length; other++) {
+                if (seatsAroundTable[other] == rightSeat) rightPositions[position] = other;
+            }
+        }
+        return rightPositions;
+    }
+
+    // The guests at a table, in sorted order, and the shape of the table. Tables with the same
+    // guests and the same shape have the same best order.
+    private static class TableKey {
+
+        private final int[] members;
+
+        private final int[] rightPositions;
+
+        private final int hashCode;
+
+        private TableKey(int[] members, int[] rightPositions) {
+            this.members = members;
+            this.rightPositions = rightPositions;
+            hashCode = 31 * Arrays.hashCode(members) + Arrays.hashCode(rightPositions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TableKey)) return false;
+            TableKey other = (TableKey) o;
+            return Arrays.equals(members, other.members) && Arrays.equals(rightPositions, other.rightPositions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
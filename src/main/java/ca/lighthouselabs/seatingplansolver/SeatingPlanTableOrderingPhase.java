@@ -0,0 +1,72 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+
+/**
+ * Puts the guests at every table in the best order for that table, as found by
+ * SeatingPlanTableOrderer, without changing which guests are at each table. Tables that are already
+ * in their best order are left as they are.
+ *
+ * @author David VanDusen
+ */
+// SeatingPlanInitializer seats each group of guests in consecutive seats in the order it visits
+// them, which keeps groups together but pays no attention to genders or to who wants to sit beside
+// who. Ordering every table exactly after it gives the local search a start where no move within a
+// single table can improve the score, so its moves are spent on which guests sit at which table.
+//
+// The orderer remembers the order of each set of guests at each shape of table, so it is kept for
+// as long as the solution's guests, their genders and their preferences stay the same. The phase runs again whenever the solver
+// restarts, such as when the portfolio solver copies its best seat assignments into a solver that
+// has fallen behind, and then most tables have the same guests as they had the last time.
+public class SeatingPlanTableOrderingPhase implements CustomPhaseCommand {
+
+    private SeatingPlanTableOrderer orderer;
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector scoreDirector) {
+        SeatingPlanSolution solution = (SeatingPlanSolution) scoreDirector.getWorkingSolution();
+        SeatTopology topology = solution.getSeatTopology();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        SeatingPlanTableOrderer orderer = getOrderer(solution);
+        for (int table = 0; table < topology.getTableCount(); table++) {
+            int[] seatsAroundTable = topology.getSeatsAroundTable(table);
+            Guest[] guests = new Guest[seatsAroundTable.length];
+            int[] guestIndexes = new int[seatsAroundTable.length];
+            for (int position = 0; position < seatsAroundTable.length; position++) {
+                guests[position] = seats[seatsAroundTable[position]].getGuest();
+                guestIndexes[position] = guests[position] == null ? SeatingPlanTableOrderer.NONE : guests[position].getIndex();
+            }
+            int[] order = orderer.orderTable(guestIndexes, seatsAroundTable, topology);
+            if (orderer.getOrderScore(order, seatsAroundTable, topology) <= orderer.getOrderScore(guestIndexes, seatsAroundTable, topology)) continue;
+            for (int position = 0; position < seatsAroundTable.length; position++) {
+                Seat seat = seats[seatsAroundTable[position]];
+                Guest guest = findGuest(guests, order[position]);
+                if (seat.getGuest() == guest) continue;
+                scoreDirector.beforeVariableChanged(seat, "guest");
+                seat.setGuest(guest);
+                scoreDirector.afterVariableChanged(seat, "guest");
+            }
+        }
+    }
+
+    // Returns the orderer of the last run, unless the guests, their genders or their preferences
+    // have changed since then.
+    private SeatingPlanTableOrderer getOrderer(SeatingPlanSolution solution) {
+        if (orderer == null || !orderer.isUpToDate(solution)) {
+            orderer = new SeatingPlanTableOrderer(solution);
+        }
+        return orderer;
+    }
+
+    // Finds the guest with an index among the guests that were at a table, or null for an empty
+    // seat.
+    private static Guest findGuest(Guest[] guests, int guestIndex) {
+        if (guestIndex == SeatingPlanTableOrderer.NONE) return null;
+        for (Guest guest : guests) {
+            if (guest != null && guest.getIndex() == guestIndex) return guest;
+        }
+        throw new IllegalStateException("guest (" + guestIndex + ") is not at the table");
+    }
+
+}
@@ -0,0 +1,263 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decides when to stop solving a particular seating plan problem: after a time limit that grows
+ * with the number of guests, once the best score has stopped improving for a part of that time,
+ * once a target score is reached, or once the score can't possibly get any better. Solvers built
+ * with it still stop at the termination configured in the solver XML at the latest.
+ *
+ * @author David VanDusen
+ */
+// A fixed time limit has to be long enough for the largest events, so small events that find their
+// best plan in seconds keep searching for the rest of it without finding anything better. None of
+// OptaPlanner's own terminations know how big the problem is, so this works out the limits for each
+// problem before its solver is built and combines them with the configured termination, where
+// whichever limit is reached first stops the solver.
+//
+// The upper bound on the soft score assumes that every guest gets every seating preference that
+// could be satisfied at once: each of their wanted "seat beside" guests up to the two seats next to
+// them, each of their wanted "seat at same table" guests up to the size of the largest table, and
+// none of their unwanted guests or neighbours of the same gender. A plan with that score can't be
+// improved on, so there is no point in searching any further once one is found.
+public class SeatingPlanTermination {
+
+    // Every seat has a seat to its left and a seat to its right at most
+    private static final int MAX_NEIGHBOURS = 2;
+
+    private long minSecondsSpentLimit = 30L;
+
+    private long secondsSpentLimitPerThousandGuests = 120L;
+
+    private int unimprovedPercent = 20;
+
+    private int unimprovedStepCountLimit = 0;
+
+    private HardSoftScore bestScoreLimit;
+
+    private boolean upperBoundLimited = true;
+
+    public long getMinSecondsSpentLimit() {
+        return minSecondsSpentLimit;
+    }
+
+    /**
+     * Sets the time limit for an event without any guests, which the time per thousand guests is
+     * added to.
+     *
+     * @param minSecondsSpentLimit the time limit in seconds
+     */
+    public void setMinSecondsSpentLimit(long minSecondsSpentLimit) {
+        if (minSecondsSpentLimit < 1) throw new IllegalArgumentException("minimum time limit (" + minSecondsSpentLimit + ") must be at least 1");
+        this.minSecondsSpentLimit = minSecondsSpentLimit;
+    }
+
+    public long getSecondsSpentLimitPerThousandGuests() {
+        return secondsSpentLimitPerThousandGuests;
+    }
+
+    public void setSecondsSpentLimitPerThousandGuests(long secondsSpentLimitPerThousandGuests) {
+        if (secondsSpentLimitPerThousandGuests < 0) {
+            throw new IllegalArgumentException("time limit per thousand guests (" + secondsSpentLimitPerThousandGuests + ") must not be negative");
+        }
+        this.secondsSpentLimitPerThousandGuests = secondsSpentLimitPerThousandGuests;
+    }
+
+    public int getUnimprovedPercent() {
+        return unimprovedPercent;
+    }
+
+    /**
+     * Sets how long the best score may go without improving, as a percentage of the problem's time
+     * limit, before the solver stops.
+     *
+     * @param unimprovedPercent the percentage of the time limit, or 100 to never stop early
+     */
+    public void setUnimprovedPercent(int unimprovedPercent) {
+        if (unimprovedPercent < 1 || unimprovedPercent > 100) {
+            throw new IllegalArgumentException("unimproved percentage (" + unimprovedPercent + ") must be from 1 to 100");
+        }
+        this.unimprovedPercent = unimprovedPercent;
+    }
+
+    public int getUnimprovedStepCountLimit() {
+        return unimprovedStepCountLimit;
+    }
+
+    /**
+     * Sets how many local search steps may go without improving the best score before the local
+     * search stops.
+     *
+     * @param unimprovedStepCountLimit the number of steps, or 0 for no limit
+     */
+    public void setUnimprovedStepCountLimit(int unimprovedStepCountLimit) {
+        if (unimprovedStepCountLimit < 0) {
+            throw new IllegalArgumentException("unimproved step count limit (" + unimprovedStepCountLimit + ") must not be negative");
+        }
+        this.unimprovedStepCountLimit = unimprovedStepCountLimit;
+    }
+
+    public HardSoftScore getBestScoreLimit() {
+        return bestScoreLimit;
+    }
+
+    /**
+     * Sets a score that is good enough to stop at, such as 0hard/100soft.
+     *
+     * @param bestScoreLimit the score to stop at, or null to only stop at the upper bound
+     */
+    public void setBestScoreLimit(HardSoftScore bestScoreLimit) {
+        this.bestScoreLimit = bestScoreLimit;
+    }
+
+    public boolean isUpperBoundLimited() {
+        return upperBoundLimited;
+    }
+
+    /**
+     * Sets whether to stop when a plan reaches the highest score that the problem could possibly
+     * have.
+     *
+     * @param upperBoundLimited true to stop at the upper bound
+     */
+    public void setUpperBoundLimited(boolean upperBoundLimited) {
+        this.upperBoundLimited = upperBoundLimited;
+    }
+
+    /**
+     * Returns the time limit for a problem with a number of guests.
+     *
+     * @param guestCount the number of guests
+     * @return the time limit in seconds
+     */
+    public long getSecondsSpentLimit(int guestCount) {
+        return minSecondsSpentLimit + secondsSpentLimitPerThousandGuests * guestCount / 1000L;
+    }
+
+    /**
+     * Returns the score that solving a problem stops at, which is the lower of the best score limit
+     * and the problem's upper bound.
+     *
+     * @param problem the problem that will be solved
+     * @return the score to stop at, or null if there isn't one
+     */
+    public HardSoftScore calculateBestScoreLimit(SeatingPlanSolution problem) {
+        HardSoftScore limit = bestScoreLimit;
+        if (upperBoundLimited) {
+            HardSoftScore upperBound = HardSoftScore.valueOf(0, getSoftScoreUpperBound(problem));
+            if (limit == null || upperBound.compareTo(limit) < 0) limit = upperBound;
+        }
+        return limit;
+    }
+
+    /**
+     * Creates the termination for a problem, which stops at whichever of its limits or the given
+     * configured termination is reached first.
+     *
+     * @param problem the problem that will be solved
+     * @param configuredTerminationConfig the termination from the solver configuration, or null
+     * @return the termination for the problem
+     */
+    public TerminationConfig createTerminationConfig(SeatingPlanSolution problem, TerminationConfig configuredTerminationConfig) {
+        long secondsSpentLimit = getSecondsSpentLimit(problem.getGuests().size());
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setSecondsSpentLimit(secondsSpentLimit);
+        if (unimprovedPercent < 100) {
+            terminationConfig.setUnimprovedMillisecondsSpentLimit(secondsSpentLimit * 10L * unimprovedPercent);
+        }
+        HardSoftScore limit = calculateBestScoreLimit(problem);
+        if (limit != null) terminationConfig.setBestScoreLimit(limit.toString());
+        if (configuredTerminationConfig != null) {
+            terminationConfig.setTerminationConfigList(Collections.singletonList(configuredTerminationConfig));
+        }
+        return terminationConfig;
+    }
+
+    /**
+     * Builds a solver for a problem with the factory's configuration and this termination. The
+     * factory's configuration is restored afterwards, so that it can still be shared.
+     *
+     * @param solverFactory the factory to build the solver with
+     * @param problem the problem that the solver will solve
+     * @return the solver
+     */
+    public Solver buildSolver(SolverFactory solverFactory, SeatingPlanSolution problem) {
+        synchronized (solverFactory) {
+            SolverConfig solverConfig = solverFactory.getSolverConfig();
+            TerminationConfig configuredTerminationConfig = solverConfig.getTerminationConfig();
+            List<PhaseConfig> localSearchPhaseConfigs = new ArrayList<>();
+            List<TerminationConfig> configuredPhaseTerminationConfigs = new ArrayList<>();
+            try {
+                solverConfig.setTerminationConfig(createTerminationConfig(problem, configuredTerminationConfig));
+                // Counting unimproved steps only works within a phase, and only the local search
+                // has steps that can go without improving
+                if (unimprovedStepCountLimit > 0) {
+                    for (PhaseConfig phaseConfig : solverConfig.getPhaseConfigList()) {
+                        if (!(phaseConfig instanceof LocalSearchPhaseConfig)) continue;
+                        TerminationConfig phaseTerminationConfig = new TerminationConfig();
+                        phaseTerminationConfig.setUnimprovedStepCountLimit(unimprovedStepCountLimit);
+                        if (phaseConfig.getTerminationConfig() != null) {
+                            phaseTerminationConfig.setTerminationConfigList(Collections.singletonList(phaseConfig.getTerminationConfig()));
+                        }
+                        localSearchPhaseConfigs.add(phaseConfig);
+                        configuredPhaseTerminationConfigs.add(phaseConfig.getTerminationConfig());
+                        phaseConfig.setTerminationConfig(phaseTerminationConfig);
+                    }
+                }
+                return solverFactory.buildSolver();
+            } finally {
+                solverConfig.setTerminationConfig(configuredTerminationConfig);
+                for (int i = 0; i < localSearchPhaseConfigs.size(); i++) {
+                    localSearchPhaseConfigs.get(i).setTerminationConfig(configuredPhaseTerminationConfigs.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a soft score that no plan for a problem can be better than, from the number of
+     * seating preferences that each guest has. The problem isn't changed, even if its guests and
+     * seats haven't been indexed yet.
+     *
+     * @param problem the problem to find the upper bound of
+     * @return the upper bound on the soft score
+     */
+    public static int getSoftScoreUpperBound(SeatingPlanSolution problem) {
+        GuestPreferenceMatrix preferences = problem.getGuestPreferenceMatrix();
+        if (preferences == null) preferences = GuestPreferenceMatrix.createWithoutIndexing(problem.getGuests());
+        SeatTopology topology = problem.getSeatTopology();
+        if (topology == null) topology = SeatTopology.createWithoutIndexing(problem.getSeats());
+        int largestTableSize = 0;
+        for (int table = 0; table < topology.getTableCount(); table++) {
+            largestTableSize = Math.max(largestTableSize, topology.getTableEnd(table) - topology.getTableStart(table));
+        }
+        int upperBound = 0;
+        for (int guest = 0; guest < preferences.getGuestCount(); guest++) {
+            // Preferences only have weights of 1, 0 or -1, so the best a guest can do is the number
+            // of guests they want to be near, up to the number of places there are near them
+            int wantedBesideCount = 0;
+            int wantedAtSameTableCount = 0;
+            for (int position = preferences.getRelatedGuestStart(guest); position < preferences.getRelatedGuestEnd(guest); position++) {
+                // A guest can't be beside or at the same table as themself
+                if (preferences.getRelatedGuestAtPosition(position) == guest) continue;
+                if (preferences.getBesideWeightAtPosition(position) > 0) wantedBesideCount++;
+                if (preferences.getSameTableWeightAtPosition(position) > 0) wantedAtSameTableCount++;
+            }
+            upperBound += Math.min(wantedBesideCount, MAX_NEIGHBOURS);
+            upperBound += Math.min(wantedAtSameTableCount, Math.max(largestTableSize - 1, 0));
+        }
+        return upperBound;
+    }
+
+}
@@ -0,0 +1,423 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a seating plan problem in two levels: first by deciding which table each guest sits at,
+ * and then by deciding the order of the guests around each table, with the tables ordered in
+ * parallel. The result is then improved by a short local search over the whole solution.
+ *
+ * @author David VanDusen
+ */
+// The soft score splits cleanly into two kinds of terms. Whether guests are at the same table only
+// depends on which table each guest is at, and whether guests are beside each other or next to a
+// guest of the same gender only depends on the order of the guests at one table. A local search
+// that moves one guest at a time has to get both right at once, so it spends most of its moves on
+// seats at tables that the guest should not be at in the first place.
+//
+// Solving the levels one after the other makes each of them much smaller. Assigning guests to
+// tables is a graph partitioning problem over the preferences between guests, where each table
+// holds as many guests as it has seats. Guests who want to sit beside each other also need to be
+// at the same table, so those preferences count towards keeping them together as well. How many
+// guests of each gender a table has limits how well their genders can alternate, so that is
+// estimated as part of the first level too. Ordering the guests at one table is then a small
+// problem of its own that doesn't affect any other table, so every table can be ordered on its own
+// thread, exactly for tables of up to SeatingPlanTableOrderer.MAX_EXACT_SEATS.
+public class SeatingPlanTwoLevelSolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatingPlanTwoLevelSolver.class);
+
+    // The guest index used for an empty seat, and the table index of a guest without a table
+    private static final int NONE = -1;
+
+    // The most passes over all the guests when improving the table assignments. Each pass only
+    // keeps going while it finds improvements, so this is only reached by very large problems.
+    private static final int MAX_ASSIGNMENT_PASSES = 50;
+
+    private final SolverFactory solverFactory;
+
+    private final int threadCount;
+
+    private long polishSecondsSpentLimit = 60L;
+
+    /**
+     * Creates a two-level solver that polishes its solution with the local search phases of a
+     * solver built by the given factory.
+     *
+     * @param solverFactory the factory that the polishing solver is built with
+     * @param threadCount the number of tables to order at once
+     */
+    public SeatingPlanTwoLevelSolver(SolverFactory solverFactory, int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("thread count (" + threadCount + ") must be at least 1");
+        this.solverFactory = solverFactory;
+        this.threadCount = threadCount;
+    }
+
+    public long getPolishSecondsSpentLimit() {
+        return polishSecondsSpentLimit;
+    }
+
+    /**
+     * Sets how long the local search over the whole solution runs for after both levels have been
+     * solved. A limit of 0 skips the local search.
+     *
+     * @param polishSecondsSpentLimit the time limit in seconds
+     */
+    public void setPolishSecondsSpentLimit(long polishSecondsSpentLimit) {
+        if (polishSecondsSpentLimit < 0) throw new IllegalArgumentException("polish time limit (" + polishSecondsSpentLimit + ") must not be negative");
+        this.polishSecondsSpentLimit = polishSecondsSpentLimit;
+    }
+
+    /**
+     * Solves the planning problem and returns the best solution found. The planning problem itself
+     * is not changed. Guests who already have a seat in the planning problem start at that seat's
+     * table.
+     *
+     * @param planningProblem the problem to solve
+     * @return the best solution found
+     * @throws InterruptedException if the thread is interrupted while waiting for the tables
+     */
+    public SeatingPlanSolution solve(SeatingPlanSolution planningProblem) throws InterruptedException {
+        SeatingPlanSolution solution = SeatingPlanSolutionFactory.createCopy(planningProblem);
+        TableAssignment assignment = new TableAssignment(solution);
+        assignment.assignGuests();
+        LOG.info("Assigned guests to tables with an estimated table score of ({}).", assignment.getScore());
+        int passes = assignment.improve();
+        LOG.info("Improved the table assignments to an estimated table score of ({}) in ({}) passes.", assignment.getScore(), passes);
+        orderTables(solution, assignment);
+        HardSoftScore score = (HardSoftScore) new SeatingPlanScoreCalculator().calculateScore(solution);
+        solution.setScore(score);
+        LOG.info("Ordered the guests at each table on ({}) threads with score ({}).", threadCount, score);
+        if (polishSecondsSpentLimit == 0) return solution;
+        Solver polishSolver = SeatingPlanPartitionedSolver.buildLocalSearchSolver(solverFactory, polishSecondsSpentLimit);
+        polishSolver.solve(solution);
+        return (SeatingPlanSolution) polishSolver.getBestSolution();
+    }
+
+    // Orders the guests at every table and seats them in the solution. The tables are shared out
+    // between the threads in turn, and each table's seats are only ever set by one thread.
+    private void orderTables(SeatingPlanSolution solution, TableAssignment assignment) throws InterruptedException {
+        SeatTopology topology = solution.getSeatTopology();
+        GuestPreferenceMatrix preferences = solution.getGuestPreferenceMatrix();
+        Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+        Guest[] guestsByIndex = new Guest[preferences.getGuestCount()];
+        solution.getGuests().forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+        SeatingPlanTableOrderer orderer = new SeatingPlanTableOrderer(solution);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threadCount);
+            for (int thread = 0; thread < threadCount; thread++) {
+                int firstTable = thread;
+                futures.add(executor.submit(() -> {
+                    for (int table = firstTable; table < topology.getTableCount(); table += threadCount) {
+                        int[] seatsAroundTable = topology.getSeatsAroundTable(table);
+                        int[] order = orderer.orderTable(assignment.getGuestsAtTable(table), seatsAroundTable, topology);
+                        for (int position = 0; position < order.length; position++) {
+                            seats[seatsAroundTable[position]].setGuest(order[position] == SeatingPlanTableOrderer.NONE ? null : guestsByIndex[order[position]]);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("ordering tables failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The table that each guest is at, along with the guests and the number of each gender at each
+    // table, and the weights between guests that decide which guests should share a table.
+    private static class TableAssignment {
+
+        private final GuestPreferenceMatrix preferences;
+
+        private final Guest.Gender[] genders;
+
+        // affinityGuests[affinityOffsets[i]] to affinityGuests[affinityOffsets[i + 1] - 1] are the
+        // guests that the guest with index i has a table weight with, in either direction. A pair
+        // of guests with preferences about each other appears twice, and both weights count.
+        private final int[] affinityOffsets;
+
+        private final int[] affinityGuests;
+
+        private final int[] affinityWeights;
+
+        private final int[] tables;
+
+        private final int[] capacities;
+
+        private final int[][] guestsAtTables;
+
+        private final int[] guestCounts;
+
+        private final int[] maleCounts;
+
+        private final int[] femaleCounts;
+
+        // The tables in order of how many free seats they have, most first
+        private final TreeSet<Integer> tablesByFreeSeats;
+
+        private TableAssignment(SeatingPlanSolution solution) {
+            preferences = solution.getGuestPreferenceMatrix();
+            SeatTopology topology = solution.getSeatTopology();
+            int guestCount = preferences.getGuestCount();
+            int tableCount = topology.getTableCount();
+            genders = new Guest.Gender[guestCount];
+            solution.getGuests().forEach(guest -> genders[guest.getIndex()] = guest.getGender());
+            affinityOffsets = new int[guestCount + 1];
+            for (int i = 0; i < guestCount; i++) {
+                for (int position = preferences.getRelatedGuestStart(i); position < preferences.getRelatedGuestEnd(i); position++) {
+                    if (getAffinityWeight(i, position) == 0) continue;
+                    affinityOffsets[i + 1]++;
+                    affinityOffsets[preferences.getRelatedGuestAtPosition(position) + 1]++;
+                }
+            }
+            for (int i = 0; i < guestCount; i++) {
+                affinityOffsets[i + 1] += affinityOffsets[i];
+            }
+            affinityGuests = new int[affinityOffsets[guestCount]];
+            affinityWeights = new int[affinityGuests.length];
+            int[] nextPositions = affinityOffsets.clone();
+            for (int i = 0; i < guestCount; i++) {
+                for (int position = preferences.getRelatedGuestStart(i); position < preferences.getRelatedGuestEnd(i); position++) {
+                    int weight = getAffinityWeight(i, position);
+                    if (weight == 0) continue;
+                    int relatedGuest = preferences.getRelatedGuestAtPosition(position);
+                    affinityGuests[nextPositions[i]] = relatedGuest;
+                    affinityWeights[nextPositions[i]++] = weight;
+                    affinityGuests[nextPositions[relatedGuest]] = i;
+                    affinityWeights[nextPositions[relatedGuest]++] = weight;
+                }
+            }
+            tables = new int[guestCount];
+            capacities = new int[tableCount];
+            guestsAtTables = new int[tableCount][];
+            guestCounts = new int[tableCount];
+            maleCounts = new int[tableCount];
+            femaleCounts = new int[tableCount];
+            for (int table = 0; table < tableCount; table++) {
+                capacities[table] = topology.getTableEnd(table) - topology.getTableStart(table);
+                guestsAtTables[table] = new int[capacities[table]];
+            }
+            tablesByFreeSeats = new TreeSet<>(Comparator.comparingInt((Integer table) -> capacities[table] - guestCounts[table])
+                    .reversed().thenComparingInt(table -> table));
+            for (int table = 0; table < tableCount; table++) {
+                tablesByFreeSeats.add(table);
+            }
+            Arrays.fill(tables, NONE);
+            // Guests who already have a seat start at its table
+            for (Seat seat : solution.getSeats()) {
+                Guest guest = seat.getGuest();
+                if (guest != null && tables[guest.getIndex()] == NONE) add(guest.getIndex(), topology.getTable(seat.getId()));
+            }
+        }
+
+        // A guest's preference about sitting at the same table as another guest counts in full. A
+        // preference about sitting beside them can only be met at the same table, so it counts
+        // towards keeping them together, but a preference about not sitting beside them can still
+        // be met at the same table, so it doesn't count. A guest's preferences about themself never
+        // count.
+        private int getAffinityWeight(int guest, int position) {
+            if (preferences.getRelatedGuestAtPosition(position) == guest) return 0;
+            return preferences.getSameTableWeightAtPosition(position) + Math.max(0, preferences.getBesideWeightAtPosition(position));
+        }
+
+        private int[] getGuestsAtTable(int table) {
+            return Arrays.copyOf(guestsAtTables[table], guestCounts[table]);
+        }
+
+        // Seats the guests without a table one group of guests who want to sit with each other at
+        // a time, largest group first. Each guest goes to the table with free seats where they add
+        // the most to the score, and a guest who adds nothing anywhere, such as the first guest of
+        // a group, goes to the table with the most free seats so that the rest of the group can
+        // follow them there.
+        private void assignGuests() {
+            List<int[]> groups = SeatingPlanPartitionedSolver.getGroups(preferences);
+            groups.sort(Comparator.comparingInt((int[] group) -> group.length).reversed());
+            for (int[] group : groups) {
+                for (int guest : group) {
+                    if (tables[guest] != NONE || tablesByFreeSeats.isEmpty()) continue;
+                    if (capacities[tablesByFreeSeats.first()] == guestCounts[tablesByFreeSeats.first()]) return;
+                    int bestTable = tablesByFreeSeats.first();
+                    int bestGain = getGain(guest, NONE, bestTable);
+                    for (int position = affinityOffsets[guest]; position < affinityOffsets[guest + 1]; position++) {
+                        int table = tables[affinityGuests[position]];
+                        if (table == NONE || guestCounts[table] == capacities[table]) continue;
+                        int gain = getGain(guest, NONE, table);
+                        if (gain > bestGain) {
+                            bestGain = gain;
+                            bestTable = table;
+                        }
+                    }
+                    add(guest, bestTable);
+                }
+            }
+        }
+
+        // Goes over every guest, moving them to the table of one of the guests they have a weight
+        // with, or swapping them with a guest at that table when it is full, whenever that improves
+        // the score. Returns the number of passes made.
+        private int improve() {
+            int passes = 0;
+            boolean improved = true;
+            while (improved && passes < MAX_ASSIGNMENT_PASSES) {
+                improved = false;
+                passes++;
+                for (int guest = 0; guest < tables.length; guest++) {
+                    int table = tables[guest];
+                    if (table == NONE) continue;
+                    int bestGain = 0;
+                    int bestTable = NONE;
+                    int bestOtherGuest = NONE;
+                    for (int position = affinityOffsets[guest]; position < affinityOffsets[guest + 1]; position++) {
+                        int otherTable = tables[affinityGuests[position]];
+                        if (otherTable == NONE || otherTable == table) continue;
+                        if (guestCounts[otherTable] < capacities[otherTable]) {
+                            int gain = getGain(guest, table, otherTable);
+                            if (gain > bestGain) {
+                                bestGain = gain;
+                                bestTable = otherTable;
+                                bestOtherGuest = NONE;
+                            }
+                        } else {
+                            for (int i = 0; i < guestCounts[otherTable]; i++) {
+                                int otherGuest = guestsAtTables[otherTable][i];
+                                int gain = getSwapGain(guest, table, otherGuest, otherTable);
+                                if (gain > bestGain) {
+                                    bestGain = gain;
+                                    bestTable = otherTable;
+                                    bestOtherGuest = otherGuest;
+                                }
+                            }
+                        }
+                    }
+                    if (bestTable == NONE) continue;
+                    remove(guest);
+                    if (bestOtherGuest != NONE) {
+                        remove(bestOtherGuest);
+                        add(bestOtherGuest, table);
+                    }
+                    add(guest, bestTable);
+                    improved = true;
+                }
+            }
+            return passes;
+        }
+
+        // The change in score from moving a guest from one table, or from no table, to another.
+        private int getGain(int guest, int fromTable, int toTable) {
+            int gain = getAffinity(guest, toTable) - getAffinity(guest, fromTable);
+            int male = genders[guest] == Guest.Gender.MALE ? 1 : 0;
+            int female = genders[guest] == Guest.Gender.FEMALE ? 1 : 0;
+            gain += getGenderScore(toTable, male, female) - getGenderScore(toTable, 0, 0);
+            if (fromTable != NONE) gain += getGenderScore(fromTable, -male, -female) - getGenderScore(fromTable, 0, 0);
+            return gain;
+        }
+
+        // The change in score from swapping the tables of two guests. The weights between the two
+        // guests themselves are counted at the table each of them leaves, but they are still apart
+        // after the swap.
+        private int getSwapGain(int guest, int table, int otherGuest, int otherTable) {
+            int weight = getWeight(guest, otherGuest);
+            int gain = getAffinity(guest, otherTable) - weight - getAffinity(guest, table)
+                    + getAffinity(otherGuest, table) - weight - getAffinity(otherGuest, otherTable);
+            if (genders[guest] != genders[otherGuest]) {
+                int male = (genders[guest] == Guest.Gender.MALE ? 1 : 0) - (genders[otherGuest] == Guest.Gender.MALE ? 1 : 0);
+                int female = (genders[guest] == Guest.Gender.FEMALE ? 1 : 0) - (genders[otherGuest] == Guest.Gender.FEMALE ? 1 : 0);
+                gain += getGenderScore(otherTable, male, female) - getGenderScore(otherTable, 0, 0)
+                        + getGenderScore(table, -male, -female) - getGenderScore(table, 0, 0);
+            }
+            return gain;
+        }
+
+        // The sum of the weights between a guest and the guests at a table, in both directions.
+        private int getAffinity(int guest, int table) {
+            if (table == NONE) return 0;
+            int affinity = 0;
+            for (int position = affinityOffsets[guest]; position < affinityOffsets[guest + 1]; position++) {
+                if (tables[affinityGuests[position]] == table) affinity += affinityWeights[position];
+            }
+            return affinity;
+        }
+
+        private int getWeight(int guest, int otherGuest) {
+            int weight = 0;
+            for (int position = affinityOffsets[guest]; position < affinityOffsets[guest + 1]; position++) {
+                if (affinityGuests[position] == otherGuest) weight += affinityWeights[position];
+            }
+            return weight;
+        }
+
+        // An estimate of the best score that the genders at a table allow, after a change in the
+        // number of each gender there. Empty seats can separate two guests of the same gender, so
+        // each extra guest of one gender beyond the other's number and the empty seats has to sit
+        // next to a guest of the same gender, which loses a point for each of them.
+        private int getGenderScore(int table, int maleChange, int femaleChange) {
+            int males = maleCounts[table] + maleChange;
+            int females = femaleCounts[table] + femaleChange;
+            int emptySeats = capacities[table] - guestCounts[table] - maleChange - femaleChange;
+            return -2 * Math.max(0, Math.abs(males - females) - emptySeats);
+        }
+
+        // The estimated score of the table assignments, which is the sum of the weights between the
+        // guests at each table and of the estimated gender scores of the tables.
+        private int getScore() {
+            int score = 0;
+            for (int guest = 0; guest < tables.length; guest++) {
+                score += getAffinity(guest, tables[guest]);
+            }
+            // Each pair of weights was counted from both of its guests
+            score /= 2;
+            for (int table = 0; table < capacities.length; table++) {
+                score += getGenderScore(table, 0, 0);
+            }
+            return score;
+        }
+
+        private void add(int guest, int table) {
+            tablesByFreeSeats.remove(table);
+            tables[guest] = table;
+            guestsAtTables[table][guestCounts[table]++] = guest;
+            if (genders[guest] == Guest.Gender.MALE) maleCounts[table]++;
+            if (genders[guest] == Guest.Gender.FEMALE) femaleCounts[table]++;
+            tablesByFreeSeats.add(table);
+        }
+
+        private void remove(int guest) {
+            int table = tables[guest];
+            tablesByFreeSeats.remove(table);
+            tables[guest] = NONE;
+            int[] guestsAtTable = guestsAtTables[table];
+            for (int i = 0; i < guestCounts[table]; i++) {
+                if (guestsAtTable[i] == guest) {
+                    guestsAtTable[i] = guestsAtTable[--guestCounts[table]];
+                    break;
+                }
+            }
+            if (genders[guest] == Guest.Gender.MALE) maleCounts[table]--;
+            if (genders[guest] == Guest.Gender.FEMALE) femaleCounts[table]--;
+            tablesByFreeSeats.add(table);
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@ package ca.lighthouselabs.seatingplansolver;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.function.ToIntFunction;
 
 /**
  * Contains utility methods for working with SeatingPlan and related objects, such as Seat and
@@ -73,4 +74,78 @@ public class SeatingPlanUtil {
         return neighbouringGuests;
     }
 
+    /**
+     * Given the seats of a solution, returns them in an array where each seat is at the index that
+     * it has in the solution's SeatTopology.
+     *
+     * @param seats the seats of the solution
+     * @return the seats ordered by their index
+     */
+    public static Seat[] getSeatsByIndex(Collection<Seat> seats) {
+        Seat[] seatsByIndex = new Seat[seats.size()];
+        seats.forEach(seat -> seatsByIndex[seat.getId()] = seat);
+        return seatsByIndex;
+    }
+
+    /**
+     * Given a seat, calls the visitor with each distinct guest in the seats directly adjacent to it
+     * and returns the sum of the values it returns. This visits the same guests that are returned
+     * by getNeighbouringGuests, but without creating a collection of them.
+     *
+     * @param topology the topology of the seats
+     * @param seats the seats ordered by their index
+     * @param seat the index of the seat to start from
+     * @param visitor called with each neighbouring guest
+     * @return the sum of the values returned by the visitor
+     */
+    public static int visitNeighbouringGuests(SeatTopology topology, Seat[] seats, int seat, ToIntFunction<Guest> visitor) {
+        int sum = 0;
+        Guest leftGuest = getGuest(seats, topology.getLeftSeat(seat));
+        Guest rightGuest = getGuest(seats, topology.getRightSeat(seat));
+        if (leftGuest != null) sum += visitor.applyAsInt(leftGuest);
+        // The same guest on both sides is only visited once
+        if (rightGuest != null && rightGuest != leftGuest) sum += visitor.applyAsInt(rightGuest);
+        return sum;
+    }
+
+    /**
+     * Given a seat, calls the visitor with each distinct guest in the other seats at the same table
+     * and returns the sum of the values it returns. This visits the same guests that are returned
+     * by getGuestsAtTable, but without creating a collection of them or walking around the table.
+     *
+     * @param topology the topology of the seats
+     * @param seats the seats ordered by their index
+     * @param seat the index of the seat to start from
+     * @param visitor called with each guest at the table
+     * @return the sum of the values returned by the visitor
+     */
+    public static int visitGuestsAtTable(SeatTopology topology, Seat[] seats, int seat, ToIntFunction<Guest> visitor) {
+        int sum = 0;
+        int table = topology.getTable(seat);
+        int start = topology.getTableStart(table);
+        int end = topology.getTableEnd(table);
+        for (int position = start; position < end; position++) {
+            int otherSeat = topology.getSeatAtPosition(position);
+            Guest guest = seats[otherSeat].getGuest();
+            if (otherSeat == seat || guest == null) continue;
+            // A guest in more than one seat at the table is only visited for the first of them
+            if (!isGuestAtEarlierPosition(topology, seats, seat, start, position, guest)) {
+                sum += visitor.applyAsInt(guest);
+            }
+        }
+        return sum;
+    }
+
+    private static boolean isGuestAtEarlierPosition(SeatTopology topology, Seat[] seats, int excludedSeat, int start, int position, Guest guest) {
+        for (int earlierPosition = start; earlierPosition < position; earlierPosition++) {
+            int earlierSeat = topology.getSeatAtPosition(earlierPosition);
+            if (earlierSeat != excludedSeat && seats[earlierSeat].getGuest() == guest) return true;
+        }
+        return false;
+    }
+
+    private static Guest getGuest(Seat[] seats, int seat) {
+        return seat == SeatTopology.NO_SEAT ? null : seats[seat].getGuest();
+    }
+
 }
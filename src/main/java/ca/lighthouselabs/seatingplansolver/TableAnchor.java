@@ -0,0 +1,54 @@
+package ca.lighthouselabs.seatingplansolver;
+
+/**
+ * Represents a table in the chained seating plan model. The guests placed in a chain starting from
+ * a table sit in its seats in the order of the chain.
+ *
+ * @author David VanDusen
+ */
+public class TableAnchor implements GuestStandstill {
+
+    // The index of the table in the SeatTopology
+    private int index;
+
+    private Integer tableNumber;
+
+    private int capacity;
+
+    private GuestPlacement nextPlacement;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Integer getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(Integer tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public GuestPlacement getNextPlacement() {
+        return nextPlacement;
+    }
+
+    @Override
+    public void setNextPlacement(GuestPlacement nextPlacement) {
+        this.nextPlacement = nextPlacement;
+    }
+
+}
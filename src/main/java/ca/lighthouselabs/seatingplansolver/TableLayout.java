@@ -0,0 +1,117 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the shape and size of a table at an event, and builds its linked Seat objects.
+ *
+ * @author David VanDusen
+ */
+public class TableLayout {
+
+    /**
+     * The shapes of table that a venue can have.
+     */
+    public enum Kind {
+        /**
+         * A round table where the seats form a ring, so every seat has a neighbour on both sides.
+         */
+        ROUND,
+        /**
+         * A long table with seats along both sides. Each side is a row of seats with open ends,
+         * and guests facing each other across the table are not neighbours.
+         */
+        BANQUET,
+        /**
+         * A long table with seats along one side only, facing the room, such as for the wedding
+         * party.
+         */
+        HEAD
+    }
+
+    private Kind kind;
+
+    private int seatCount;
+
+    public TableLayout() {
+        // properties are set by the setters
+    }
+
+    public TableLayout(Kind kind, int seatCount) {
+        this.kind = kind;
+        this.seatCount = seatCount;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    public void setSeatCount(int seatCount) {
+        this.seatCount = seatCount;
+    }
+
+    /**
+     * Builds the seats of a table with this layout. The seats are numbered from 1 in order from
+     * left to right along each row, and each seat is linked to the seats beside it. Seats at the
+     * open end of a row have no seat on that side.
+     *
+     * @param tableNumber the table number to give the seats
+     * @return the seats of the table
+     */
+    public List<Seat> buildSeats(int tableNumber) {
+        if (kind == null) throw new IllegalArgumentException("table (" + tableNumber + ") has no kind");
+        if (seatCount < 1) throw new IllegalArgumentException("table (" + tableNumber + ") has no seats");
+        List<Seat> seats = new ArrayList<>(seatCount);
+        switch (kind) {
+            case ROUND:
+                addRow(seats, tableNumber, seatCount);
+                // Close the ring by linking the last seat to the first one, unless the guest in a
+                // single seat would be their own neighbour
+                if (seatCount > 1) {
+                    Seat firstSeat = seats.get(0);
+                    Seat lastSeat = seats.get(seatCount - 1);
+                    lastSeat.setRight(firstSeat);
+                    firstSeat.setLeft(lastSeat);
+                }
+                break;
+            case BANQUET:
+                // The first side gets the extra seat when the number of seats is odd
+                addRow(seats, tableNumber, (seatCount + 1) / 2);
+                addRow(seats, tableNumber, seatCount / 2);
+                break;
+            case HEAD:
+                addRow(seats, tableNumber, seatCount);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown table kind (" + kind + ")");
+        }
+        return seats;
+    }
+
+    // Adds a row of seats that are linked from left to right, numbered on from the seats that are
+    // already in the list.
+    private static void addRow(List<Seat> seats, int tableNumber, int rowSize) {
+        Seat previousSeat = null;
+        for (int i = 0; i < rowSize; i++) {
+            Seat seat = new Seat();
+            seat.setTableNumber(tableNumber);
+            seat.setSeatNumber(seats.size() + 1);
+            if (previousSeat != null) {
+                previousSeat.setRight(seat);
+                seat.setLeft(previousSeat);
+            }
+            seats.add(seat);
+            previousSeat = seat;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.optaplanner.core.impl.heuristic.move.Move;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Creates moves that rotate the guests in a run of neighbouring seats at one table by one seat, to
+ * the left or to the right. This moves one guest to another place at the same table while every
+ * other guest in the run keeps at least one of their neighbours.
+ *
+ * @author David VanDusen
+ */
+// Rotating every guest at a round table changes nothing, because everyone keeps the same
+// neighbours, so at most all but one of the seats at a table are rotated. A run of 3 or more seats
+// is used because rotating 2 seats is the same as swapping them.
+public class TableRotationMoveIteratorFactory extends SeatMoveIteratorFactory {
+
+    private static final int MIN_LENGTH = 3;
+
+    @Override
+    protected Supplier<Move> createMoveSupplier(SeatingPlanSolution solution, Seat[] seats, Random random) {
+        SeatTopology topology = solution.getSeatTopology();
+        return () -> {
+            int firstSeat = random.nextInt(seats.length);
+            int table = topology.getTable(firstSeat);
+            int tableSize = topology.getTableEnd(table) - topology.getTableStart(table);
+            if (tableSize < MIN_LENGTH) {
+                // Rotating a table of 2 is a swap
+                int otherSeat = topology.getSeatAtPosition(topology.getTableStart(table) + random.nextInt(tableSize));
+                return SeatReassignmentMove.createSwap(seats[firstSeat], seats[otherSeat]);
+            }
+            int maxLength = Math.max(MIN_LENGTH, tableSize - 1);
+            int length = MIN_LENGTH + random.nextInt(maxLength - MIN_LENGTH + 1);
+            int[] run = new int[length];
+            int size = 0;
+            for (int seat = firstSeat; seat != SeatTopology.NO_SEAT && size < length; seat = topology.getRightSeat(seat)) {
+                run[size++] = seat;
+            }
+            Seat[] runSeats = new Seat[size];
+            Guest[] guests = new Guest[size];
+            // Each seat takes the guest from the seat to its right, or to its left
+            int shift = random.nextBoolean() ? 1 : size - 1;
+            for (int i = 0; i < size; i++) {
+                runSeats[i] = seats[run[i]];
+                guests[i] = seats[run[(i + shift) % size]].getGuest();
+            }
+            return new SeatReassignmentMove(runSeats, guests);
+        };
+    }
+
+}
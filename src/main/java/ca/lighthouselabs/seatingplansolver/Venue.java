@@ -0,0 +1,70 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the tables at an event, which can be any mix of round, banquet and head tables of any
+ * size. The tables are numbered from 1 in the order they are listed.
+ *
+ * @author David VanDusen
+ */
+public class Venue {
+
+    /**
+     * The number of seats at the tables of a venue that is created for a guest list.
+     */
+    public static final int DEFAULT_TABLE_SIZE = 8;
+
+    private List<TableLayout> tables = new ArrayList<>();
+
+    public List<TableLayout> getTables() {
+        return tables;
+    }
+
+    public void setTables(List<TableLayout> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Creates a venue of round tables with exactly one seat for each guest. There are as few
+     * tables as possible with no more than DEFAULT_TABLE_SIZE seats each, and the guests are
+     * spread evenly between them, so that no table has more than one seat more than another.
+     *
+     * @param guestCount the number of guests at the event
+     * @return a venue with a seat for every guest
+     */
+    public static Venue createForGuests(int guestCount) {
+        Venue venue = new Venue();
+        int tableCount = (guestCount + DEFAULT_TABLE_SIZE - 1) / DEFAULT_TABLE_SIZE;
+        for (int table = 0; table < tableCount; table++) {
+            // The first tables get one of the leftover seats each
+            int seatCount = guestCount / tableCount + (table < guestCount % tableCount ? 1 : 0);
+            venue.getTables().add(new TableLayout(TableLayout.Kind.ROUND, seatCount));
+        }
+        return venue;
+    }
+
+    /**
+     * Returns the total number of seats at all the tables.
+     *
+     * @return the number of seats at the venue
+     */
+    public int getSeatCount() {
+        return tables.stream().mapToInt(TableLayout::getSeatCount).sum();
+    }
+
+    /**
+     * Builds the seats of every table at the venue, numbering the tables from 1.
+     *
+     * @return the seats of the venue, one table after another
+     */
+    public List<Seat> buildSeats() {
+        List<Seat> seats = new ArrayList<>(getSeatCount());
+        for (int table = 0; table < tables.size(); table++) {
+            seats.addAll(tables.get(table).buildSeats(table + 1));
+        }
+        return seats;
+    }
+
+}
@@ -0,0 +1,50 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how GuestYamlReader reads missing and malformed guest properties.
+ *
+ * @author David VanDusen
+ */
+public class GuestYamlReaderTest {
+
+    @Test
+    public void readsNullPreferencesAsEmpty() {
+        List<Guest> guests = read("- {id: 1, gender: MALE, seatBeside: null, seatAtSameTable: ~, doNotSeatBeside: []}\n"
+                + "- id: 2\n  gender: FEMALE\n  doNotSeatAtSameTable:\n");
+        assertEquals(2, guests.size());
+        assertTrue(guests.get(0).getSeatBeside().isEmpty());
+        assertTrue(guests.get(0).getSeatAtSameTable().isEmpty());
+        assertTrue(guests.get(1).getDoNotSeatAtSameTable().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSingleIdInPlaceOfList() {
+        read("- {id: 1, gender: MALE, seatBeside: 2}\n- {id: 2, gender: FEMALE}\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsQuotedNullInPlaceOfList() {
+        read("- {id: 1, gender: MALE, seatBeside: 'null'}\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGuestWithoutGender() {
+        read("- {id: 1, firstName: ALLEN}\n");
+    }
+
+    private static List<Guest> read(String yaml) {
+        return GuestYamlReader.read(new InputStreamReader(
+                new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8)).getGuests();
+    }
+
+}
@@ -0,0 +1,104 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that every SeatMoveIteratorFactory copes with plans that have too few seats for most of
+ * its moves.
+ *
+ * @author David VanDusen
+ */
+public class SeatMoveIteratorFactoryTest {
+
+    private static final List<SeatMoveIteratorFactory> FACTORIES = Arrays.asList(new GuestSwapMoveIteratorFactory(),
+            new AdjacentPairSwapMoveIteratorFactory(), new TableRotationMoveIteratorFactory(),
+            new SameTableGroupMoveIteratorFactory(), new NearbyGuestMoveIteratorFactory());
+
+    private static final int MOVE_COUNT = 100;
+
+    @Test
+    public void createsNoMovesForOneSeat() {
+        ScoreDirector scoreDirector = buildScoreDirector(createSolution(1));
+        for (SeatMoveIteratorFactory factory : FACTORIES) {
+            String message = factory.getClass().getSimpleName();
+            assertEquals(message, 0L, factory.getSize(scoreDirector));
+            assertFalse(message, factory.createRandomMoveIterator(scoreDirector, new Random(0)).hasNext());
+        }
+        scoreDirector.dispose();
+    }
+
+    @Test
+    public void createsMovesForTwoSeats() {
+        ScoreDirector scoreDirector = buildScoreDirector(createSolution(2));
+        for (SeatMoveIteratorFactory factory : FACTORIES) {
+            Iterator<Move> moves = factory.createRandomMoveIterator(scoreDirector, new Random(0));
+            for (int i = 0; i < MOVE_COUNT; i++) {
+                assertNotNull(factory.getClass().getSimpleName(), moves.next());
+            }
+        }
+        scoreDirector.dispose();
+    }
+
+    // Venue.createForGuests gives a single guest a table of one seat, where the local search has no
+    // moves at all and has to end straight away rather than fail.
+    @Test(timeout = 60000L)
+    public void solvesOneGuest() {
+        SolverFactory solverFactory = SolverFactory.createFromXmlResource("solver.xml");
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setSecondsSpentLimit(10L);
+        solverFactory.getSolverConfig().setTerminationConfig(terminationConfig);
+        Solver solver = solverFactory.buildSolver();
+        SeatingPlanSolution problem = createSolution(1);
+        problem.getSeats().get(0).setGuest(null);
+        solver.solve(problem);
+        assertEquals(HardSoftScore.valueOf(0, 0), solver.getBestSolution().getScore());
+    }
+
+    private static ScoreDirector buildScoreDirector(SeatingPlanSolution solution) {
+        DefaultSolver solver = (DefaultSolver) SolverFactory.createFromXmlResource("solver.xml").buildSolver();
+        ScoreDirector scoreDirector = solver.getScoreDirectorFactory().buildScoreDirector();
+        scoreDirector.setWorkingSolution(solution);
+        return scoreDirector;
+    }
+
+    // Seats each guest at a round table with exactly as many seats as guests.
+    private static SeatingPlanSolution createSolution(int guestCount) {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= guestCount; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(id % 2 == 0 ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guest.setSeatBeside(new HashSet<>());
+            guest.setDoNotSeatBeside(new HashSet<>());
+            guest.setSeatAtSameTable(new HashSet<>());
+            guest.setDoNotSeatAtSameTable(new HashSet<>());
+            guests.add(guest);
+        }
+        SeatingPlanSolution solution = SeatingPlanSolutionFactory.createFromGuests(guests);
+        for (int i = 0; i < guestCount; i++) {
+            solution.getSeats().get(i).setGuest(guests.get(i));
+        }
+        return solution;
+    }
+
+}
@@ -0,0 +1,95 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that solutions written by SeatingPlanBinaryFormat are read back the same.
+ *
+ * @author David VanDusen
+ */
+public class SeatingPlanBinaryFormatTest {
+
+    private Path path;
+
+    @Before
+    public void createFile() throws IOException {
+        path = Files.createTempFile("seating-plan", ".bin");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void keepsMissingAndEmptyNamesApart() throws IOException {
+        List<Guest> guests = new ArrayList<>();
+        guests.add(createGuest(1, null, "LEE"));
+        guests.add(createGuest(2, "", null));
+        guests.add(createGuest(3, "ZOË", "THOMPSON"));
+        guests.get(0).setSeatBeside(new HashSet<>(Collections.singletonList(guests.get(2))));
+        SeatingPlanSolution solution = SeatingPlanSolutionFactory.createFromGuests(guests);
+        solution.getSeats().get(1).setGuest(guests.get(2));
+        SeatingPlanBinaryFormat.write(solution, path);
+        SeatingPlanSolution read = SeatingPlanBinaryFormat.read(path);
+        List<Guest> readGuests = read.getGuests();
+        assertNull(readGuests.get(0).getFirstName());
+        assertEquals("LEE", readGuests.get(0).getLastName());
+        assertEquals("", readGuests.get(1).getFirstName());
+        assertNull(readGuests.get(1).getLastName());
+        assertEquals("ZOË", readGuests.get(2).getFirstName());
+        assertEquals("THOMPSON", readGuests.get(2).getLastName());
+        assertEquals(Guest.Gender.FEMALE, readGuests.get(2).getGender());
+        assertSame(readGuests.get(2), readGuests.get(0).getSeatBeside().iterator().next());
+        assertSame(readGuests.get(2), read.getSeats().get(1).getGuest());
+        assertNull(read.getSeats().get(0).getGuest());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGuestWithoutGender() throws IOException {
+        Guest guest = createGuest(1, "ALLEN", "THOMPSON");
+        guest.setGender(null);
+        SeatingPlanBinaryFormat.write(SeatingPlanSolutionFactory.createFromGuests(Collections.singletonList(guest)), path);
+    }
+
+    // Only one version of the format can be read, and a file of any other version is rejected
+    // rather than misread.
+    @Test(expected = IOException.class)
+    public void rejectsOtherVersion() throws IOException {
+        Guest guest = createGuest(1, "ALLEN", "THOMPSON");
+        SeatingPlanBinaryFormat.write(SeatingPlanSolutionFactory.createFromGuests(Collections.singletonList(guest)), path);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(4, 1);
+        Files.write(path, bytes);
+        SeatingPlanBinaryFormat.read(path);
+    }
+
+    private static Guest createGuest(int id, String firstName, String lastName) {
+        Guest guest = new Guest();
+        guest.setId(id);
+        guest.setFirstName(firstName);
+        guest.setLastName(lastName);
+        guest.setGender(id % 2 == 0 ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+        guest.setSeatAtSameTable(new HashSet<>());
+        guest.setSeatBeside(new HashSet<>());
+        guest.setDoNotSeatAtSameTable(new HashSet<>());
+        guest.setDoNotSeatBeside(new HashSet<>());
+        return guest;
+    }
+
+}
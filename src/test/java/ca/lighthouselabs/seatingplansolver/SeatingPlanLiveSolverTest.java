@@ -0,0 +1,59 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.solver.SolverFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that SeatingPlanLiveSolver stops however soon after it was started it is asked to.
+ *
+ * @author David VanDusen
+ */
+// The solver runs in daemon mode, so it never ends by itself, and a request to stop that the
+// solver missed would make these tests time out rather than fail.
+public class SeatingPlanLiveSolverTest {
+
+    private static final int GUEST_COUNT = 20;
+
+    @Test(timeout = 60000L)
+    public void stopsStraightAfterStarting() throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            SeatingPlanLiveSolver liveSolver = new SeatingPlanLiveSolver(SolverFactory.createFromXmlResource("solver.xml"));
+            liveSolver.start(createProblem());
+            liveSolver.stop();
+            assertFalse(liveSolver.isSolving());
+        }
+    }
+
+    @Test(timeout = 60000L)
+    public void stopsWhileSolving() throws InterruptedException {
+        SeatingPlanLiveSolver liveSolver = new SeatingPlanLiveSolver(SolverFactory.createFromXmlResource("solver.xml"));
+        liveSolver.start(createProblem());
+        Thread.sleep(1000L);
+        liveSolver.stop();
+        assertFalse(liveSolver.isSolving());
+    }
+
+    private static SeatingPlanSolution createProblem() {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= GUEST_COUNT; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(id % 2 == 0 ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guest.setSeatBeside(new HashSet<>());
+            guest.setDoNotSeatBeside(new HashSet<>());
+            guest.setSeatAtSameTable(new HashSet<>());
+            guest.setDoNotSeatAtSameTable(new HashSet<>());
+            guests.add(guest);
+        }
+        return SeatingPlanSolutionFactory.createFromGuests(guests);
+    }
+
+}
@@ -0,0 +1,88 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.phase.scope.AbstractPhaseScope;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that SeatingPlanMetrics keeps counting across the restarts of a solver that applies
+ * problem fact changes.
+ *
+ * @author David VanDusen
+ */
+// Every restart of the solver builds a new score director, so the score directors that the
+// phases are started with are collected to check that the solver really did restart, and the
+// final count has to add up the score calculations of all of them.
+public class SeatingPlanMetricsTest {
+
+    private static final int GUEST_COUNT = 40;
+
+    @Test(timeout = 60000L)
+    public void keepsCountingAfterRestart() throws InterruptedException {
+        SolverFactory solverFactory = SolverFactory.createFromXmlResource("solver.xml");
+        TerminationConfig terminationConfig = new TerminationConfig();
+        terminationConfig.setSecondsSpentLimit(4L);
+        solverFactory.getSolverConfig().setTerminationConfig(terminationConfig);
+        Solver solver = solverFactory.buildSolver();
+        SeatingPlanMetrics metrics = new SeatingPlanMetrics(true);
+        metrics.attach(solver);
+        Set<InnerScoreDirector> scoreDirectors = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Long> phaseStartCounts = new ArrayList<>();
+        ((DefaultSolver) solver).addPhaseLifecycleListener(new PhaseLifecycleListenerAdapter() {
+            @Override
+            public void phaseStarted(AbstractPhaseScope phaseScope) {
+                scoreDirectors.add(phaseScope.getScoreDirector());
+                phaseStartCounts.add(metrics.getCalculateCount());
+            }
+        });
+        Thread thread = new Thread(() -> solver.solve(createProblem()));
+        thread.start();
+        Thread.sleep(1500L);
+        long countBeforeChange = metrics.getCalculateCount();
+        solver.addProblemFactChange(SeatingPlanProblemChanges.addPreference(1, SeatingPlanProblemChanges.Preference.SEAT_BESIDE, 2));
+        thread.join();
+        assertTrue("the solver didn't restart", scoreDirectors.size() > 1);
+        assertTrue(metrics.getCalculateCount() > countBeforeChange);
+        for (int i = 1; i < phaseStartCounts.size(); i++) {
+            assertTrue("the count went down", phaseStartCounts.get(i) >= phaseStartCounts.get(i - 1));
+        }
+        long calculateCount = 0L;
+        for (InnerScoreDirector scoreDirector : scoreDirectors) {
+            calculateCount += scoreDirector.getCalculateCount();
+        }
+        assertEquals(calculateCount, metrics.getCalculateCount());
+    }
+
+    private static SeatingPlanSolution createProblem() {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= GUEST_COUNT; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(id % 2 == 0 ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guest.setSeatBeside(new HashSet<>());
+            guest.setDoNotSeatBeside(new HashSet<>());
+            guest.setSeatAtSameTable(new HashSet<>());
+            guest.setDoNotSeatAtSameTable(new HashSet<>());
+            guests.add(guest);
+        }
+        return SeatingPlanSolutionFactory.createFromGuests(guests);
+    }
+
+}
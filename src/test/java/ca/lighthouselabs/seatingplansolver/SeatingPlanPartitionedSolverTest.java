@@ -0,0 +1,33 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the partitions of SeatingPlanPartitionedSolver finish within the configured time
+ * limit however many rounds they are solved in.
+ *
+ * @author David VanDusen
+ */
+public class SeatingPlanPartitionedSolverTest {
+
+    @Test
+    public void solvesEveryRoundOfPartitionsWithinTheTimeLimit() {
+        long timeMillisSpentLimit = 600000L;
+        for (int threadCount = 1; threadCount <= 16; threadCount++) {
+            for (int count = threadCount + 1; count <= 64; count++) {
+                long partitionMillisSpentLimit =
+                        SeatingPlanPartitionedSolver.getPartitionMillisSpentLimit(timeMillisSpentLimit, count, threadCount);
+                // Each thread solves its partitions one after the other, and the busiest thread
+                // solves as many as there are rounds
+                int busiestThreadPartitionCount = (count + threadCount - 1) / threadCount;
+                String message = "(" + count + ") partitions on (" + threadCount + ") threads";
+                assertTrue(message, partitionMillisSpentLimit * busiestThreadPartitionCount <= timeMillisSpentLimit);
+                // The limit isn't cut by more than the rounds need
+                assertTrue(message, (partitionMillisSpentLimit + 1) * busiestThreadPartitionCount > timeMillisSpentLimit);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+import org.optaplanner.core.impl.solver.ProblemFactChange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that the changes of SeatingPlanProblemChanges keep the score director's score right, and
+ * that they never change the index of a guest that an earlier best solution shares.
+ *
+ * @author David VanDusen
+ */
+// Each change is made the way the solver makes it, directly on the working solution of a score
+// director, and the score is compared with SeatingPlanScoreCalculator after every change.
+public class SeatingPlanProblemChangesTest {
+
+    private static final int GUEST_COUNT = 30;
+
+    private static final int CHANGE_COUNT = 100;
+
+    @Test
+    public void incrementalScoreMatchesEasyScoreAfterChanges() {
+        for (long seed = 0; seed < 5; seed++) {
+            assertChangesKeepScoreAndIndexes(new Random(seed), buildScoreDirector());
+        }
+    }
+
+    private static void assertChangesKeepScoreAndIndexes(Random random, ScoreDirector scoreDirector) {
+        SeatingPlanSolution solution = createSolution(random);
+        scoreDirector.setWorkingSolution(solution);
+        // A best solution that the solver found before the changes, which shares the guests
+        SeatingPlanSolution bestSolution = (SeatingPlanSolution) ((InnerScoreDirector) scoreDirector).cloneWorkingSolution();
+        Map<Guest, Integer> bestSolutionIndexes = new IdentityHashMap<>();
+        bestSolution.getGuests().forEach(guest -> bestSolutionIndexes.put(guest, guest.getIndex()));
+        SeatingPlanScoreCalculator easyScoreCalculator = new SeatingPlanScoreCalculator();
+        int nextId = GUEST_COUNT + 1;
+        for (int change = 0; change < CHANGE_COUNT; change++) {
+            createChange(solution, random, nextId++).doChange(scoreDirector);
+            String message = "after change (" + change + ")";
+            assertEquals(message, easyScoreCalculator.calculateScore(solution), scoreDirector.calculateScore());
+            // The guests are indexed from 0 without gaps, in step with the preference matrix
+            Guest[] guestsByIndex = new Guest[solution.getGuests().size()];
+            solution.getGuests().forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+            for (Guest guest : guestsByIndex) {
+                assertNotNull(message, guest);
+            }
+            assertEquals(message, solution.getGuests().size(), solution.getGuestPreferenceMatrix().getGuestCount());
+            for (Guest guest : bestSolution.getGuests()) {
+                assertEquals(message, (int) bestSolutionIndexes.get(guest), guest.getIndex());
+            }
+        }
+        scoreDirector.dispose();
+    }
+
+    // Picks a random change, with as many guests added as removed on average so that the number
+    // of guests stays about the same.
+    private static ProblemFactChange createChange(SeatingPlanSolution solution, Random random, int newId) {
+        List<Guest> guests = solution.getGuests();
+        int id = guests.get(random.nextInt(guests.size())).getId();
+        int otherId = guests.get(random.nextInt(guests.size())).getId();
+        SeatingPlanProblemChanges.Preference preference =
+                SeatingPlanProblemChanges.Preference.values()[random.nextInt(SeatingPlanProblemChanges.Preference.values().length)];
+        Guest.Gender gender = random.nextBoolean() ? Guest.Gender.MALE : Guest.Gender.FEMALE;
+        switch (random.nextInt(5)) {
+            case 0:
+                return SeatingPlanProblemChanges.addGuest(newId, "Guest", Integer.toString(newId), gender);
+            case 1:
+                return SeatingPlanProblemChanges.removeGuest(id);
+            case 2:
+                return SeatingPlanProblemChanges.editGuest(id, "Guest", Integer.toString(id), gender);
+            case 3:
+                return SeatingPlanProblemChanges.addPreference(id, preference, otherId);
+            default:
+                return SeatingPlanProblemChanges.removePreference(id, preference, otherId);
+        }
+    }
+
+    // Builds a score director with the score calculation of solver.xml, which the live solver uses.
+    private static ScoreDirector buildScoreDirector() {
+        SolverFactory solverFactory = SolverFactory.createFromXmlResource("solver.xml");
+        DefaultSolver solver = (DefaultSolver) solverFactory.buildSolver();
+        return solver.getScoreDirectorFactory().buildScoreDirector();
+    }
+
+    // Every guest is seated at a round, banquet or head table, with a few empty seats.
+    private static SeatingPlanSolution createSolution(Random random) {
+        Venue venue = new Venue();
+        venue.setTables(Arrays.asList(new TableLayout(TableLayout.Kind.ROUND, 8), new TableLayout(TableLayout.Kind.BANQUET, 12),
+                new TableLayout(TableLayout.Kind.HEAD, 5), new TableLayout(TableLayout.Kind.ROUND, 7)));
+        List<Guest> guests = createGuests(random);
+        SeatingPlanSolution solution = SeatingPlanSolutionFactory.createFromGuestsAndVenue(guests, venue);
+        List<Guest> shuffled = new ArrayList<>(guests);
+        Collections.shuffle(shuffled, random);
+        for (int i = 0; i < shuffled.size(); i++) {
+            solution.getSeats().get(i).setGuest(shuffled.get(i));
+        }
+        return solution;
+    }
+
+    private static List<Guest> createGuests(Random random) {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= GUEST_COUNT; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(random.nextBoolean() ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guests.add(guest);
+        }
+        for (Guest guest : guests) {
+            guest.setSeatBeside(pickGuests(guests, random));
+            guest.setDoNotSeatBeside(pickGuests(guests, random));
+            guest.setSeatAtSameTable(pickGuests(guests, random));
+            guest.setDoNotSeatAtSameTable(pickGuests(guests, random));
+        }
+        return guests;
+    }
+
+    private static Set<Guest> pickGuests(List<Guest> guests, Random random) {
+        Set<Guest> picked = new HashSet<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            picked.add(guests.get(random.nextInt(guests.size())));
+        }
+        return picked;
+    }
+
+}
@@ -0,0 +1,162 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that SeatingPlanIncrementalScoreCalculator and the Drools score rules keep calculating
+ * the same score as SeatingPlanScoreCalculator while the seats of a plan change, and that
+ * SeatingPlanScoreCalculator doesn't change the plans it scores.
+ *
+ * @author David VanDusen
+ */
+// The easy calculator scores every seat from scratch, so it is the reference that the other two
+// are compared with. The plans are random, so they have unseated guests, guests in more than one
+// seat, empty seats, and guests with preferences about themselves or with the same guest in both
+// their wanted and unwanted preferences.
+public class SeatingPlanScoreCalculatorTest {
+
+    private static final int GUEST_COUNT = 30;
+
+    private static final int CHANGE_COUNT = 300;
+
+    @Test
+    public void incrementalScoreMatchesEasyScoreAtRoundTables() {
+        for (long seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+            assertScoresMatchAfterChanges(SeatingPlanSolutionFactory.createFromGuests(createGuests(random)), random,
+                    buildScoreDirector(false));
+        }
+    }
+
+    @Test
+    public void incrementalScoreMatchesEasyScoreAtEveryKindOfTable() {
+        for (long seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+            assertScoresMatchAfterChanges(createSolutionWithVenue(random), random, buildScoreDirector(false));
+        }
+    }
+
+    @Test
+    public void droolsScoreMatchesEasyScoreAtEveryKindOfTable() {
+        for (long seed = 0; seed < 3; seed++) {
+            Random random = new Random(seed);
+            assertScoresMatchAfterChanges(createSolutionWithVenue(random), random, buildScoreDirector(true));
+        }
+    }
+
+    // A plan without a topology is scored by the positions of its seats in the list, without
+    // giving the plan a topology or its seats ids.
+    @Test
+    public void easyScoreDoesNotChangeUnindexedSolution() {
+        SeatingPlanScoreCalculator easyScoreCalculator = new SeatingPlanScoreCalculator();
+        for (long seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+            SeatingPlanSolution solution = createSolutionWithVenue(random);
+            for (Seat seat : solution.getSeats()) {
+                seat.setGuest(pickGuest(solution, random));
+            }
+            Score expected = easyScoreCalculator.calculateScore(solution);
+            solution.setSeatTopology(null);
+            solution.getSeats().forEach(seat -> seat.setId(null));
+            Collections.shuffle(solution.getSeats(), random);
+            String message = "seed (" + seed + ")";
+            assertEquals(message, expected, easyScoreCalculator.calculateScore(solution));
+            assertNull(message, solution.getSeatTopology());
+            for (Seat seat : solution.getSeats()) {
+                assertNull(message, seat.getId());
+            }
+        }
+    }
+
+    // Seats random guests, including none, then changes random seats one at a time, checking the
+    // score after every change.
+    private static void assertScoresMatchAfterChanges(SeatingPlanSolution solution, Random random, ScoreDirector scoreDirector) {
+        SeatingPlanScoreCalculator easyScoreCalculator = new SeatingPlanScoreCalculator();
+        for (Seat seat : solution.getSeats()) {
+            seat.setGuest(pickGuest(solution, random));
+        }
+        scoreDirector.setWorkingSolution(solution);
+        assertEquals(easyScoreCalculator.calculateScore(solution), scoreDirector.calculateScore());
+        for (int change = 0; change < CHANGE_COUNT; change++) {
+            Seat seat = solution.getSeats().get(random.nextInt(solution.getSeats().size()));
+            scoreDirector.beforeVariableChanged(seat, "guest");
+            seat.setGuest(pickGuest(solution, random));
+            scoreDirector.afterVariableChanged(seat, "guest");
+            Score expected = easyScoreCalculator.calculateScore(solution);
+            assertEquals("after change (" + change + ")", expected, scoreDirector.calculateScore());
+        }
+        scoreDirector.dispose();
+    }
+
+    private static Guest pickGuest(SeatingPlanSolution solution, Random random) {
+        if (random.nextInt(4) == 0) return null;
+        return solution.getGuests().get(random.nextInt(solution.getGuests().size()));
+    }
+
+    // Builds a score director with the score calculation of solver.xml, or with the Drools score
+    // rules in its place.
+    private static ScoreDirector buildScoreDirector(boolean drools) {
+        SolverFactory solverFactory = SolverFactory.createFromXmlResource("solver.xml");
+        if (drools) {
+            ScoreDirectorFactoryConfig scoreDirectorFactoryConfig = solverFactory.getSolverConfig().getScoreDirectorFactoryConfig();
+            scoreDirectorFactoryConfig.setIncrementalScoreCalculatorClass(null);
+            scoreDirectorFactoryConfig.setScoreDrlList(Collections.singletonList("seatingPlanScoreRules.drl"));
+        }
+        DefaultSolver solver = (DefaultSolver) solverFactory.buildSolver();
+        return solver.getScoreDirectorFactory().buildScoreDirector();
+    }
+
+    // A venue with a round table, a banquet table and a head table, so that seats with neighbours on
+    // both sides, seats at the ends of rows and rows facing each other are all covered.
+    private static SeatingPlanSolution createSolutionWithVenue(Random random) {
+        Venue venue = new Venue();
+        venue.setTables(Arrays.asList(new TableLayout(TableLayout.Kind.ROUND, 8), new TableLayout(TableLayout.Kind.BANQUET, 12),
+                new TableLayout(TableLayout.Kind.HEAD, 5), new TableLayout(TableLayout.Kind.ROUND, 7)));
+        return SeatingPlanSolutionFactory.createFromGuestsAndVenue(createGuests(random), venue);
+    }
+
+    private static List<Guest> createGuests(Random random) {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= GUEST_COUNT; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(random.nextBoolean() ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guests.add(guest);
+        }
+        for (Guest guest : guests) {
+            guest.setSeatBeside(pickGuests(guests, random));
+            guest.setDoNotSeatBeside(pickGuests(guests, random));
+            guest.setSeatAtSameTable(pickGuests(guests, random));
+            guest.setDoNotSeatAtSameTable(pickGuests(guests, random));
+        }
+        return guests;
+    }
+
+    private static Set<Guest> pickGuests(List<Guest> guests, Random random) {
+        Set<Guest> picked = new HashSet<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            picked.add(guests.get(random.nextInt(guests.size())));
+        }
+        return picked;
+    }
+
+}
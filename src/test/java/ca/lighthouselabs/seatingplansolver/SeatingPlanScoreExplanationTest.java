@@ -0,0 +1,134 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the matches of a SeatingPlanScoreExplanation add up to the score that
+ * SeatingPlanScoreCalculator calculates for the same plan.
+ *
+ * @author David VanDusen
+ */
+// The plans are random, so they have unseated guests, guests in more than one seat, empty seats,
+// and guests with preferences about themselves or with the same guest in both their wanted and
+// unwanted preferences.
+public class SeatingPlanScoreExplanationTest {
+
+    private static final int GUEST_COUNT = 30;
+
+    @Test
+    public void matchesAddUpToEasyScore() {
+        SeatingPlanScoreCalculator easyScoreCalculator = new SeatingPlanScoreCalculator();
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            SeatingPlanSolution solution = createSolution(random);
+            Score expected = easyScoreCalculator.calculateScore(solution);
+            SeatingPlanScoreExplanation explanation = SeatingPlanScoreExplanation.create(solution);
+            String message = "seed (" + seed + ")";
+            assertEquals(message, expected, explanation.getScore());
+            assertEquals(message, expected, sumMatches(explanation.getConstraintMatches()));
+            // Every match is counted in the total of its constraint
+            int hardScore = 0;
+            int softScore = 0;
+            for (SeatingPlanScoreExplanation.ConstraintTotal total : explanation.getConstraintTotals().values()) {
+                hardScore += total.getScore().getHardScore();
+                softScore += total.getScore().getSoftScore();
+            }
+            assertEquals(message, expected, HardSoftScore.valueOf(hardScore, softScore));
+        }
+    }
+
+    // A solution that hasn't been indexed is explained without indexing it, and the guests and
+    // seats are indexed by their position instead of their stale indexes.
+    @Test
+    public void explainsUnindexedSolutionWithoutChangingIt() {
+        SeatingPlanScoreCalculator easyScoreCalculator = new SeatingPlanScoreCalculator();
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            SeatingPlanSolution solution = createSolution(random);
+            Score expected = easyScoreCalculator.calculateScore(solution);
+            solution.setGuestPreferenceMatrix(null);
+            solution.setSeatTopology(null);
+            solution.getGuests().forEach(guest -> guest.setIndex(0));
+            solution.getSeats().forEach(seat -> seat.setId(null));
+            SeatingPlanScoreExplanation explanation = SeatingPlanScoreExplanation.create(solution);
+            String message = "seed (" + seed + ")";
+            assertEquals(message, expected, explanation.getScore());
+            assertNull(message, solution.getGuestPreferenceMatrix());
+            assertNull(message, solution.getSeatTopology());
+            for (Guest guest : solution.getGuests()) {
+                assertEquals(message, 0, guest.getIndex());
+                for (SeatingPlanScoreExplanation.ConstraintMatch match : explanation.getMatchesForGuest(guest)) {
+                    assertTrue(message, match.getGuest() == guest || match.getOtherGuest() == guest);
+                }
+            }
+            for (Seat seat : solution.getSeats()) {
+                assertNull(message, seat.getId());
+            }
+        }
+    }
+
+    private static Score sumMatches(List<SeatingPlanScoreExplanation.ConstraintMatch> matches) {
+        int hardScore = 0;
+        int softScore = 0;
+        for (SeatingPlanScoreExplanation.ConstraintMatch match : matches) {
+            hardScore += match.getHardImpact();
+            softScore += match.getSoftImpact();
+        }
+        return HardSoftScore.valueOf(hardScore, softScore);
+    }
+
+    // A round table, a banquet table and a head table with random guests in their seats, including
+    // none.
+    private static SeatingPlanSolution createSolution(Random random) {
+        Venue venue = new Venue();
+        venue.setTables(Arrays.asList(new TableLayout(TableLayout.Kind.ROUND, 8), new TableLayout(TableLayout.Kind.BANQUET, 12),
+                new TableLayout(TableLayout.Kind.HEAD, 5), new TableLayout(TableLayout.Kind.ROUND, 7)));
+        SeatingPlanSolution solution = SeatingPlanSolutionFactory.createFromGuestsAndVenue(createGuests(random), venue);
+        for (Seat seat : solution.getSeats()) {
+            seat.setGuest(random.nextInt(4) == 0 ? null : solution.getGuests().get(random.nextInt(solution.getGuests().size())));
+        }
+        return solution;
+    }
+
+    private static List<Guest> createGuests(Random random) {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= GUEST_COUNT; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(random.nextBoolean() ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guests.add(guest);
+        }
+        for (Guest guest : guests) {
+            guest.setSeatBeside(pickGuests(guests, random));
+            guest.setDoNotSeatBeside(pickGuests(guests, random));
+            guest.setSeatAtSameTable(pickGuests(guests, random));
+            guest.setDoNotSeatAtSameTable(pickGuests(guests, random));
+        }
+        return guests;
+    }
+
+    private static Set<Guest> pickGuests(List<Guest> guests, Random random) {
+        Set<Guest> picked = new HashSet<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            picked.add(guests.get(random.nextInt(guests.size())));
+        }
+        return picked;
+    }
+
+}
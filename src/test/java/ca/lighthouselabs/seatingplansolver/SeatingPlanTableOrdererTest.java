@@ -0,0 +1,173 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that SeatingPlanTableOrderer finds the best order of the guests at a table by comparing
+ * it with the best of every possible order.
+ *
+ * @author David VanDusen
+ */
+// Every order is scored by SeatingPlanScoreCalculator, with the table's guests seated in that order
+// and every other seat empty, so that the orderer's own scoring is checked too. Only the soft score
+// depends on the order. Trying every order takes n! steps, so the tables are kept to 8 seats or
+// fewer, which is at most 40,320 orders each. Some of the tables have fewer guests than seats, so
+// that where the empty seats go is also checked.
+public class SeatingPlanTableOrdererTest {
+
+    private static final int GUEST_COUNT = 40;
+
+    private static final SeatingPlanScoreCalculator SCORE_CALCULATOR = new SeatingPlanScoreCalculator();
+
+    @Test
+    public void ordersEveryKindOfTableAsWellAsTryingEveryOrder() {
+        for (long seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+            SeatingPlanSolution solution = createSolution(random);
+            SeatTopology topology = solution.getSeatTopology();
+            SeatingPlanTableOrderer orderer = new SeatingPlanTableOrderer(solution);
+            // Guests next to each other in the list have preferences about each other
+            List<Guest> guests = solution.getGuests();
+            Guest[] guestsByIndex = new Guest[guests.size()];
+            guests.forEach(guest -> guestsByIndex[guest.getIndex()] = guest);
+            Seat[] seats = SeatingPlanUtil.getSeatsByIndex(solution.getSeats());
+            int nextGuest = random.nextInt(guests.size());
+            for (int table = 0; table < topology.getTableCount(); table++) {
+                int[] seatsAroundTable = topology.getSeatsAroundTable(table);
+                int[] guestIndexes = new int[seatsAroundTable.length - random.nextInt(3)];
+                for (int i = 0; i < guestIndexes.length; i++) {
+                    guestIndexes[i] = guests.get(nextGuest++ % guests.size()).getIndex();
+                }
+                int[] order = orderer.orderTable(guestIndexes, seatsAroundTable, topology);
+                int[] members = Arrays.copyOf(guestIndexes, seatsAroundTable.length);
+                Arrays.fill(members, guestIndexes.length, members.length, SeatingPlanTableOrderer.NONE);
+                String message = "seed (" + seed + ") table (" + table + ")";
+                assertArrayEquals(message, sorted(members), sorted(order));
+                assertEquals(message, getBestSoftScore(solution, seats, guestsByIndex, members, 0, seatsAroundTable),
+                        getSoftScore(solution, seats, guestsByIndex, order, seatsAroundTable));
+            }
+        }
+    }
+
+    @Test
+    public void remembersTheOrderOfTheSameGuestsGivenInAnotherOrder() {
+        Random random = new Random(0);
+        SeatingPlanSolution solution = createSolution(random);
+        SeatTopology topology = solution.getSeatTopology();
+        SeatingPlanTableOrderer orderer = new SeatingPlanTableOrderer(solution);
+        int[] seatsAroundTable = topology.getSeatsAroundTable(0);
+        int[] guestIndexes = new int[seatsAroundTable.length];
+        for (int i = 0; i < guestIndexes.length; i++) {
+            guestIndexes[i] = i;
+        }
+        int[] order = orderer.orderTable(guestIndexes, seatsAroundTable, topology);
+        int[] reversed = new int[guestIndexes.length];
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = guestIndexes[guestIndexes.length - 1 - i];
+        }
+        assertArrayEquals(order, orderer.orderTable(reversed, seatsAroundTable, topology));
+    }
+
+    @Test
+    public void isOutOfDateOnceAGuestsGenderChanges() {
+        SeatingPlanSolution solution = createSolution(new Random(0));
+        SeatingPlanTableOrderer orderer = new SeatingPlanTableOrderer(solution);
+        assertTrue(orderer.isUpToDate(solution));
+        Guest guest = solution.getGuests().get(0);
+        guest.setGender(guest.getGender() == Guest.Gender.MALE ? Guest.Gender.FEMALE : Guest.Gender.MALE);
+        assertFalse(orderer.isUpToDate(solution));
+    }
+
+    // Returns the best soft score of every order of the members from the given position on, by
+    // swapping each of the remaining members into that position in turn.
+    private static int getBestSoftScore(SeatingPlanSolution solution, Seat[] seats, Guest[] guestsByIndex, int[] members, int position,
+                                        int[] seatsAroundTable) {
+        if (position == members.length) return getSoftScore(solution, seats, guestsByIndex, members, seatsAroundTable);
+        int best = Integer.MIN_VALUE;
+        for (int i = position; i < members.length; i++) {
+            swap(members, position, i);
+            best = Math.max(best, getBestSoftScore(solution, seats, guestsByIndex, members, position + 1, seatsAroundTable));
+            swap(members, position, i);
+        }
+        return best;
+    }
+
+    // Seats the guests at the table in the given order, with every other seat empty, and returns
+    // the soft score of the solution.
+    private static int getSoftScore(SeatingPlanSolution solution, Seat[] seats, Guest[] guestsByIndex, int[] order,
+                                    int[] seatsAroundTable) {
+        for (Seat seat : seats) {
+            seat.setGuest(null);
+        }
+        for (int position = 0; position < order.length; position++) {
+            if (order[position] != SeatingPlanTableOrderer.NONE) seats[seatsAroundTable[position]].setGuest(guestsByIndex[order[position]]);
+        }
+        return ((HardSoftScore) SCORE_CALCULATOR.calculateScore(solution)).getSoftScore();
+    }
+
+    private static void swap(int[] values, int first, int second) {
+        int value = values[first];
+        values[first] = values[second];
+        values[second] = value;
+    }
+
+    private static int[] sorted(int[] values) {
+        int[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    // A round table, a banquet table and a head table, so that tables that wrap around, rows facing
+    // each other and the ends of rows are all covered.
+    private static SeatingPlanSolution createSolution(Random random) {
+        Venue venue = new Venue();
+        venue.setTables(Arrays.asList(new TableLayout(TableLayout.Kind.ROUND, 8), new TableLayout(TableLayout.Kind.BANQUET, 8),
+                new TableLayout(TableLayout.Kind.HEAD, 6), new TableLayout(TableLayout.Kind.ROUND, 7),
+                new TableLayout(TableLayout.Kind.BANQUET, 6), new TableLayout(TableLayout.Kind.HEAD, 5)));
+        return SeatingPlanSolutionFactory.createFromGuestsAndVenue(createGuests(random), venue);
+    }
+
+    // Guests with many preferences about the guests near them in the list, so that most tables
+    // have guests who want to sit beside each other or apart.
+    private static List<Guest> createGuests(Random random) {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= GUEST_COUNT; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(random.nextBoolean() ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guests.add(guest);
+        }
+        for (int i = 0; i < guests.size(); i++) {
+            guests.get(i).setSeatBeside(pickGuests(guests, i, random));
+            guests.get(i).setDoNotSeatBeside(pickGuests(guests, i, random));
+            guests.get(i).setSeatAtSameTable(pickGuests(guests, i, random));
+            guests.get(i).setDoNotSeatAtSameTable(pickGuests(guests, i, random));
+        }
+        return guests;
+    }
+
+    private static Set<Guest> pickGuests(List<Guest> guests, int index, Random random) {
+        Set<Guest> picked = new HashSet<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            picked.add(guests.get((index + 1 + random.nextInt(10)) % guests.size()));
+        }
+        return picked;
+    }
+
+}
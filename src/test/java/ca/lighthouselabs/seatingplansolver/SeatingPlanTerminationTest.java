@@ -0,0 +1,155 @@
+package ca.lighthouselabs.seatingplansolver;
+
+import org.junit.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that SeatingPlanTermination never stops before the best plan could be found, and that it
+ * combines its limits with the configured termination.
+ *
+ * @author David VanDusen
+ */
+// The upper bound is compared with the best soft score of every plan that seats each guest once,
+// found by trying every order of the guests in the seats. That is only quick enough for venues of
+// up to about ten seats, so the venues here have eight seats at most.
+public class SeatingPlanTerminationTest {
+
+    private static final List<List<TableLayout>> VENUES = Arrays.asList(
+            Collections.singletonList(new TableLayout(TableLayout.Kind.ROUND, 8)),
+            Arrays.asList(new TableLayout(TableLayout.Kind.HEAD, 4), new TableLayout(TableLayout.Kind.BANQUET, 4)),
+            Arrays.asList(new TableLayout(TableLayout.Kind.BANQUET, 6), new TableLayout(TableLayout.Kind.ROUND, 2)),
+            Arrays.asList(new TableLayout(TableLayout.Kind.HEAD, 3), new TableLayout(TableLayout.Kind.HEAD, 3),
+                    new TableLayout(TableLayout.Kind.ROUND, 1)));
+
+    @Test
+    public void softScoreUpperBoundIsAtLeastBestSoftScore() {
+        SeatingPlanScoreCalculator easyScoreCalculator = new SeatingPlanScoreCalculator();
+        for (long seed = 0; seed < 12; seed++) {
+            Random random = new Random(seed);
+            Venue venue = new Venue();
+            venue.setTables(VENUES.get((int) (seed % VENUES.size())));
+            // Every other problem leaves a seat empty
+            int guestCount = venue.getSeatCount() - (int) (seed / VENUES.size() % 2);
+            SeatingPlanSolution problem = SeatingPlanSolutionFactory.createFromGuestsAndVenue(createGuests(guestCount, random), venue);
+            int upperBound = SeatingPlanTermination.getSoftScoreUpperBound(problem);
+            Guest[] guestsInSeats = new Guest[venue.getSeatCount()];
+            problem.getGuests().toArray(guestsInSeats);
+            int bestSoftScore = getBestSoftScore(problem, guestsInSeats, 0, easyScoreCalculator);
+            assertTrue("seed (" + seed + "): upper bound (" + upperBound + ") is below the best soft score (" + bestSoftScore + ")",
+                    upperBound >= bestSoftScore);
+        }
+    }
+
+    @Test
+    public void softScoreUpperBoundDoesNotChangeUnindexedProblem() {
+        Venue venue = new Venue();
+        venue.setTables(VENUES.get(1));
+        SeatingPlanSolution problem = SeatingPlanSolutionFactory.createFromGuestsAndVenue(createGuests(8, new Random(0)), venue);
+        int upperBound = SeatingPlanTermination.getSoftScoreUpperBound(problem);
+        problem.setGuestPreferenceMatrix(null);
+        problem.setSeatTopology(null);
+        problem.getGuests().forEach(guest -> guest.setIndex(0));
+        problem.getSeats().forEach(seat -> seat.setId(null));
+        assertEquals(upperBound, SeatingPlanTermination.getSoftScoreUpperBound(problem));
+        assertNull(problem.getGuestPreferenceMatrix());
+        assertNull(problem.getSeatTopology());
+        for (Guest guest : problem.getGuests()) {
+            assertEquals(0, guest.getIndex());
+        }
+        for (Seat seat : problem.getSeats()) {
+            assertNull(seat.getId());
+        }
+    }
+
+    @Test
+    public void composesLimitsWithConfiguredTermination() {
+        SeatingPlanSolution problem = SeatingPlanSolutionFactory.createFromGuests(createGuests(8, new Random(0)));
+        int upperBound = SeatingPlanTermination.getSoftScoreUpperBound(problem);
+        TerminationConfig configuredTerminationConfig = new TerminationConfig();
+        configuredTerminationConfig.setMinutesSpentLimit(10L);
+        SeatingPlanTermination termination = new SeatingPlanTermination();
+        TerminationConfig terminationConfig = termination.createTerminationConfig(problem, configuredTerminationConfig);
+        assertEquals(Long.valueOf(termination.getSecondsSpentLimit(8)), terminationConfig.getSecondsSpentLimit());
+        assertEquals(Long.valueOf(termination.getSecondsSpentLimit(8) * 10L * termination.getUnimprovedPercent()),
+                terminationConfig.getUnimprovedMillisecondsSpentLimit());
+        assertEquals(HardSoftScore.valueOf(0, upperBound).toString(), terminationConfig.getBestScoreLimit());
+        assertEquals(1, terminationConfig.getTerminationConfigList().size());
+        assertSame(configuredTerminationConfig, terminationConfig.getTerminationConfigList().get(0));
+        // A best score limit below the upper bound is stopped at instead
+        termination.setBestScoreLimit(HardSoftScore.valueOf(0, upperBound - 1));
+        termination.setUnimprovedPercent(100);
+        terminationConfig = termination.createTerminationConfig(problem, null);
+        assertEquals(HardSoftScore.valueOf(0, upperBound - 1).toString(), terminationConfig.getBestScoreLimit());
+        assertNull(terminationConfig.getUnimprovedMillisecondsSpentLimit());
+        assertNull(terminationConfig.getTerminationConfigList());
+    }
+
+    // Tries every order of the guests and empty seats from the given position on, and returns the
+    // best soft score of the plans that have no hard constraint broken.
+    private static int getBestSoftScore(SeatingPlanSolution problem, Guest[] guestsInSeats, int position,
+            SeatingPlanScoreCalculator easyScoreCalculator) {
+        if (position == guestsInSeats.length) {
+            for (int i = 0; i < guestsInSeats.length; i++) {
+                problem.getSeats().get(i).setGuest(guestsInSeats[i]);
+            }
+            HardSoftScore score = (HardSoftScore) easyScoreCalculator.calculateScore(problem);
+            return score.getHardScore() < 0 ? Integer.MIN_VALUE : score.getSoftScore();
+        }
+        int bestSoftScore = Integer.MIN_VALUE;
+        for (int i = position; i < guestsInSeats.length; i++) {
+            swap(guestsInSeats, position, i);
+            bestSoftScore = Math.max(bestSoftScore, getBestSoftScore(problem, guestsInSeats, position + 1, easyScoreCalculator));
+            swap(guestsInSeats, position, i);
+        }
+        return bestSoftScore;
+    }
+
+    private static void swap(Guest[] guests, int i, int j) {
+        Guest guest = guests[i];
+        guests[i] = guests[j];
+        guests[j] = guest;
+    }
+
+    private static List<Guest> createGuests(int guestCount, Random random) {
+        List<Guest> guests = new ArrayList<>();
+        for (int id = 1; id <= guestCount; id++) {
+            Guest guest = new Guest();
+            guest.setId(id);
+            guest.setFirstName("Guest");
+            guest.setLastName(Integer.toString(id));
+            guest.setGender(random.nextBoolean() ? Guest.Gender.MALE : Guest.Gender.FEMALE);
+            guests.add(guest);
+        }
+        for (Guest guest : guests) {
+            guest.setSeatBeside(pickGuests(guests, random));
+            guest.setDoNotSeatBeside(pickGuests(guests, random));
+            guest.setSeatAtSameTable(pickGuests(guests, random));
+            guest.setDoNotSeatAtSameTable(pickGuests(guests, random));
+        }
+        return guests;
+    }
+
+    private static Set<Guest> pickGuests(List<Guest> guests, Random random) {
+        Set<Guest> picked = new HashSet<>();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            picked.add(guests.get(random.nextInt(guests.size())));
+        }
+        return picked;
+    }
+
+}